@@ -0,0 +1,197 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.AchievementStepAggregator;
+import com.sagargulati.rnplaygames.core.BatchSubmitter;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.Results;
+import com.sagargulati.rnplaygames.core.ScoreSubmissionQueue;
+import com.sagargulati.rnplaygames.core.fake.FakeGamesBackend;
+import com.sagargulati.rnplaygames.core.fake.LatencyDistribution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the submit and increment paths against a FakeGamesBackend with network-like latency,
+ * errors, reconnect required failures and throttling.
+ * Reports throughput and, in sample time mode, the latency percentiles of single calls.
+ * Fails if any caller is not settled, i.e. a promise would have been leaked.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FakeBackendLoadBenchmark {
+    private static final int CONCURRENT_CALLS = 2000;
+    private static final long SETTLE_TIMEOUT_MS = 30 * 1000;
+    private static final String[] BOARD_IDS = {"board-0", "board-1", "board-2", "board-3",
+            "board-4", "board-5", "board-6", "board-7"};
+    private static final String[] ACHIEVEMENT_IDS = {"achievement-0", "achievement-1", "achievement-2"};
+
+    @Param({"0.01"})
+    public double errorRate;
+
+    @Param({"0.001"})
+    public double reconnectRequiredRate;
+
+    // Calls allowed per second before the fake starts throttling.
+    @Param({"20000"})
+    public int quotaPerSecond;
+
+    private ScheduledExecutorService mExecutor;
+    private FakeGamesBackend mBackend;
+    private final ScoreSubmissionQueue<CountDownLatch> mScoreQueue = new ScoreSubmissionQueue<>();
+    private final AchievementStepAggregator<CountDownLatch> mStepAggregator = new AchievementStepAggregator<>();
+
+    private final AtomicLong mIssued = new AtomicLong();
+    private final AtomicLong mSettled = new AtomicLong();
+    private final AtomicLong mScore = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mExecutor = Executors.newScheduledThreadPool(4);
+        mBackend = new FakeGamesBackend(mExecutor, 42);
+        mBackend.setLatency(LatencyDistribution.logNormal(20, 0.5));
+        mBackend.setErrorRate(errorRate);
+        mBackend.setReconnectRequiredRate(reconnectRequiredRate);
+        mBackend.setQuota(quotaPerSecond, 1000);
+        for (String id : ACHIEVEMENT_IDS) {
+            mBackend.defineIncrementalAchievement(id, Integer.MAX_VALUE);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        mExecutor.shutdown();
+        mExecutor.awaitTermination(SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        if (mIssued.get() != mSettled.get()) {
+            throw new IllegalStateException((mIssued.get() - mSettled.get()) + " of " + mIssued.get()
+                    + " calls were never settled.");
+        }
+        if (mBackend.getCallCount() != mBackend.getCompletedCount()) {
+            throw new IllegalStateException("The fake backend did not complete every call.");
+        }
+    }
+
+    /**
+     * One submitScore call at a time per thread, without batching, from 64 threads.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @Threads(64)
+    public void submitScoreUnbatched() throws InterruptedException {
+        final CountDownLatch settled = new CountDownLatch(1);
+        mIssued.incrementAndGet();
+        mBackend.submitScoreImmediate(BOARD_IDS[0], mScore.incrementAndGet(), null, new Callback<NewBests>() {
+            @Override
+            public void onSuccess(NewBests newBests) {
+                Results.writeScoreResult(new HashResultMap(), newBests);
+                settle(settled);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                settle(settled);
+            }
+        });
+        await(settled);
+    }
+
+    /**
+     * CONCURRENT_CALLS submitScore calls issued at once over a few boards and flushed together.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CONCURRENT_CALLS)
+    public void submitScoresBatched() throws InterruptedException {
+        final CountDownLatch settled = new CountDownLatch(CONCURRENT_CALLS);
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            mIssued.incrementAndGet();
+            mScoreQueue.enqueue(BOARD_IDS[i % BOARD_IDS.length], mScore.incrementAndGet(), null, settled);
+        }
+        BatchSubmitter.submitScores(mScoreQueue.drain(), mBackend,
+                new BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<CountDownLatch>, NewBests>() {
+            @Override
+            public void onSubmitted(ScoreSubmissionQueue.PendingScore<CountDownLatch> pending, NewBests newBests) {
+                for (ScoreSubmissionQueue.Waiter<CountDownLatch> waiter : pending.waiters) {
+                    Results.writeScoreResult(new HashResultMap(), pending.isNewBestFor(waiter, newBests));
+                    settle(waiter.handle);
+                }
+            }
+
+            @Override
+            public void onFailed(ScoreSubmissionQueue.PendingScore<CountDownLatch> pending, Exception e) {
+                for (ScoreSubmissionQueue.Waiter<CountDownLatch> waiter : pending.waiters) {
+                    settle(waiter.handle);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        await(settled);
+    }
+
+    /**
+     * CONCURRENT_CALLS incrementAchievement calls issued at once over a few achievements and flushed together.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(CONCURRENT_CALLS)
+    public void incrementAchievementsAggregated() throws InterruptedException {
+        final CountDownLatch settled = new CountDownLatch(CONCURRENT_CALLS);
+        for (int i = 0; i < CONCURRENT_CALLS; i++) {
+            mIssued.incrementAndGet();
+            mStepAggregator.increment(ACHIEVEMENT_IDS[i % ACHIEVEMENT_IDS.length], 1, settled);
+        }
+        BatchSubmitter.submitSteps(mStepAggregator.drain(), mBackend,
+                new BatchSubmitter.Listener<AchievementStepAggregator.Flush<CountDownLatch>, Boolean>() {
+            @Override
+            public void onSubmitted(AchievementStepAggregator.Flush<CountDownLatch> flush, Boolean isUnlocked) {
+                for (CountDownLatch handle : flush.handles) {
+                    Results.writeStepsResult(new HashResultMap(), isUnlocked);
+                    settle(handle);
+                }
+            }
+
+            @Override
+            public void onFailed(AchievementStepAggregator.Flush<CountDownLatch> flush, Exception e) {
+                for (CountDownLatch handle : flush.handles) {
+                    settle(handle);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+        await(settled);
+    }
+
+    private void settle(final CountDownLatch latch) {
+        mSettled.incrementAndGet();
+        latch.countDown();
+    }
+
+    private static void await(final CountDownLatch latch) throws InterruptedException {
+        if (!latch.await(SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException(latch.getCount() + " calls were not settled in time.");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.ResultMap;
+
+import java.util.HashMap;
+
+/**
+ * Stand-in for WritableNativeMap, which needs the React Native native libraries.
+ */
+class HashResultMap extends HashMap<String, Object> implements ResultMap {
+    private static final long serialVersionUID = 1L;
+
+    HashResultMap() {
+        super(8);
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        put(key, value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        put(key, value);
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        put(key, value);
+    }
+}
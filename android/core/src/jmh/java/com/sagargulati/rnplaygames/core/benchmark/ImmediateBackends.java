@@ -0,0 +1,50 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.AchievementsBackend;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.LeaderboardsBackend;
+import com.sagargulati.rnplaygames.core.NewBests;
+
+/**
+ * Backends that complete every call on the calling thread, so that only the library side is measured.
+ */
+class ImmediateBackends {
+    private ImmediateBackends() {
+    }
+
+    static class Leaderboards implements LeaderboardsBackend {
+        private long mBest = Long.MIN_VALUE;
+
+        @Override
+        public void submitScoreImmediate(final String boardId, final long score, final String scoreTag,
+                                         final Callback<NewBests> callback) {
+            boolean isNewBest = score > mBest;
+            if (isNewBest) {
+                mBest = score;
+            }
+            callback.onSuccess(isNewBest ? NewBests.ALL : NewBests.NONE);
+        }
+    }
+
+    static class Achievements implements AchievementsBackend {
+        @Override
+        public void incrementImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            callback.onSuccess(Boolean.FALSE);
+        }
+
+        @Override
+        public void setStepsImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            callback.onSuccess(Boolean.FALSE);
+        }
+
+        @Override
+        public void unlockImmediate(final String id, final Callback<Void> callback) {
+            callback.onSuccess(null);
+        }
+
+        @Override
+        public void revealImmediate(final String id, final Callback<Void> callback) {
+            callback.onSuccess(null);
+        }
+    }
+}
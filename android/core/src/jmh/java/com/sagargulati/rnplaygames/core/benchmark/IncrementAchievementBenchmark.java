@@ -0,0 +1,81 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.AchievementStepAggregator;
+import com.sagargulati.rnplaygames.core.BatchSubmitter;
+import com.sagargulati.rnplaygames.core.Results;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Increment path of RNPlayGamesAchievement: aggregate the steps, drain the aggregator, send one increment per
+ * achievement and build the result of every caller. Results are per incrementAchievement call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IncrementAchievementBenchmark {
+    private static final int BATCH_SIZE = 64;
+    private static final String[] ACHIEVEMENT_IDS = {"achievement-0", "achievement-1", "achievement-2"};
+
+    private AchievementStepAggregator<Object> mAggregator;
+    private ImmediateBackends.Achievements mBackend;
+    private Blackhole mBlackhole;
+
+    private final BatchSubmitter.Listener<AchievementStepAggregator.Flush<Object>, Boolean> mListener =
+            new BatchSubmitter.Listener<AchievementStepAggregator.Flush<Object>, Boolean>() {
+                @Override
+                public void onSubmitted(AchievementStepAggregator.Flush<Object> flush, Boolean isUnlocked) {
+                    for (int i = 0; i < flush.handles.size(); i++) {
+                        mBlackhole.consume(Results.writeStepsResult(new HashResultMap(), isUnlocked));
+                    }
+                }
+
+                @Override
+                public void onFailed(AchievementStepAggregator.Flush<Object> flush, Exception e) {
+                    mBlackhole.consume(e);
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            };
+
+    @Setup
+    public void setUp() {
+        mAggregator = new AchievementStepAggregator<>();
+        mBackend = new ImmediateBackends.Achievements();
+    }
+
+    /**
+     * One incrementAchievement call flushed on its own, as when aggregation is disabled.
+     */
+    @Benchmark
+    public void incrementUnaggregated(final Blackhole blackhole) {
+        mBlackhole = blackhole;
+        mAggregator.increment(ACHIEVEMENT_IDS[0], 1, blackhole);
+        BatchSubmitter.submitSteps(mAggregator.drain(), mBackend, mListener);
+    }
+
+    /**
+     * BATCH_SIZE incrementAchievement calls over a few achievements, aggregated into one flush.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void incrementAggregated(final Blackhole blackhole) {
+        mBlackhole = blackhole;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mAggregator.increment(ACHIEVEMENT_IDS[i % ACHIEVEMENT_IDS.length], 1, blackhole);
+        }
+        BatchSubmitter.submitSteps(mAggregator.drain(), mBackend, mListener);
+    }
+}
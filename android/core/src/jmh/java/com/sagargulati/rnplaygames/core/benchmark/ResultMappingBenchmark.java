@@ -0,0 +1,47 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.PlayerInfo;
+import com.sagargulati.rnplaygames.core.Results;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the objects the promises are resolved with (what Helpers.getReturnObject is filled with).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResultMappingBenchmark {
+    private final PlayerInfo mPlayer = new PlayerInfo("player-id", "Player Name", "Title", 1584000000000L);
+    private boolean mFlag;
+
+    @Benchmark
+    public Object scoreResult() {
+        mFlag = !mFlag;
+        return Results.writeScoreResult(new HashResultMap(), mFlag ? NewBests.ALL : NewBests.NONE);
+    }
+
+    @Benchmark
+    public Object queuedScoreResult() {
+        return Results.writeQueuedScoreResult(new HashResultMap());
+    }
+
+    @Benchmark
+    public Object stepsResult() {
+        mFlag = !mFlag;
+        return Results.writeStepsResult(new HashResultMap(), mFlag);
+    }
+
+    @Benchmark
+    public Object playerInfo() {
+        return Results.writePlayerInfo(new HashResultMap(), mPlayer);
+    }
+}
@@ -0,0 +1,84 @@
+package com.sagargulati.rnplaygames.core.benchmark;
+
+import com.sagargulati.rnplaygames.core.BatchSubmitter;
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.Results;
+import com.sagargulati.rnplaygames.core.ScoreSubmissionQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Submit path of RNPlayGamesLeaderboard: queue the scores, drain the queue, submit the best pending scores
+ * and build the result of every caller. Results are per submitted score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SubmitScoreBenchmark {
+    private static final int BATCH_SIZE = 64;
+    private static final String[] BOARD_IDS = {"board-0", "board-1", "board-2", "board-3"};
+
+    private ScoreSubmissionQueue<Object> mQueue;
+    private ImmediateBackends.Leaderboards mBackend;
+    private Blackhole mBlackhole;
+    private long mScore;
+
+    private final BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<Object>, NewBests> mListener =
+            new BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<Object>, NewBests>() {
+                @Override
+                public void onSubmitted(ScoreSubmissionQueue.PendingScore<Object> pending, NewBests newBests) {
+                    for (ScoreSubmissionQueue.Waiter<Object> waiter : pending.waiters) {
+                        mBlackhole.consume(Results.writeScoreResult(new HashResultMap(),
+                                pending.isNewBestFor(waiter, newBests)));
+                    }
+                }
+
+                @Override
+                public void onFailed(ScoreSubmissionQueue.PendingScore<Object> pending, Exception e) {
+                    mBlackhole.consume(e);
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            };
+
+    @Setup
+    public void setUp() {
+        mQueue = new ScoreSubmissionQueue<>();
+        mBackend = new ImmediateBackends.Leaderboards();
+    }
+
+    /**
+     * One submitScore call flushed on its own, as when batching is disabled.
+     */
+    @Benchmark
+    public void submitUnbatched(final Blackhole blackhole) {
+        mBlackhole = blackhole;
+        mQueue.enqueue(BOARD_IDS[0], mScore++, null, blackhole);
+        BatchSubmitter.submitScores(mQueue.drain(), mBackend, mListener);
+    }
+
+    /**
+     * BATCH_SIZE submitScore calls over a few boards, coalesced into one flush.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void submitBatched(final Blackhole blackhole) {
+        mBlackhole = blackhole;
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            mQueue.enqueue(BOARD_IDS[i % BOARD_IDS.length], mScore++, null, blackhole);
+        }
+        BatchSubmitter.submitScores(mQueue.drain(), mBackend, mListener);
+    }
+}
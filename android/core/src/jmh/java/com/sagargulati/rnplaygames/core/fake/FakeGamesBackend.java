@@ -0,0 +1,272 @@
+package com.sagargulati.rnplaygames.core.fake;
+
+import com.sagargulati.rnplaygames.core.AchievementsBackend;
+import com.sagargulati.rnplaygames.core.BackendException;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.LeaderboardsBackend;
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.PlayerInfo;
+import com.sagargulati.rnplaygames.core.PlayersBackend;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Play Games services, for load testing without devices or network.
+ * Every call completes on the executor after a latency drawn from the configured distribution, and may fail
+ * with a transient error, a reconnect required error, or be throttled once the quota of the current window
+ * is used up. Scores, steps and unlocks are kept in memory so results look like the real ones.
+ */
+public class FakeGamesBackend implements LeaderboardsBackend, AchievementsBackend, PlayersBackend {
+    private final ScheduledExecutorService mExecutor;
+    private final Random mRandom;
+
+    private volatile LatencyDistribution mLatency = LatencyDistribution.fixed(0);
+    private volatile double mErrorRate = 0;
+    private volatile double mReconnectRequiredRate = 0;
+
+    // Quota, counted per fixed window.
+    private int mQuotaCalls = 0;
+    private long mQuotaWindowMs = 0;
+    private long mWindowStartMs = 0;
+    private int mWindowCalls = 0;
+
+    // Game state
+    private final Map<String, Long> mBestScores = new HashMap<>();
+    private final Map<String, Integer> mSteps = new HashMap<>();
+    private final Map<String, Integer> mTotalSteps = new HashMap<>();
+    private final Map<String, Boolean> mUnlocked = new HashMap<>();
+    private final Map<String, Boolean> mRevealed = new HashMap<>();
+    private final PlayerInfo mPlayer = new PlayerInfo("fake-player", "Fake Player", "Tester", 0);
+
+    // Statistics
+    private final AtomicLong mCallCount = new AtomicLong();
+    private final AtomicLong mFailureCount = new AtomicLong();
+    private final AtomicLong mThrottledCount = new AtomicLong();
+    private final AtomicLong mReconnectRequiredCount = new AtomicLong();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+
+    /**
+     * @param executor completes the calls.
+     * @param seed seed of the latency and error draws, so that runs can be reproduced.
+     */
+    public FakeGamesBackend(final ScheduledExecutorService executor, final long seed) {
+        mExecutor = executor;
+        mRandom = new Random(seed);
+    }
+
+    public void setLatency(final LatencyDistribution latency) {
+        mLatency = latency;
+    }
+
+    /**
+     * @param errorRate share of the calls failing with a transient error, between 0 and 1.
+     */
+    public void setErrorRate(final double errorRate) {
+        mErrorRate = errorRate;
+    }
+
+    /**
+     * @param reconnectRequiredRate share of the calls failing because the player has to sign in again.
+     */
+    public void setReconnectRequiredRate(final double reconnectRequiredRate) {
+        mReconnectRequiredRate = reconnectRequiredRate;
+    }
+
+    /**
+     * Throttles the calls made after maxCalls calls in the same window.
+     * @param maxCalls 0 to disable throttling.
+     * @param windowMs
+     */
+    public synchronized void setQuota(final int maxCalls, final long windowMs) {
+        mQuotaCalls = maxCalls;
+        mQuotaWindowMs = windowMs;
+        mWindowCalls = 0;
+    }
+
+    /**
+     * Makes an achievement incremental. Achievements are standard by default.
+     */
+    public synchronized void defineIncrementalAchievement(final String id, final int totalSteps) {
+        mTotalSteps.put(id, totalSteps);
+    }
+
+    public long getCallCount() {
+        return mCallCount.get();
+    }
+
+    /**
+     * @return the number of calls that completed, successfully or not.
+     */
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    public long getFailureCount() {
+        return mFailureCount.get();
+    }
+
+    public long getThrottledCount() {
+        return mThrottledCount.get();
+    }
+
+    public long getReconnectRequiredCount() {
+        return mReconnectRequiredCount.get();
+    }
+
+    @Override
+    public void submitScoreImmediate(final String boardId, final long score, final String scoreTag,
+                                     final Callback<NewBests> callback) {
+        call(callback, new Operation<NewBests>() {
+            @Override
+            public NewBests run() {
+                Long best = mBestScores.get(boardId);
+                if (best != null && best >= score) return NewBests.NONE;
+                mBestScores.put(boardId, score);
+                return NewBests.ALL;
+            }
+        });
+    }
+
+    @Override
+    public void incrementImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+        call(callback, new Operation<Boolean>() {
+            @Override
+            public Boolean run() throws BackendException {
+                Integer steps = mSteps.get(id);
+                return applySteps(id, (steps == null ? 0 : steps) + numSteps);
+            }
+        });
+    }
+
+    @Override
+    public void setStepsImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+        call(callback, new Operation<Boolean>() {
+            @Override
+            public Boolean run() throws BackendException {
+                Integer steps = mSteps.get(id);
+                return applySteps(id, Math.max(steps == null ? 0 : steps, numSteps));
+            }
+        });
+    }
+
+    @Override
+    public void unlockImmediate(final String id, final Callback<Void> callback) {
+        call(callback, new Operation<Void>() {
+            @Override
+            public Void run() {
+                mUnlocked.put(id, true);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void revealImmediate(final String id, final Callback<Void> callback) {
+        call(callback, new Operation<Void>() {
+            @Override
+            public Void run() {
+                mRevealed.put(id, true);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void getCurrentPlayer(final Callback<PlayerInfo> callback) {
+        call(callback, new Operation<PlayerInfo>() {
+            @Override
+            public PlayerInfo run() {
+                return mPlayer;
+            }
+        });
+    }
+
+    @Override
+    public void loadPlayer(final String playerId, final boolean forceReload, final Callback<PlayerInfo> callback) {
+        call(callback, new Operation<PlayerInfo>() {
+            @Override
+            public PlayerInfo run() {
+                return new PlayerInfo(playerId, "Fake " + playerId, "Tester", 0);
+            }
+        });
+    }
+
+    private boolean applySteps(final String id, final int steps) throws BackendException {
+        Integer totalSteps = mTotalSteps.get(id);
+        if (totalSteps == null) {
+            throw new BackendException(BackendException.REASON_PERMANENT, "Achievement is not incremental: " + id);
+        }
+        mSteps.put(id, Math.min(steps, totalSteps));
+        if (steps >= totalSteps) {
+            mUnlocked.put(id, true);
+        }
+        return Boolean.TRUE.equals(mUnlocked.get(id));
+    }
+
+    private interface Operation<T> {
+        T run() throws BackendException;
+    }
+
+    private <T> void call(final Callback<T> callback, final Operation<T> operation) {
+        mCallCount.incrementAndGet();
+        final BackendException failure = drawFailure();
+        long latencyMicros = Math.max(0, mLatency.sampleMicros(mRandom));
+
+        mExecutor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                mCompletedCount.incrementAndGet();
+                if (failure != null) {
+                    callback.onFailure(failure);
+                    return;
+                }
+
+                T result;
+                try {
+                    synchronized (FakeGamesBackend.this) {
+                        result = operation.run();
+                    }
+                } catch (BackendException e) {
+                    mFailureCount.incrementAndGet();
+                    callback.onFailure(e);
+                    return;
+                }
+                callback.onSuccess(result);
+            }
+        }, latencyMicros, TimeUnit.MICROSECONDS);
+    }
+
+    private BackendException drawFailure() {
+        if (isThrottled()) {
+            mThrottledCount.incrementAndGet();
+            return new BackendException(BackendException.REASON_THROTTLED, "Quota exceeded.");
+        }
+
+        double draw = mRandom.nextDouble();
+        if (draw < mReconnectRequiredRate) {
+            mReconnectRequiredCount.incrementAndGet();
+            return new BackendException(BackendException.REASON_RECONNECT_REQUIRED, "Reconnect required.");
+        }
+        if (draw < mReconnectRequiredRate + mErrorRate) {
+            mFailureCount.incrementAndGet();
+            return new BackendException(BackendException.REASON_TRANSIENT, "Network error.");
+        }
+        return null;
+    }
+
+    private synchronized boolean isThrottled() {
+        if (mQuotaCalls <= 0) return false;
+
+        long nowMs = System.nanoTime() / 1000000;
+        if (nowMs - mWindowStartMs >= mQuotaWindowMs) {
+            mWindowStartMs = nowMs;
+            mWindowCalls = 0;
+        }
+        return ++mWindowCalls > mQuotaCalls;
+    }
+}
@@ -0,0 +1,45 @@
+package com.sagargulati.rnplaygames.core.fake;
+
+import java.util.Random;
+
+/**
+ * Latency of a fake backend call.
+ */
+public abstract class LatencyDistribution {
+    /**
+     * @return the latency of the next call, in microseconds.
+     */
+    public abstract long sampleMicros(Random random);
+
+    public static LatencyDistribution fixed(final long latencyMs) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMicros(Random random) {
+                return latencyMs * 1000;
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(final long minMs, final long maxMs) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMicros(Random random) {
+                return minMs * 1000 + (long) (random.nextDouble() * (maxMs - minMs) * 1000);
+            }
+        };
+    }
+
+    /**
+     * Log-normal latency, the usual shape of network calls: most calls close to the median and a long tail.
+     * @param medianMs
+     * @param sigma spread of the tail, e.g. 0.5 puts p99 around 3.2 times the median.
+     */
+    public static LatencyDistribution logNormal(final double medianMs, final double sigma) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMicros(Random random) {
+                return (long) (medianMs * 1000 * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+}
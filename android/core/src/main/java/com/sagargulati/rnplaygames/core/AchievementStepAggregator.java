@@ -0,0 +1,131 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds up pending achievement steps per achievement id, so that one increment
+ * (or one set steps call) is sent per achievement when the aggregator is flushed.
+ * Whatever the order of the calls, the pending steps of an achievement with current steps c come down to
+ * max(c + steps, absoluteSteps): increments are added to both parts, and a set steps call only raises the
+ * absolute part, so that increments queued before it are not lost.
+ * @param <T> the handle used to settle a caller, e.g. its promise.
+ */
+public class AchievementStepAggregator<T> {
+    private final ConcurrentHashMap<String, PendingSteps<T>> mPending = new ConcurrentHashMap<>();
+
+    /**
+     * Adds steps to the pending increment of an achievement.
+     * @param id id of the achievement
+     * @param numSteps
+     * @param handle settled once the pending steps are flushed
+     */
+    public void increment(final String id, final int numSteps, final T handle) {
+        PendingSteps<T> pending = getPending(id);
+        synchronized (pending) {
+            pending.steps += numSteps;
+            if (pending.isAbsolute) {
+                pending.absoluteSteps += numSteps;
+            }
+            pending.handles.add(handle);
+        }
+    }
+
+    /**
+     * Sets the pending steps of an achievement to at least an absolute step count.
+     * Increments queued before are kept, and increments made afterwards are added on top of it.
+     * @param id id of the achievement
+     * @param numSteps
+     * @param handle settled once the pending steps are flushed
+     */
+    public void setSteps(final String id, final int numSteps, final T handle) {
+        PendingSteps<T> pending = getPending(id);
+        synchronized (pending) {
+            pending.absoluteSteps = pending.isAbsolute ? Math.max(pending.absoluteSteps, numSteps) : numSteps;
+            pending.isAbsolute = true;
+            pending.handles.add(handle);
+        }
+    }
+
+    /**
+     * Removes every pending increment from the aggregator.
+     * @return one entry per achievement with pending steps.
+     */
+    public List<Flush<T>> drain() {
+        List<Flush<T>> drained = new ArrayList<>();
+        for (PendingSteps<T> pending : mPending.values()) {
+            synchronized (pending) {
+                if (pending.handles.isEmpty()) continue;
+                drained.add(new Flush<>(pending.id, pending.steps, pending.isAbsolute, pending.absoluteSteps,
+                        new ArrayList<>(pending.handles)));
+                pending.steps = 0;
+                pending.isAbsolute = false;
+                pending.absoluteSteps = 0;
+                pending.handles.clear();
+            }
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        for (PendingSteps<T> pending : mPending.values()) {
+            synchronized (pending) {
+                if (!pending.handles.isEmpty()) return false;
+            }
+        }
+        return true;
+    }
+
+    private PendingSteps<T> getPending(final String id) {
+        PendingSteps<T> pending = mPending.get(id);
+        if (pending == null) {
+            PendingSteps<T> created = new PendingSteps<>(id);
+            pending = mPending.putIfAbsent(id, created);
+            if (pending == null) {
+                pending = created;
+            }
+        }
+        return pending;
+    }
+
+    private static class PendingSteps<T> {
+        final String id;
+        final List<T> handles = new ArrayList<>();
+        int steps = 0;
+        boolean isAbsolute = false;
+        int absoluteSteps = 0;
+
+        PendingSteps(final String id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * The steps to send for one achievement, together with every caller folded into them:
+     * an increment of steps, if any, then a set steps call to absoluteSteps if isAbsolute is true.
+     */
+    public static class Flush<T> {
+        public final String id;
+        public final int steps;
+        public final boolean isAbsolute;
+        public final int absoluteSteps;
+        public final List<T> handles;
+
+        Flush(final String id, final int steps, final boolean isAbsolute, final int absoluteSteps,
+              final List<T> handles) {
+            this.id = id;
+            this.steps = steps;
+            this.isAbsolute = isAbsolute;
+            this.absoluteSteps = absoluteSteps;
+            this.handles = handles;
+        }
+
+        /**
+         * @return the same flush without its increment, once the increment has been sent.
+         */
+        Flush<T> withoutIncrement() {
+            return new Flush<>(id, 0, isAbsolute, absoluteSteps, handles);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * The part of AchievementsClient used by the library.
+ */
+public interface AchievementsBackend {
+    /**
+     * @param callback called with whether or not the achievement is now unlocked.
+     */
+    void incrementImmediate(String id, int numSteps, Callback<Boolean> callback);
+
+    /**
+     * @param callback called with whether or not the achievement is now unlocked.
+     */
+    void setStepsImmediate(String id, int numSteps, Callback<Boolean> callback);
+
+    void unlockImmediate(String id, Callback<Void> callback);
+
+    void revealImmediate(String id, Callback<Void> callback);
+}
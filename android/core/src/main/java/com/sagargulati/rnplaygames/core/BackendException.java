@@ -0,0 +1,35 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Failure reported by a backend that is not backed by the Play Games clients (which fail with ApiException).
+ */
+public class BackendException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    // The network or the service is unavailable, the call may succeed later.
+    public final static int REASON_TRANSIENT = 1;
+    // The call was rejected because too many calls were made, it may succeed later.
+    public final static int REASON_THROTTLED = 2;
+    // The player has to sign in again.
+    public final static int REASON_RECONNECT_REQUIRED = 3;
+    // The call itself is invalid and will never succeed.
+    public final static int REASON_PERMANENT = 4;
+
+    private final int mReason;
+
+    public BackendException(final int reason, final String message) {
+        super(message);
+        mReason = reason;
+    }
+
+    public int getReason() {
+        return mReason;
+    }
+
+    /**
+     * Whether or not the call may succeed if it is retried later.
+     */
+    public boolean isTransient() {
+        return mReason == REASON_TRANSIENT || mReason == REASON_THROTTLED;
+    }
+}
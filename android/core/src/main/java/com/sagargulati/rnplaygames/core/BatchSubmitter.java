@@ -0,0 +1,134 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the drained content of a ScoreSubmissionQueue or an AchievementStepAggregator through a backend,
+ * one call per pending entry, and reports every outcome to a listener.
+ */
+public class BatchSubmitter {
+    private BatchSubmitter() {
+    }
+
+    public interface Listener<E, R> {
+        void onSubmitted(E entry, R result);
+
+        void onFailed(E entry, Exception e);
+
+        /**
+         * Called once after every entry has been reported.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Submits the best pending score of every board and score tag.
+     * @param pendingScores drained from a ScoreSubmissionQueue.
+     * @param backend
+     * @param listener told for which time spans each submitted score is a new best.
+     */
+    public static <T> void submitScores(final List<ScoreSubmissionQueue.PendingScore<T>> pendingScores,
+                                        final LeaderboardsBackend backend,
+                                        final Listener<ScoreSubmissionQueue.PendingScore<T>, NewBests> listener) {
+        final AtomicInteger remaining = new AtomicInteger(pendingScores.size());
+        if (pendingScores.isEmpty()) {
+            listener.onComplete();
+            return;
+        }
+
+        for (final ScoreSubmissionQueue.PendingScore<T> pending : pendingScores) {
+            backend.submitScoreImmediate(pending.boardId, pending.getBestScore(), pending.scoreTag,
+                    new EntryCallback<>(pending, listener, remaining));
+        }
+    }
+
+    /**
+     * Sends one increment (or set steps call) per achievement with pending steps.
+     * An achievement with both is sent the increment first, then the set steps call. If only the set steps call
+     * fails, the listener is given the flush without its increment, as the increment has been applied.
+     * @param flushes drained from an AchievementStepAggregator.
+     * @param backend
+     * @param listener told whether or not each achievement is now unlocked.
+     */
+    public static <T> void submitSteps(final List<AchievementStepAggregator.Flush<T>> flushes,
+                                       final AchievementsBackend backend,
+                                       final Listener<AchievementStepAggregator.Flush<T>, Boolean> listener) {
+        final AtomicInteger remaining = new AtomicInteger(flushes.size());
+        if (flushes.isEmpty()) {
+            listener.onComplete();
+            return;
+        }
+
+        for (final AchievementStepAggregator.Flush<T> flush : flushes) {
+            EntryCallback<AchievementStepAggregator.Flush<T>, Boolean> callback =
+                    new EntryCallback<>(flush, listener, remaining);
+            if (!flush.isAbsolute) {
+                backend.incrementImmediate(flush.id, flush.steps, callback);
+            } else if (flush.steps == 0) {
+                backend.setStepsImmediate(flush.id, flush.absoluteSteps, callback);
+            } else {
+                submitIncrementThenSetSteps(flush, backend, listener, remaining);
+            }
+        }
+    }
+
+    private static <T> void submitIncrementThenSetSteps(final AchievementStepAggregator.Flush<T> flush,
+                                                        final AchievementsBackend backend,
+            final Listener<AchievementStepAggregator.Flush<T>, Boolean> listener, final AtomicInteger remaining) {
+        backend.incrementImmediate(flush.id, flush.steps, new Callback<Boolean>() {
+            @Override
+            public void onSuccess(final Boolean isUnlockedByIncrement) {
+                final AchievementStepAggregator.Flush<T> rest = flush.withoutIncrement();
+                backend.setStepsImmediate(flush.id, flush.absoluteSteps, new Callback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean isUnlocked) {
+                        boolean isAnyUnlocked = Boolean.TRUE.equals(isUnlockedByIncrement)
+                                || Boolean.TRUE.equals(isUnlocked);
+                        new EntryCallback<>(flush, listener, remaining).onSuccess(isAnyUnlocked);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        new EntryCallback<>(rest, listener, remaining).onFailure(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                new EntryCallback<>(flush, listener, remaining).onFailure(e);
+            }
+        });
+    }
+
+    private static class EntryCallback<E, R> implements Callback<R> {
+        private final E mEntry;
+        private final Listener<E, R> mListener;
+        private final AtomicInteger mRemaining;
+
+        EntryCallback(final E entry, final Listener<E, R> listener, final AtomicInteger remaining) {
+            mEntry = entry;
+            mListener = listener;
+            mRemaining = remaining;
+        }
+
+        @Override
+        public void onSuccess(R result) {
+            mListener.onSubmitted(mEntry, result);
+            onReported();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            mListener.onFailed(mEntry, e);
+            onReported();
+        }
+
+        private void onReported() {
+            if (mRemaining.decrementAndGet() == 0) {
+                mListener.onComplete();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects one result per operation of a batch, and hands them over in order once every operation is settled.
+ * Only the first result of each operation counts.
+ * @param <R> the result of an operation, never null.
+ */
+public class BulkResults<R> {
+    private final Object[] mResults;
+    private final AtomicInteger mRemaining;
+    private final Listener<R> mListener;
+
+    public interface Listener<R> {
+        /**
+         * Called once, with the result of every operation in order.
+         */
+        void onSettled(List<R> results);
+    }
+
+    /**
+     * @param size number of operations in the batch. An empty batch is settled right away.
+     * @param listener
+     */
+    public BulkResults(final int size, final Listener<R> listener) {
+        mResults = new Object[size];
+        mRemaining = new AtomicInteger(size);
+        mListener = listener;
+        if (size == 0) {
+            listener.onSettled(new ArrayList<R>());
+        }
+    }
+
+    /**
+     * @param index index of the operation.
+     * @param result
+     * @return whether or not this is the first result of the operation.
+     */
+    public boolean settle(final int index, final R result) {
+        synchronized (mResults) {
+            if (mResults[index] != null) return false;
+            mResults[index] = result;
+        }
+        if (mRemaining.decrementAndGet() > 0) return true;
+
+        List<R> results = new ArrayList<>(mResults.length);
+        for (Object itemResult : mResults) {
+            @SuppressWarnings("unchecked")
+            R typedResult = (R) itemResult;
+            results.add(typedResult);
+        }
+        mListener.onSettled(results);
+        return true;
+    }
+}
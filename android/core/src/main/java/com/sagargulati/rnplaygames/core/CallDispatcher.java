@@ -0,0 +1,286 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the calls made to the games services, so that they stay under the service quota.
+ * Every API family has its own token bucket. Calls waiting for a token sit in one of two lanes, and
+ * interactive calls (UI, reads the player is waiting on) always go before background writes.
+ * Calls failing with a retryable error are retried after a jittered exponential backoff, unless they were
+ * dispatched with dispatchOnce: a call that is not idempotent may have been applied even though it failed.
+ */
+public class CallDispatcher {
+    public final static int FAMILY_LEADERBOARDS = 0;
+    public final static int FAMILY_ACHIEVEMENTS = 1;
+    public final static int FAMILY_PLAYERS = 2;
+    public final static int FAMILY_SNAPSHOTS = 3;
+    public final static int FAMILY_EVENTS = 4;
+    private final static int FAMILY_COUNT = 5;
+
+    public final static int LANE_INTERACTIVE = 0;
+    public final static int LANE_BACKGROUND = 1;
+    private final static int LANE_COUNT = 2;
+
+    private final static int DEFAULT_BURST = 20;
+    private final static double DEFAULT_CALLS_PER_SECOND = 5;
+    private final static int DEFAULT_MAX_ATTEMPTS = 3;
+    private final static long DEFAULT_BASE_DELAY_MS = 500;
+    private final static long DEFAULT_MAX_DELAY_MS = 8000;
+
+    private final ScheduledExecutorService mScheduler;
+    private final RetryPolicy mRetryPolicy;
+    private final Random mRandom = new Random();
+    private final Family[] mFamilies = new Family[FAMILY_COUNT];
+
+    private int mMaxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private long mBaseDelayMs = DEFAULT_BASE_DELAY_MS;
+    private long mMaxDelayMs = DEFAULT_MAX_DELAY_MS;
+    private volatile CallContext mCallContext;
+
+    public interface Call<T> {
+        void start(Callback<T> callback);
+    }
+
+    public interface RetryPolicy {
+        /**
+         * @return whether or not the call may succeed if it is made again.
+         */
+        boolean isRetryable(Exception e);
+    }
+
+    public interface CallContext {
+        /**
+         * @return the context of the current thread, e.g. the trace of the bridge call making the call, or null.
+         */
+        Object capture();
+
+        /**
+         * Runs the runnable on the current thread in a context returned by capture.
+         */
+        void run(Object context, Runnable runnable);
+    }
+
+    /**
+     * @param scheduler runs the delayed dispatches and retries.
+     * @param retryPolicy tells which failures are retried.
+     */
+    public CallDispatcher(final ScheduledExecutorService scheduler, final RetryPolicy retryPolicy) {
+        mScheduler = scheduler;
+        mRetryPolicy = retryPolicy;
+        for (int i = 0; i < FAMILY_COUNT; i++) {
+            mFamilies[i] = new Family(DEFAULT_BURST, DEFAULT_CALLS_PER_SECOND);
+        }
+    }
+
+    /**
+     * Sets the token bucket of an API family.
+     * @param family one of the FAMILY_ constants.
+     * @param burst number of calls that can be made at once after a quiet period.
+     * @param callsPerSecond sustained rate of calls.
+     */
+    public void setRateLimit(final int family, final int burst, final double callsPerSecond) {
+        Family state = mFamilies[family];
+        synchronized (state) {
+            state.refill(System.nanoTime());
+            state.burst = Math.max(1, burst);
+            state.tokensPerNano = Math.max(callsPerSecond, 0.001) / TimeUnit.SECONDS.toNanos(1);
+            state.tokens = Math.min(state.tokens, state.burst);
+        }
+        pump(family);
+    }
+
+    /**
+     * Sets the context captured by every dispatched call and restored whenever the call is started, as calls may
+     * be started later on the scheduler, or by the dispatch of another call.
+     * @param callContext null to start the calls in the context of whatever thread starts them.
+     */
+    public void setCallContext(final CallContext callContext) {
+        mCallContext = callContext;
+    }
+
+    /**
+     * @param maxAttempts number of times a call is made before its failure is reported, 1 to disable retries.
+     * @param baseDelayMs delay before the first retry, doubled for every retry.
+     * @param maxDelayMs cap of the delay.
+     */
+    public synchronized void setRetryBackoff(final int maxAttempts, final long baseDelayMs, final long maxDelayMs) {
+        mMaxAttempts = Math.max(1, maxAttempts);
+        mBaseDelayMs = Math.max(0, baseDelayMs);
+        mMaxDelayMs = Math.max(mBaseDelayMs, maxDelayMs);
+    }
+
+    /**
+     * Makes the call as soon as its family has a token and no call of a higher priority lane is waiting.
+     * @param family one of the FAMILY_ constants.
+     * @param lane LANE_INTERACTIVE or LANE_BACKGROUND.
+     * @param call
+     * @param callback settled with the result of the last attempt.
+     */
+    public <T> void dispatch(final int family, final int lane, final Call<T> call, final Callback<T> callback) {
+        enqueue(new PendingCall<>(family, lane, call, callback, true));
+    }
+
+    /**
+     * Makes the call like dispatch, but never retries it, e.g. for an increment that would be applied twice
+     * if it timed out after reaching the service.
+     * @param callback settled with the result of the only attempt.
+     */
+    public <T> void dispatchOnce(final int family, final int lane, final Call<T> call, final Callback<T> callback) {
+        enqueue(new PendingCall<>(family, lane, call, callback, false));
+    }
+
+    private void enqueue(final PendingCall<?> pending) {
+        Family state = mFamilies[pending.family];
+        synchronized (state) {
+            state.lanes[pending.lane].add(pending);
+        }
+        pump(pending.family);
+    }
+
+    /**
+     * Starts every waiting call the bucket has tokens for, and schedules the next pump if calls are left waiting.
+     */
+    private void pump(final int family) {
+        final Family state = mFamilies[family];
+        List<PendingCall<?>> ready = new ArrayList<>();
+        synchronized (state) {
+            state.refill(System.nanoTime());
+            for (int lane = 0; lane < LANE_COUNT; lane++) {
+                ArrayDeque<PendingCall<?>> queue = state.lanes[lane];
+                while (!queue.isEmpty() && state.tokens >= 1) {
+                    state.tokens -= 1;
+                    ready.add(queue.poll());
+                }
+            }
+
+            if (!state.isPumpScheduled && state.hasWaitingCalls()) {
+                state.isPumpScheduled = true;
+                long waitNanos = (long) Math.ceil((1 - state.tokens) / state.tokensPerNano);
+                mScheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (state) {
+                            state.isPumpScheduled = false;
+                        }
+                        pump(family);
+                    }
+                }, Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        for (PendingCall<?> pending : ready) {
+            pending.start();
+        }
+    }
+
+    private synchronized long getBackoffMs(final int attempt) {
+        long delayMs = mBaseDelayMs << Math.min(attempt - 1, 20);
+        // Full jitter, so that calls failing together are not retried together.
+        return (long) (mRandom.nextDouble() * Math.min(delayMs, mMaxDelayMs));
+    }
+
+    private synchronized int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    private static class Family {
+        final ArrayDeque<PendingCall<?>>[] lanes;
+        int burst;
+        double tokensPerNano;
+        double tokens;
+        long refilledAt = System.nanoTime();
+        boolean isPumpScheduled = false;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Family(final int burst, final double callsPerSecond) {
+            this.lanes = new ArrayDeque[LANE_COUNT];
+            for (int i = 0; i < LANE_COUNT; i++) {
+                this.lanes[i] = new ArrayDeque<>();
+            }
+            this.burst = burst;
+            this.tokensPerNano = callsPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = burst;
+        }
+
+        void refill(final long nowNanos) {
+            tokens = Math.min(burst, tokens + (nowNanos - refilledAt) * tokensPerNano);
+            refilledAt = nowNanos;
+        }
+
+        boolean hasWaitingCalls() {
+            for (ArrayDeque<PendingCall<?>> lane : lanes) {
+                if (!lane.isEmpty()) return true;
+            }
+            return false;
+        }
+    }
+
+    private class PendingCall<T> implements Callback<T> {
+        final int family;
+        final int lane;
+        final Call<T> call;
+        final Callback<T> callback;
+        final Object context;
+        final boolean isRetryable;
+        int attempt = 0;
+
+        PendingCall(final int family, final int lane, final Call<T> call, final Callback<T> callback,
+                    final boolean isRetryable) {
+            this.family = family;
+            this.lane = lane;
+            this.call = call;
+            this.callback = callback;
+            this.isRetryable = isRetryable;
+            CallContext callContext = mCallContext;
+            this.context = callContext == null ? null : callContext.capture();
+        }
+
+        void start() {
+            attempt++;
+            CallContext callContext = mCallContext;
+            if (context == null || callContext == null) {
+                startAttempt();
+                return;
+            }
+            callContext.run(context, new Runnable() {
+                @Override
+                public void run() {
+                    startAttempt();
+                }
+            });
+        }
+
+        private void startAttempt() {
+            try {
+                call.start(this);
+            } catch (Exception e) {
+                onFailure(e);
+            }
+        }
+
+        @Override
+        public void onSuccess(T result) {
+            callback.onSuccess(result);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            if (!isRetryable || attempt >= getMaxAttempts() || !mRetryPolicy.isRetryable(e)) {
+                callback.onFailure(e);
+                return;
+            }
+
+            mScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    enqueue(PendingCall.this);
+                }
+            }, getBackoffMs(attempt), TimeUnit.MILLISECONDS);
+        }
+    }
+}
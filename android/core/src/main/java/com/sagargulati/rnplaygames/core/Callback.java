@@ -0,0 +1,11 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Receives the result of an asynchronous backend call. Exactly one of the methods is called, once.
+ * @param <T> the type of the result.
+ */
+public interface Callback<T> {
+    void onSuccess(T result);
+
+    void onFailure(Exception e);
+}
@@ -0,0 +1,125 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Backends sending every call of another backend through a CallDispatcher.
+ * Writes go in the background lane; the current player is read in the interactive lane.
+ */
+public class DispatchingBackends {
+    private DispatchingBackends() {
+    }
+
+    public static class Leaderboards implements LeaderboardsBackend {
+        private final LeaderboardsBackend mBackend;
+        private final CallDispatcher mDispatcher;
+
+        public Leaderboards(final LeaderboardsBackend backend, final CallDispatcher dispatcher) {
+            mBackend = backend;
+            mDispatcher = dispatcher;
+        }
+
+        @Override
+        public void submitScoreImmediate(final String boardId, final long score, final String scoreTag,
+                                         final Callback<NewBests> callback) {
+            mDispatcher.dispatch(CallDispatcher.FAMILY_LEADERBOARDS, CallDispatcher.LANE_BACKGROUND,
+                    new CallDispatcher.Call<NewBests>() {
+                        @Override
+                        public void start(Callback<NewBests> attemptCallback) {
+                            mBackend.submitScoreImmediate(boardId, score, scoreTag, attemptCallback);
+                        }
+                    }, callback);
+        }
+    }
+
+    public static class Achievements implements AchievementsBackend {
+        private final AchievementsBackend mBackend;
+        private final CallDispatcher mDispatcher;
+
+        public Achievements(final AchievementsBackend backend, final CallDispatcher dispatcher) {
+            mBackend = backend;
+            mDispatcher = dispatcher;
+        }
+
+        /**
+         * Never retried: a retry after a failure the service already applied would add the steps twice.
+         */
+        @Override
+        public void incrementImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            mDispatcher.dispatchOnce(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                    new CallDispatcher.Call<Boolean>() {
+                @Override
+                public void start(Callback<Boolean> attemptCallback) {
+                    mBackend.incrementImmediate(id, numSteps, attemptCallback);
+                }
+            }, callback);
+        }
+
+        @Override
+        public void setStepsImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            dispatch(new CallDispatcher.Call<Boolean>() {
+                @Override
+                public void start(Callback<Boolean> attemptCallback) {
+                    mBackend.setStepsImmediate(id, numSteps, attemptCallback);
+                }
+            }, callback);
+        }
+
+        @Override
+        public void unlockImmediate(final String id, final Callback<Void> callback) {
+            dispatch(new CallDispatcher.Call<Void>() {
+                @Override
+                public void start(Callback<Void> attemptCallback) {
+                    mBackend.unlockImmediate(id, attemptCallback);
+                }
+            }, callback);
+        }
+
+        @Override
+        public void revealImmediate(final String id, final Callback<Void> callback) {
+            dispatch(new CallDispatcher.Call<Void>() {
+                @Override
+                public void start(Callback<Void> attemptCallback) {
+                    mBackend.revealImmediate(id, attemptCallback);
+                }
+            }, callback);
+        }
+
+        private <T> void dispatch(final CallDispatcher.Call<T> call, final Callback<T> callback) {
+            mDispatcher.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND, call, callback);
+        }
+    }
+
+    public static class Players implements PlayersBackend {
+        private final PlayersBackend mBackend;
+        private final CallDispatcher mDispatcher;
+
+        public Players(final PlayersBackend backend, final CallDispatcher dispatcher) {
+            mBackend = backend;
+            mDispatcher = dispatcher;
+        }
+
+        @Override
+        public void getCurrentPlayer(final Callback<PlayerInfo> callback) {
+            mDispatcher.dispatch(CallDispatcher.FAMILY_PLAYERS, CallDispatcher.LANE_INTERACTIVE,
+                    new CallDispatcher.Call<PlayerInfo>() {
+                        @Override
+                        public void start(Callback<PlayerInfo> attemptCallback) {
+                            mBackend.getCurrentPlayer(attemptCallback);
+                        }
+                    }, callback);
+        }
+
+        /**
+         * Profiles of other players go in the background lane, so a long list of them never delays a UI call.
+         */
+        @Override
+        public void loadPlayer(final String playerId, final boolean forceReload, final Callback<PlayerInfo> callback) {
+            mDispatcher.dispatch(CallDispatcher.FAMILY_PLAYERS, CallDispatcher.LANE_BACKGROUND,
+                    new CallDispatcher.Call<PlayerInfo>() {
+                        @Override
+                        public void start(Callback<PlayerInfo> attemptCallback) {
+                            mBackend.loadPlayer(playerId, forceReload, attemptCallback);
+                        }
+                    }, callback);
+        }
+    }
+}
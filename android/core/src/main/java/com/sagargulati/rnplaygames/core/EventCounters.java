@@ -0,0 +1,110 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters of the game events, one per event id, incremented without allocating or locking.
+ * Every event id is given a slot once, up front, and increments only add to the slot.
+ * Counts are taken out of the slots when they are flushed, and the flushed counts are kept until the
+ * events are loaded again, so that a loaded count can be completed with everything recorded since.
+ */
+public class EventCounters {
+    private final String[] mIds;
+    private final AtomicLongArray mPending;
+    private final AtomicLongArray mFlushed;
+    private final Map<String, Integer> mSlots = new HashMap<>();
+    private volatile int mSize = 0;
+
+    /**
+     * @param capacity maximum number of event ids.
+     */
+    public EventCounters(final int capacity) {
+        mIds = new String[capacity];
+        mPending = new AtomicLongArray(capacity);
+        mFlushed = new AtomicLongArray(capacity);
+    }
+
+    /**
+     * @return the slot of the event id, assigned on the first call.
+     * @throws IllegalStateException if every slot is taken.
+     */
+    public synchronized int register(final String id) {
+        Integer slot = mSlots.get(id);
+        if (slot != null) return slot;
+        if (mSize == mIds.length) {
+            throw new IllegalStateException("Cannot register more than " + mIds.length + " events.");
+        }
+        mIds[mSize] = id;
+        mSlots.put(id, mSize);
+        // Publishes the id to the threads reading mSize.
+        return mSize++;
+    }
+
+    /**
+     * @return the slot of the event id, or -1 if it is not registered.
+     */
+    public synchronized int getSlot(final String id) {
+        Integer slot = mSlots.get(id);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * @return the number of registered event ids, i.e. slots 0 to size() - 1 are in use.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    public String getId(final int slot) {
+        return slot < mSize ? mIds[slot] : null;
+    }
+
+    /**
+     * @return false if the slot is not registered.
+     */
+    public boolean increment(final int slot, final long amount) {
+        if (slot < 0 || slot >= mSize) return false;
+        mPending.addAndGet(slot, amount);
+        return true;
+    }
+
+    /**
+     * Takes the pending count of a slot out, to be flushed.
+     * @return the count recorded since the last take.
+     */
+    public long take(final int slot) {
+        long count = mPending.getAndSet(slot, 0);
+        if (count != 0) {
+            mFlushed.addAndGet(slot, count);
+        }
+        return count;
+    }
+
+    /**
+     * @return the count recorded since resetFlushed was last called, flushed or not.
+     */
+    public long getUnloaded(final int slot) {
+        return mPending.get(slot) + mFlushed.get(slot);
+    }
+
+    /**
+     * Drops every count, pending or flushed, e.g. when the player changes.
+     */
+    public void clear() {
+        for (int slot = 0; slot < mSize; slot++) {
+            mPending.set(slot, 0);
+            mFlushed.set(slot, 0);
+        }
+    }
+
+    /**
+     * Forgets the flushed counts, once the events are loaded with them included.
+     */
+    public void resetFlushed() {
+        for (int slot = 0; slot < mSize; slot++) {
+            mFlushed.set(slot, 0);
+        }
+    }
+}
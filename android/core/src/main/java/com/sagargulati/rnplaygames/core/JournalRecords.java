@@ -0,0 +1,285 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32;
+
+/**
+ * The records of a write journal and the pending writes they add up to, without any file handling.
+ * Every record is stored as [int length][payload][int crc32]. A write is acknowledged by an ack record carrying
+ * its sequence number, and an increment is replaced by the absolute step count it was converted to by a convert
+ * record. Once enough of these have piled up, the journal is rewritten with only the pending writes.
+ * Not thread safe.
+ */
+public class JournalRecords {
+    public static final byte OP_SUBMIT_SCORE = 1;
+    public static final byte OP_UNLOCK = 2;
+    public static final byte OP_INCREMENT = 3;
+    public static final byte OP_SET_STEPS = 4;
+    // Replaces a journaled increment with an absolute step count.
+    public static final byte OP_CONVERT = 0x7E;
+    public static final byte OP_ACK = 0x7F;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int COMPACTION_THRESHOLD = 64;
+
+    private final LinkedHashMap<Long, Entry> mPending = new LinkedHashMap<>();
+    private long mNextSequence = 0;
+    // Ack and convert records, that a compaction would remove.
+    private int mObsoleteRecords = 0;
+
+    /**
+     * Applies the records of a journal, up to the end of the stream or the first torn or corrupted record.
+     * @param in
+     * @return the length of the valid records, after which new records must be appended.
+     */
+    public long read(final InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long validLength = 0;
+        try {
+            while (true) {
+                int length = data.readInt();
+                if (length <= 0 || length > MAX_RECORD_LENGTH) break;
+                byte[] payload = new byte[length];
+                data.readFully(payload);
+                if (data.readInt() != checksum(payload)) break;
+
+                apply(Entry.decode(payload));
+                validLength += 8 + length;
+            }
+        } catch (EOFException e) {
+            // Torn write at the tail of the journal.
+        }
+        return validLength;
+    }
+
+    /**
+     * Appends a record to a journal.
+     */
+    public static void write(final DataOutputStream out, final Entry record) throws IOException {
+        byte[] payload = record.encode();
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt(checksum(payload));
+    }
+
+    /**
+     * Applies a record read from the journal, or just appended to it.
+     * @param record
+     */
+    public void apply(final Entry record) {
+        if (record.op == OP_ACK) {
+            mPending.remove(record.sequence);
+            mObsoleteRecords++;
+        } else if (record.op == OP_CONVERT) {
+            Entry converted = mPending.get(record.sequence);
+            if (converted != null) {
+                converted.convert((int) record.value);
+            }
+            mObsoleteRecords++;
+        } else {
+            mPending.put(record.sequence, record);
+        }
+        mNextSequence = Math.max(mNextSequence, record.sequence + 1);
+    }
+
+    /**
+     * @return the sequence number of the next write.
+     */
+    public long getNextSequence() {
+        return mNextSequence;
+    }
+
+    /**
+     * @return the writes that have not been acknowledged yet, in order.
+     */
+    public Collection<Entry> getPending() {
+        return Collections.unmodifiableCollection(mPending.values());
+    }
+
+    public boolean isPending(final long sequence) {
+        return mPending.containsKey(sequence);
+    }
+
+    public boolean isEmpty() {
+        return mPending.isEmpty();
+    }
+
+    /**
+     * @param accountId the current account.
+     * @param maxOtherAccountEntries number of writes of other accounts that may be kept.
+     * @return whether or not enough records would be removed by rewriting the journal.
+     */
+    public boolean shouldCompact(final String accountId, final int maxOtherAccountEntries) {
+        return (mObsoleteRecords >= COMPACTION_THRESHOLD && mObsoleteRecords > mPending.size())
+                || countOtherAccountEntries(accountId) > maxOtherAccountEntries;
+    }
+
+    /**
+     * Drops the oldest writes of accounts other than the current one, so that at most maxOtherAccountEntries are
+     * kept. Writes made before any account signed in belong to the current account.
+     * @return the number of dropped writes.
+     */
+    public int dropOldOtherAccountEntries(final String accountId, final int maxOtherAccountEntries) {
+        int excess = countOtherAccountEntries(accountId) - maxOtherAccountEntries;
+        int dropped = 0;
+        Iterator<Entry> entries = mPending.values().iterator();
+        while (dropped < excess && entries.hasNext()) {
+            if (!entries.next().isFor(accountId)) {
+                entries.remove();
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Writes the pending writes, i.e. the content of the compacted journal.
+     */
+    public void writePending(final DataOutputStream out) throws IOException {
+        for (Entry entry : mPending.values()) {
+            write(out, entry);
+        }
+    }
+
+    /**
+     * Called once the journal has been replaced by the one written by writePending.
+     */
+    public void onCompacted() {
+        mObsoleteRecords = 0;
+    }
+
+    private int countOtherAccountEntries(final String accountId) {
+        int count = 0;
+        for (Entry entry : mPending.values()) {
+            if (!entry.isFor(accountId)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the record acknowledging a write.
+     */
+    public static Entry ack(final Entry entry) {
+        return new Entry(entry.sequence, OP_ACK, null, null, 0, null);
+    }
+
+    /**
+     * @return the record replacing an increment with the absolute step count it leads to.
+     */
+    public static Entry conversion(final Entry entry, final int absoluteSteps) {
+        return new Entry(entry.sequence, OP_CONVERT, null, null, absoluteSteps, null);
+    }
+
+    private static int checksum(final byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * A journaled write, or an ack or convert record.
+     */
+    public static class Entry {
+        public final long sequence;
+        // Null for the writes made before any account signed in on the device.
+        public final String accountId;
+        public final String id;
+        public final String scoreTag;
+        private byte op;
+        private long value;
+
+        /**
+         * @param sequence
+         * @param op one of the OP_ constants.
+         * @param accountId
+         * @param id id of the leaderboard or achievement.
+         * @param value the score or the number of steps.
+         * @param scoreTag nullable score tag.
+         */
+        public Entry(final long sequence, final byte op, final String accountId, final String id, final long value,
+                     final String scoreTag) {
+            this.sequence = sequence;
+            this.op = op;
+            this.accountId = accountId;
+            this.id = id;
+            this.value = value;
+            this.scoreTag = scoreTag;
+        }
+
+        public byte getOp() {
+            return op;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        /**
+         * @return whether or not the write is replayed for the account. Writes made before any account signed in
+         * belong to the first account replaying them.
+         */
+        public boolean isFor(final String signedInAccountId) {
+            return accountId == null || accountId.equals(signedInAccountId);
+        }
+
+        /**
+         * Turns an increment into the set steps call it was converted to.
+         */
+        void convert(final int absoluteSteps) {
+            op = OP_SET_STEPS;
+            value = absoluteSteps;
+        }
+
+        byte[] encode() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                out.writeByte(op);
+                out.writeLong(sequence);
+                if (op == OP_CONVERT) {
+                    out.writeLong(value);
+                } else if (op != OP_ACK) {
+                    out.writeBoolean(accountId != null);
+                    if (accountId != null) {
+                        out.writeUTF(accountId);
+                    }
+                    out.writeUTF(id);
+                    out.writeLong(value);
+                    out.writeBoolean(scoreTag != null);
+                    if (scoreTag != null) {
+                        out.writeUTF(scoreTag);
+                    }
+                }
+            } catch (IOException e) {
+                // ByteArrayOutputStream does not throw.
+            }
+            return bytes.toByteArray();
+        }
+
+        static Entry decode(final byte[] payload) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte op = in.readByte();
+            long sequence = in.readLong();
+            if (op == OP_ACK || op == OP_CONVERT) {
+                return new Entry(sequence, op, null, null, op == OP_CONVERT ? in.readLong() : 0, null);
+            }
+            String accountId = in.readBoolean() ? in.readUTF() : null;
+            String id = in.readUTF();
+            long value = in.readLong();
+            String scoreTag = in.readBoolean() ? in.readUTF() : null;
+            return new Entry(sequence, op, accountId, id, value, scoreTag);
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * The part of LeaderboardsClient used by the library.
+ */
+public interface LeaderboardsBackend {
+    /**
+     * Submits a score right away.
+     * @param boardId id of the leaderboard
+     * @param score
+     * @param scoreTag nullable score tag
+     * @param callback called with whether or not the score is a new best, for every time span.
+     */
+    void submitScoreImmediate(String boardId, long score, String scoreTag, Callback<NewBests> callback);
+}
@@ -0,0 +1,40 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Whether or not a submitted score is a new best of the player, for each time span of the leaderboard.
+ */
+public class NewBests {
+    public static final NewBests NONE = new NewBests(false, false, false);
+    public static final NewBests ALL = new NewBests(true, true, true);
+
+    public final boolean daily;
+    public final boolean weekly;
+    public final boolean allTime;
+
+    public NewBests(final boolean daily, final boolean weekly, final boolean allTime) {
+        this.daily = daily;
+        this.weekly = weekly;
+        this.allTime = allTime;
+    }
+
+    /**
+     * @param timeSpan PersonalBestCache.TIME_SPAN_DAILY, TIME_SPAN_WEEKLY or TIME_SPAN_ALL_TIME
+     */
+    public boolean get(final int timeSpan) {
+        switch (timeSpan) {
+            case PersonalBestCache.TIME_SPAN_DAILY:
+                return daily;
+            case PersonalBestCache.TIME_SPAN_WEEKLY:
+                return weekly;
+            default:
+                return allTime;
+        }
+    }
+
+    /**
+     * @return whether or not the score is a new best for at least one time span.
+     */
+    public boolean isAny() {
+        return daily || weekly || allTime;
+    }
+}
@@ -0,0 +1,162 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Local copy of the current player's best score on each leaderboard, for the daily, weekly and all time spans.
+ * Used to tell, without a call to the games service, that a score cannot be a new best for any time span.
+ * A time span is only trusted once its best has been loaded (or learned from a submission) in the current
+ * period: daily leaderboards reset at midnight Pacific time, and weekly leaderboards at midnight Pacific time
+ * between Saturday and Sunday. After a reset, the player is known to have no score for the new period.
+ */
+public class PersonalBestCache {
+    // Same values as LeaderboardVariant.TIME_SPAN_*
+    public static final int TIME_SPAN_DAILY = 0;
+    public static final int TIME_SPAN_WEEKLY = 1;
+    public static final int TIME_SPAN_ALL_TIME = 2;
+    private static final int TIME_SPAN_COUNT = 3;
+
+    private static final TimeZone RESET_TIME_ZONE = TimeZone.getTimeZone("America/Los_Angeles");
+
+    private final Map<String, BoardBests> mBoards = new HashMap<>();
+
+    /**
+     * Sets the score order of a leaderboard. Boards default to larger-is-better.
+     * @param boardId id of the leaderboard
+     * @param smallerIsBetter whether lower scores rank higher on this board
+     */
+    public synchronized void setSmallerIsBetter(final String boardId, final boolean smallerIsBetter) {
+        getBoard(boardId).smallerIsBetter = smallerIsBetter;
+    }
+
+    /**
+     * Records the best of the player loaded from the games service.
+     * A better score already known for the same period is kept, as it was submitted after the load started.
+     * @param boardId id of the leaderboard
+     * @param timeSpan TIME_SPAN_DAILY, TIME_SPAN_WEEKLY or TIME_SPAN_ALL_TIME
+     * @param score the best of the player, or null if the player has no score for the time span.
+     * @param nowMs current time, in milliseconds since the epoch.
+     */
+    public synchronized void putBest(final String boardId, final int timeSpan, final Long score, final long nowMs) {
+        BoardBests board = getBoard(boardId);
+        board.expire(nowMs);
+        if (board.isKnown[timeSpan] && board.scores[timeSpan] != null
+                && (score == null || board.isBetter(board.scores[timeSpan], score))) {
+            return;
+        }
+        board.set(timeSpan, score, nowMs);
+    }
+
+    /**
+     * @return whether or not the best of every time span is known for the current periods.
+     */
+    public synchronized boolean isLoaded(final String boardId, final long nowMs) {
+        BoardBests board = mBoards.get(boardId);
+        if (board == null) return false;
+        board.expire(nowMs);
+        for (int timeSpan = 0; timeSpan < TIME_SPAN_COUNT; timeSpan++) {
+            if (!board.isKnown[timeSpan]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the time spans the score may be a new best for. A time span whose best is not known counts as one
+     * the score may improve, so a score can only be skipped when isAny() is false.
+     */
+    public synchronized NewBests evaluate(final String boardId, final long score, final long nowMs) {
+        BoardBests board = mBoards.get(boardId);
+        if (board == null) return NewBests.ALL;
+        board.expire(nowMs);
+        return new NewBests(board.mayImprove(TIME_SPAN_DAILY, score), board.mayImprove(TIME_SPAN_WEEKLY, score),
+                board.mayImprove(TIME_SPAN_ALL_TIME, score));
+    }
+
+    /**
+     * Records the outcome of a submitted score.
+     * A time span the games service did not report as a new best, although the cached best says it should have
+     * been, is out of date (e.g. the player scored on another device) and is forgotten until loaded again.
+     * @param boardId id of the leaderboard
+     * @param score the submitted score.
+     * @param newBests as reported by the games service.
+     * @param nowMs current time, in milliseconds since the epoch.
+     */
+    public synchronized void recordSubmission(final String boardId, final long score, final NewBests newBests,
+                                              final long nowMs) {
+        BoardBests board = getBoard(boardId);
+        board.expire(nowMs);
+        for (int timeSpan = 0; timeSpan < TIME_SPAN_COUNT; timeSpan++) {
+            if (newBests.get(timeSpan)) {
+                board.set(timeSpan, score, nowMs);
+            } else if (board.isKnown[timeSpan] && board.mayImprove(timeSpan, score)) {
+                board.isKnown[timeSpan] = false;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mBoards.clear();
+    }
+
+    /**
+     * @return the time the current period of the time span started at, in milliseconds since the epoch.
+     */
+    public static long getPeriodStart(final int timeSpan, final long nowMs) {
+        if (timeSpan == TIME_SPAN_ALL_TIME) return 0;
+
+        Calendar calendar = Calendar.getInstance(RESET_TIME_ZONE);
+        calendar.setTimeInMillis(nowMs);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (timeSpan == TIME_SPAN_WEEKLY) {
+            calendar.add(Calendar.DAY_OF_MONTH, -(calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY));
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    private BoardBests getBoard(final String boardId) {
+        BoardBests board = mBoards.get(boardId);
+        if (board == null) {
+            board = new BoardBests();
+            mBoards.put(boardId, board);
+        }
+        return board;
+    }
+
+    private static class BoardBests {
+        final boolean[] isKnown = new boolean[TIME_SPAN_COUNT];
+        final Long[] scores = new Long[TIME_SPAN_COUNT];
+        final long[] periodStarts = new long[TIME_SPAN_COUNT];
+        boolean smallerIsBetter = false;
+
+        void set(final int timeSpan, final Long score, final long nowMs) {
+            isKnown[timeSpan] = true;
+            scores[timeSpan] = score;
+            periodStarts[timeSpan] = getPeriodStart(timeSpan, nowMs);
+        }
+
+        /**
+         * Moves the known bests of the periods that have ended to the new periods, where the player has no score.
+         */
+        void expire(final long nowMs) {
+            for (int timeSpan = 0; timeSpan < TIME_SPAN_COUNT; timeSpan++) {
+                if (isKnown[timeSpan] && periodStarts[timeSpan] != getPeriodStart(timeSpan, nowMs)) {
+                    set(timeSpan, null, nowMs);
+                }
+            }
+        }
+
+        boolean mayImprove(final int timeSpan, final long score) {
+            return !isKnown[timeSpan] || scores[timeSpan] == null || isBetter(score, scores[timeSpan]);
+        }
+
+        boolean isBetter(final long score, final long current) {
+            return smallerIsBetter ? score < current : score > current;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Plain copy of the Player fields returned to JS.
+ */
+public class PlayerInfo {
+    public final String playerId;
+    public final String displayName;
+    public final String title;
+    public final long lastPlayedWithTimestamp;
+    // Image URIs as returned by the games services, only readable through ImageManager. May be null.
+    public final String iconImageUri;
+    public final String hiResImageUri;
+
+    public PlayerInfo(final String playerId, final String displayName, final String title,
+                      final long lastPlayedWithTimestamp) {
+        this(playerId, displayName, title, lastPlayedWithTimestamp, null, null);
+    }
+
+    public PlayerInfo(final String playerId, final String displayName, final String title,
+                      final long lastPlayedWithTimestamp, final String iconImageUri, final String hiResImageUri) {
+        this.playerId = playerId;
+        this.displayName = displayName;
+        this.title = title;
+        this.lastPlayedWithTimestamp = lastPlayedWithTimestamp;
+        this.iconImageUri = iconImageUri;
+        this.hiResImageUri = hiResImageUri;
+    }
+}
@@ -0,0 +1,192 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Least recently used cache of the profiles of other players, loaded by id.
+ * A lookup for a profile that is already being loaded waits for that load instead of starting another one,
+ * so a list asking for the same players again while it scrolls only sends one call per player.
+ */
+public class PlayerProfileCache {
+    private int mCapacity;
+    private long mTtlMs;
+
+    private final LinkedHashMap<String, CachedProfile> mProfiles =
+            new LinkedHashMap<String, CachedProfile>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, CachedProfile> eldest) {
+            return size() > mCapacity;
+        }
+    };
+    private final Map<String, List<Callback<PlayerInfo>>> mInFlight = new HashMap<>();
+    private int mGeneration = 0;
+
+    /**
+     * @param capacity number of profiles kept.
+     * @param ttlMs how long a profile is used without being loaded again.
+     */
+    public PlayerProfileCache(final int capacity, final long ttlMs) {
+        mCapacity = capacity;
+        mTtlMs = ttlMs;
+    }
+
+    /**
+     * @param capacity number of profiles kept. The least recently used profiles are dropped right away.
+     */
+    public synchronized void setCapacity(final int capacity) {
+        mCapacity = Math.max(1, capacity);
+        while (mProfiles.size() > mCapacity) {
+            mProfiles.remove(mProfiles.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * @return the cached profile, even if it is expired, or null if it is not cached.
+     */
+    public synchronized PlayerInfo peek(final String playerId) {
+        CachedProfile entry = mProfiles.get(playerId);
+        return entry == null ? null : entry.profile;
+    }
+
+    /**
+     * Retrieves the profiles of the players, from the cache when possible.
+     * The callback always succeeds, with every requested id mapped to its profile, or to null if it could not
+     * be loaded. Ids are kept in the order they were given in.
+     * @param backend used to load the profiles that are not cached.
+     * @param playerIds ids of the players, duplicates are only loaded once.
+     * @param forceReload whether or not to load the profiles again even if they are cached.
+     * @param nowMs current time, in milliseconds.
+     * @param callback called once every profile is known, on the thread completing the last load.
+     */
+    public void loadAll(final PlayersBackend backend, final List<String> playerIds, final boolean forceReload,
+                        final long nowMs, final Callback<Map<String, PlayerInfo>> callback) {
+        final Map<String, PlayerInfo> profiles = new LinkedHashMap<>();
+        final List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String playerId : playerIds) {
+                if (profiles.containsKey(playerId)) continue;
+                CachedProfile entry = forceReload ? null : mProfiles.get(playerId);
+                if (entry != null && nowMs - entry.loadedAtMs < mTtlMs) {
+                    profiles.put(playerId, entry.profile);
+                } else {
+                    profiles.put(playerId, null);
+                    missing.add(playerId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            callback.onSuccess(profiles);
+            return;
+        }
+
+        final int[] remaining = { missing.size() };
+        for (final String playerId : missing) {
+            load(backend, playerId, forceReload, nowMs, new Callback<PlayerInfo>() {
+                @Override
+                public void onSuccess(PlayerInfo profile) {
+                    complete(profile);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    complete(null);
+                }
+
+                private void complete(final PlayerInfo profile) {
+                    synchronized (profiles) {
+                        profiles.put(playerId, profile);
+                        if (--remaining[0] > 0) return;
+                    }
+                    callback.onSuccess(profiles);
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads the profile of one player, or waits for the load already in flight.
+     * A failed load is not cached, and an expired profile is only served by peek.
+     */
+    public void load(final PlayersBackend backend, final String playerId, final boolean forceReload,
+                     final long nowMs, final Callback<PlayerInfo> callback) {
+        final int generation;
+        final List<Callback<PlayerInfo>> waiters;
+        PlayerInfo cached = null;
+        synchronized (this) {
+            CachedProfile entry = forceReload ? null : mProfiles.get(playerId);
+            if (entry != null && nowMs - entry.loadedAtMs < mTtlMs) {
+                cached = entry.profile;
+                waiters = null;
+                generation = 0;
+            } else {
+                List<Callback<PlayerInfo>> inFlight = mInFlight.get(playerId);
+                if (inFlight != null) {
+                    inFlight.add(callback);
+                    return;
+                }
+                waiters = new ArrayList<>();
+                waiters.add(callback);
+                mInFlight.put(playerId, waiters);
+                generation = mGeneration;
+            }
+        }
+        if (cached != null) {
+            callback.onSuccess(cached);
+            return;
+        }
+
+        backend.loadPlayer(playerId, forceReload, new Callback<PlayerInfo>() {
+            @Override
+            public void onSuccess(PlayerInfo profile) {
+                complete(profile);
+                for (Callback<PlayerInfo> waiter : waiters) {
+                    waiter.onSuccess(profile);
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                complete(null);
+                for (Callback<PlayerInfo> waiter : waiters) {
+                    waiter.onFailure(e);
+                }
+            }
+
+            private void complete(final PlayerInfo profile) {
+                synchronized (PlayerProfileCache.this) {
+                    // No caller can join the waiters once they are removed, so they are called outside the lock.
+                    if (mInFlight.get(playerId) == waiters) {
+                        mInFlight.remove(playerId);
+                    }
+                    // Loads started before clear() are delivered to their callers, but not cached.
+                    if (profile != null && generation == mGeneration) {
+                        mProfiles.put(playerId, new CachedProfile(profile, nowMs));
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Drops every profile, e.g. when the player changes. Loads in flight still complete their callbacks.
+     */
+    public synchronized void clear() {
+        mProfiles.clear();
+        mInFlight.clear();
+        mGeneration++;
+    }
+
+    private static class CachedProfile {
+        final PlayerInfo profile;
+        final long loadedAtMs;
+
+        CachedProfile(final PlayerInfo profile, final long loadedAtMs) {
+            this.profile = profile;
+            this.loadedAtMs = loadedAtMs;
+        }
+    }
+}
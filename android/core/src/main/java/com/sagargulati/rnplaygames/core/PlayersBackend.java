@@ -0,0 +1,10 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * The part of PlayersClient used by the library.
+ */
+public interface PlayersBackend {
+    void getCurrentPlayer(Callback<PlayerInfo> callback);
+
+    void loadPlayer(String playerId, boolean forceReload, Callback<PlayerInfo> callback);
+}
@@ -0,0 +1,12 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * The map a result is written to before it is handed to JS (a WritableMap on Android).
+ */
+public interface ResultMap {
+    void putBoolean(String key, boolean value);
+
+    void putDouble(String key, double value);
+
+    void putString(String key, String value);
+}
@@ -0,0 +1,66 @@
+package com.sagargulati.rnplaygames.core;
+
+/**
+ * Builds the objects the promises are resolved with.
+ */
+public class Results {
+    private Results() {
+    }
+
+    /**
+     * { isNewBest, isNewDailyBest, isNewWeeklyBest, isNewAllTimeBest }, isNewBest being the all time one.
+     */
+    public static <M extends ResultMap> M writeScoreResult(final M map, final NewBests newBests) {
+        map.putBoolean("isNewBest", newBests.allTime);
+        map.putBoolean("isNewDailyBest", newBests.daily);
+        map.putBoolean("isNewWeeklyBest", newBests.weekly);
+        map.putBoolean("isNewAllTimeBest", newBests.allTime);
+        return map;
+    }
+
+    /**
+     * { isNewBest: false, ..., isQueued: true }, for a score saved in the write journal.
+     */
+    public static <M extends ResultMap> M writeQueuedScoreResult(final M map) {
+        writeScoreResult(map, NewBests.NONE);
+        map.putBoolean("isQueued", true);
+        return map;
+    }
+
+    /**
+     * { isNewBest: false, ..., isSkipped: true }, for a score that cannot be a new best for any time span.
+     */
+    public static <M extends ResultMap> M writeSkippedScoreResult(final M map) {
+        writeScoreResult(map, NewBests.NONE);
+        map.putBoolean("isSkipped", true);
+        return map;
+    }
+
+    /**
+     * { isUnlocked }
+     */
+    public static <M extends ResultMap> M writeStepsResult(final M map, final boolean isUnlocked) {
+        map.putBoolean("isUnlocked", isUnlocked);
+        return map;
+    }
+
+    /**
+     * { isUnlocked: false, isQueued: true }, for steps saved in the write journal.
+     */
+    public static <M extends ResultMap> M writeQueuedStepsResult(final M map) {
+        map.putBoolean("isUnlocked", false);
+        map.putBoolean("isQueued", true);
+        return map;
+    }
+
+    /**
+     * { displayName, playerId, lastTimePlayed, title }
+     */
+    public static <M extends ResultMap> M writePlayerInfo(final M map, final PlayerInfo player) {
+        map.putString("displayName", player.displayName);
+        map.putString("playerId", player.playerId);
+        map.putDouble("lastTimePlayed", player.lastPlayedWithTimestamp);
+        map.putString("title", player.title);
+        return map;
+    }
+}
@@ -0,0 +1,140 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces score submissions so that only the best pending score per leaderboard
+ * (and per score tag) is sent when the queue is flushed.
+ * Every caller folded into a submission is kept so that it can be settled from the flushed result.
+ * @param <T> the handle used to settle a caller, e.g. its promise.
+ */
+public class ScoreSubmissionQueue<T> {
+    private static final String NO_SCORE_TAG = "";
+
+    private final ConcurrentHashMap<String, BoardQueue<T>> mBoards = new ConcurrentHashMap<>();
+
+    /**
+     * Sets the score order of a leaderboard. Boards default to larger-is-better.
+     * @param boardId id of the leaderboard
+     * @param smallerIsBetter whether lower scores rank higher on this board
+     */
+    public void setSmallerIsBetter(final String boardId, final boolean smallerIsBetter) {
+        BoardQueue<T> board = getBoard(boardId);
+        synchronized (board) {
+            board.smallerIsBetter = smallerIsBetter;
+        }
+    }
+
+    /**
+     * Adds a score to the queue. If a better score is already pending for the same board and tag,
+     * the new score is only recorded as a waiter of the pending submission.
+     * @param boardId id of the leaderboard
+     * @param score
+     * @param scoreTag nullable score tag
+     * @param handle settled once the pending submission is flushed
+     */
+    public void enqueue(final String boardId, final long score, final String scoreTag, final T handle) {
+        final String tagKey = scoreTag == null ? NO_SCORE_TAG : scoreTag;
+        BoardQueue<T> board = getBoard(boardId);
+
+        synchronized (board) {
+            PendingScore<T> pending = board.pending.get(tagKey);
+            if (pending == null) {
+                pending = new PendingScore<>(boardId, scoreTag, score);
+                board.pending.put(tagKey, pending);
+            } else if (board.isBetter(score, pending.bestScore)) {
+                pending.bestScore = score;
+            }
+            pending.waiters.add(new Waiter<>(score, handle));
+        }
+    }
+
+    /**
+     * Removes every pending submission from the queue.
+     * @return the pending submissions, one per board and score tag.
+     */
+    public List<PendingScore<T>> drain() {
+        List<PendingScore<T>> drained = new ArrayList<>();
+        for (BoardQueue<T> board : mBoards.values()) {
+            synchronized (board) {
+                if (board.pending.isEmpty()) continue;
+                drained.addAll(board.pending.values());
+                board.pending.clear();
+            }
+        }
+        return drained;
+    }
+
+    public boolean isEmpty() {
+        for (BoardQueue<T> board : mBoards.values()) {
+            synchronized (board) {
+                if (!board.pending.isEmpty()) return false;
+            }
+        }
+        return true;
+    }
+
+    private BoardQueue<T> getBoard(final String boardId) {
+        BoardQueue<T> board = mBoards.get(boardId);
+        if (board == null) {
+            BoardQueue<T> created = new BoardQueue<>();
+            board = mBoards.putIfAbsent(boardId, created);
+            if (board == null) {
+                board = created;
+            }
+        }
+        return board;
+    }
+
+    private static class BoardQueue<T> {
+        final Map<String, PendingScore<T>> pending = new HashMap<>();
+        boolean smallerIsBetter = false;
+
+        boolean isBetter(final long score, final long current) {
+            return smallerIsBetter ? score < current : score > current;
+        }
+    }
+
+    /**
+     * The best pending score of a board and score tag, together with every caller folded into it.
+     */
+    public static class PendingScore<T> {
+        public final String boardId;
+        public final String scoreTag;
+        public final List<Waiter<T>> waiters = new ArrayList<>();
+        private long bestScore;
+
+        PendingScore(final String boardId, final String scoreTag, final long score) {
+            this.boardId = boardId;
+            this.scoreTag = scoreTag;
+            this.bestScore = score;
+        }
+
+        public long getBestScore() {
+            return bestScore;
+        }
+
+        /**
+         * A caller is told its score is a new best only if it is the score that was submitted.
+         * @param waiter
+         * @param newBests the time spans the submitted score was a new best for.
+         */
+        public NewBests isNewBestFor(final Waiter<T> waiter, final NewBests newBests) {
+            return waiter.score == bestScore ? newBests : NewBests.NONE;
+        }
+    }
+
+    public static class Waiter<T> {
+        public final long score;
+        public final T handle;
+
+        Waiter(final long score, final T handle) {
+            this.score = score;
+            this.handle = handle;
+        }
+    }
+}
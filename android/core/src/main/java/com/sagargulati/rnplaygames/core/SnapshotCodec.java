@@ -0,0 +1,162 @@
+package com.sagargulati.rnplaygames.core;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams saved game payloads in and out of their stored form, without ever holding a whole payload in memory.
+ * Payloads are stored gzip compressed. Stored data that is not gzip compressed, e.g. written by another client
+ * of the same game, is read as is.
+ * Every payload is identified by the SHA-256 hash of its uncompressed content, so unchanged writes can be skipped.
+ */
+public class SnapshotCodec {
+    public final static int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    private final static int BUFFER_SIZE = 8 * 1024;
+    private final static int GZIP_MAGIC = 0x8b1f;
+
+    private SnapshotCodec() {
+    }
+
+    public interface ChunkSink {
+        /**
+         * @param offset position of the chunk in the stored payload.
+         * @param chunk
+         * @param count number of bytes of the chunk to write.
+         */
+        void write(int offset, byte[] chunk, int count) throws IOException;
+    }
+
+    /**
+     * @return the hex SHA-256 hash of the whole stream.
+     */
+    public static String hash(final InputStream in) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Compresses the stream and passes it to the sink, chunkSize bytes at a time.
+     * @return the hex SHA-256 hash of the uncompressed content.
+     */
+    public static String compress(final InputStream in, final ChunkSink sink, final int chunkSize) throws IOException {
+        MessageDigest digest = newDigest();
+        ChunkOutputStream chunks = new ChunkOutputStream(sink, chunkSize);
+        GZIPOutputStream out = new GZIPOutputStream(chunks, BUFFER_SIZE);
+        copy(new DigestInputStream(in, digest), out);
+        out.finish();
+        chunks.flush();
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Writes the uncompressed content of a stored payload to the output stream.
+     * @return the hex SHA-256 hash of the uncompressed content.
+     */
+    public static String decompress(final InputStream in, final OutputStream out) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int magic = buffered.read() | (buffered.read() << 8);
+        buffered.reset();
+
+        MessageDigest digest = newDigest();
+        InputStream content = magic == GZIP_MAGIC ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+        copy(content, new DigestOutputStream(out, digest));
+        out.flush();
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Reads a stored payload without keeping its content, e.g. to compare it with the content about to be written.
+     * @return the hex SHA-256 hash of the uncompressed content, as returned by decompress.
+     */
+    public static String hashStored(final InputStream in) throws IOException {
+        return decompress(in, new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    private static void copy(final InputStream in, final OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has to provide SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(final byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Buffers the written bytes into chunks of a fixed size before handing them to a ChunkSink.
+     */
+    private static class ChunkOutputStream extends OutputStream {
+        private final ChunkSink mSink;
+        private final byte[] mChunk;
+        private int mCount = 0;
+        private int mOffset = 0;
+
+        ChunkOutputStream(final ChunkSink sink, final int chunkSize) {
+            mSink = sink;
+            mChunk = new byte[chunkSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (mCount == mChunk.length) flush();
+            mChunk[mCount++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (mCount == mChunk.length) flush();
+                int count = Math.min(length, mChunk.length - mCount);
+                System.arraycopy(bytes, offset, mChunk, mCount, count);
+                mCount += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mCount == 0) return;
+            mSink.write(mOffset, mChunk, mCount);
+            mOffset += mCount;
+            mCount = 0;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class AchievementStepAggregatorTest {
+    @Test
+    public void addsUpIncrements() {
+        AchievementStepAggregator<String> aggregator = new AchievementStepAggregator<>();
+        aggregator.increment("a", 2, "first");
+        aggregator.increment("a", 3, "second");
+
+        AchievementStepAggregator.Flush<String> flush = aggregator.drain().get(0);
+        assertEquals(5, flush.steps);
+        assertFalse(flush.isAbsolute);
+        assertEquals(Arrays.asList("first", "second"), flush.handles);
+        assertTrue(aggregator.isEmpty());
+    }
+
+    @Test
+    public void keepsIncrementsQueuedBeforeSetSteps() {
+        AchievementStepAggregator<String> aggregator = new AchievementStepAggregator<>();
+        aggregator.increment("a", 5, "increment");
+        aggregator.setSteps("a", 3, "setSteps");
+
+        AchievementStepAggregator.Flush<String> flush = aggregator.drain().get(0);
+        assertEquals(5, flush.steps);
+        assertTrue(flush.isAbsolute);
+        assertEquals(3, flush.absoluteSteps);
+        assertEquals(2, flush.handles.size());
+    }
+
+    @Test
+    public void addsIncrementsMadeAfterSetStepsToBothParts() {
+        AchievementStepAggregator<String> aggregator = new AchievementStepAggregator<>();
+        aggregator.increment("a", 2, "before");
+        aggregator.setSteps("a", 10, "setSteps");
+        aggregator.setSteps("a", 4, "lower");
+        aggregator.increment("a", 3, "after");
+
+        AchievementStepAggregator.Flush<String> flush = aggregator.drain().get(0);
+        assertEquals(5, flush.steps);
+        assertEquals(13, flush.absoluteSteps);
+        assertEquals(4, flush.handles.size());
+    }
+
+    @Test
+    public void sendsTheIncrementThenTheSetStepsCall() throws Exception {
+        AchievementStepAggregator<RecordingCallback<Boolean>> aggregator = new AchievementStepAggregator<>();
+        List<RecordingCallback<Boolean>> callbacks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            callbacks.add(new RecordingCallback<Boolean>());
+        }
+        aggregator.increment("a", 2, callbacks.get(0));
+        aggregator.setSteps("a", 10, callbacks.get(1));
+        aggregator.increment("b", 1, callbacks.get(2));
+
+        RecordingBackend backend = new RecordingBackend(null);
+        RecordingListener listener = new RecordingListener();
+        BatchSubmitter.submitSteps(aggregator.drain(), backend, listener);
+
+        assertTrue(backend.calls.containsAll(Arrays.asList("increment a 2", "setSteps a 10", "increment b 1")));
+        assertTrue(backend.calls.indexOf("increment a 2") < backend.calls.indexOf("setSteps a 10"));
+        assertEquals(1, listener.completions);
+        for (RecordingCallback<Boolean> callback : callbacks) {
+            assertTrue(callback.awaitSettled().isSuccessful());
+        }
+    }
+
+    @Test
+    public void reportsTheFlushWithoutItsIncrementWhenOnlySetStepsFails() throws Exception {
+        AchievementStepAggregator<RecordingCallback<Boolean>> aggregator = new AchievementStepAggregator<>();
+        RecordingCallback<Boolean> increment = new RecordingCallback<>();
+        RecordingCallback<Boolean> setSteps = new RecordingCallback<>();
+        aggregator.increment("a", 2, increment);
+        aggregator.setSteps("a", 10, setSteps);
+
+        RecordingListener listener = new RecordingListener();
+        BatchSubmitter.submitSteps(aggregator.drain(), new RecordingBackend("setSteps"), listener);
+
+        assertEquals(1, listener.failed.size());
+        AchievementStepAggregator.Flush<RecordingCallback<Boolean>> rest = listener.failed.get(0);
+        assertEquals(0, rest.steps);
+        assertTrue(rest.isAbsolute);
+        assertEquals(10, rest.absoluteSteps);
+        assertEquals(1, listener.completions);
+        assertFalse(increment.awaitSettled().isSuccessful());
+        assertFalse(setSteps.awaitSettled().isSuccessful());
+    }
+
+    /**
+     * Settles every call right away, failing the calls of the given kind.
+     */
+    private static class RecordingBackend implements AchievementsBackend {
+        final List<String> calls = new ArrayList<>();
+        private final String mFailingCall;
+
+        RecordingBackend(final String failingCall) {
+            mFailingCall = failingCall;
+        }
+
+        @Override
+        public void incrementImmediate(String id, int numSteps, Callback<Boolean> callback) {
+            settle("increment", id, numSteps, callback);
+        }
+
+        @Override
+        public void setStepsImmediate(String id, int numSteps, Callback<Boolean> callback) {
+            settle("setSteps", id, numSteps, callback);
+        }
+
+        @Override
+        public void unlockImmediate(String id, Callback<Void> callback) {
+            callback.onSuccess(null);
+        }
+
+        @Override
+        public void revealImmediate(String id, Callback<Void> callback) {
+            callback.onSuccess(null);
+        }
+
+        private void settle(final String call, final String id, final int numSteps, final Callback<Boolean> callback) {
+            calls.add(call + " " + id + " " + numSteps);
+            if (call.equals(mFailingCall)) {
+                callback.onFailure(new BackendException(BackendException.REASON_PERMANENT, call + " failed"));
+            } else {
+                callback.onSuccess(false);
+            }
+        }
+    }
+
+    /**
+     * Settles the callbacks folded into every flush, as the modules settle their promises.
+     */
+    private static class RecordingListener
+            implements BatchSubmitter.Listener<AchievementStepAggregator.Flush<RecordingCallback<Boolean>>, Boolean> {
+        final List<AchievementStepAggregator.Flush<RecordingCallback<Boolean>>> failed = new ArrayList<>();
+        int completions = 0;
+
+        @Override
+        public void onSubmitted(AchievementStepAggregator.Flush<RecordingCallback<Boolean>> flush, Boolean isUnlocked) {
+            for (RecordingCallback<Boolean> callback : flush.handles) {
+                callback.onSuccess(isUnlocked);
+            }
+        }
+
+        @Override
+        public void onFailed(AchievementStepAggregator.Flush<RecordingCallback<Boolean>> flush, Exception e) {
+            failed.add(flush);
+            for (RecordingCallback<Boolean> callback : flush.handles) {
+                callback.onFailure(e);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+    }
+}
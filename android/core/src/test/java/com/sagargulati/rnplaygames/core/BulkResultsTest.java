@@ -0,0 +1,88 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class BulkResultsTest {
+    @Test
+    public void settlesAnEmptyBatchRightAway() {
+        RecordingListener listener = new RecordingListener();
+        new BulkResults<>(0, listener);
+        assertEquals(1, listener.settlements);
+        assertTrue(listener.results.isEmpty());
+    }
+
+    @Test
+    public void keepsTheOrderOfTheOperations() {
+        RecordingListener listener = new RecordingListener();
+        BulkResults<String> results = new BulkResults<>(3, listener);
+        assertTrue(results.settle(2, "c"));
+        assertTrue(results.settle(0, "a"));
+        assertNull(listener.results);
+        assertTrue(results.settle(1, "b"));
+
+        assertEquals(1, listener.settlements);
+        assertEquals(Arrays.asList("a", "b", "c"), listener.results);
+    }
+
+    @Test
+    public void onlyCountsTheFirstResultOfAnOperation() {
+        RecordingListener listener = new RecordingListener();
+        BulkResults<String> results = new BulkResults<>(2, listener);
+        assertTrue(results.settle(0, "first"));
+        assertFalse(results.settle(0, "second"));
+        assertNull(listener.results);
+        assertTrue(results.settle(1, "other"));
+        assertFalse(results.settle(1, "late"));
+
+        assertEquals(1, listener.settlements);
+        assertEquals(Arrays.asList("first", "other"), listener.results);
+    }
+
+    @Test
+    public void settlesOnceWhenOperationsCompleteConcurrently() throws Exception {
+        final int size = 1000;
+        final RecordingListener listener = new RecordingListener();
+        final BulkResults<String> results = new BulkResults<>(size, listener);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        final CountDownLatch done = new CountDownLatch(size * 2);
+        for (int i = 0; i < size * 2; i++) {
+            final int index = i % size;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    results.settle(index, "result " + index);
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, listener.settlements);
+        assertEquals(size, listener.results.size());
+        assertEquals("result 999", listener.results.get(999));
+    }
+
+    private static class RecordingListener implements BulkResults.Listener<String> {
+        volatile int settlements = 0;
+        volatile List<String> results;
+
+        @Override
+        public synchronized void onSettled(List<String> results) {
+            settlements++;
+            this.results = results;
+        }
+    }
+}
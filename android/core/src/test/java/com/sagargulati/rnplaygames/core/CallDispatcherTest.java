@@ -0,0 +1,181 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CallDispatcherTest {
+    private static final CallDispatcher.RetryPolicy TRANSIENT_FAILURES = new CallDispatcher.RetryPolicy() {
+        @Override
+        public boolean isRetryable(Exception e) {
+            return e instanceof BackendException && ((BackendException) e).isTransient();
+        }
+    };
+
+    private ScheduledExecutorService mScheduler;
+    private CallDispatcher mDispatcher;
+
+    @Before
+    public void setUp() {
+        mScheduler = Executors.newSingleThreadScheduledExecutor();
+        mDispatcher = new CallDispatcher(mScheduler, TRANSIENT_FAILURES);
+        mDispatcher.setRetryBackoff(3, 0, 0);
+    }
+
+    @After
+    public void tearDown() {
+        mScheduler.shutdownNow();
+    }
+
+    @Test
+    public void interactiveCallsGoBeforeBackgroundCalls() throws Exception {
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        // One token every 100ms, so that both calls are waiting when the next token comes.
+        mDispatcher.setRateLimit(CallDispatcher.FAMILY_LEADERBOARDS, 1, 10);
+
+        RecordingCallback<String> first = dispatch(CallDispatcher.LANE_BACKGROUND, "first", started);
+        RecordingCallback<String> background = dispatch(CallDispatcher.LANE_BACKGROUND, "background", started);
+        RecordingCallback<String> interactive = dispatch(CallDispatcher.LANE_INTERACTIVE, "interactive", started);
+        assertEquals(Arrays.asList("first"), started);
+
+        assertEquals("first", first.awaitSettled().getResult());
+        assertEquals("background", background.awaitSettled().getResult());
+        assertEquals("interactive", interactive.awaitSettled().getResult());
+        assertEquals(Arrays.asList("first", "interactive", "background"), started);
+    }
+
+    @Test
+    public void familiesHaveTheirOwnBucket() throws Exception {
+        final List<String> started = Collections.synchronizedList(new ArrayList<String>());
+        mDispatcher.setRateLimit(CallDispatcher.FAMILY_LEADERBOARDS, 1, 0.001);
+        dispatch(CallDispatcher.LANE_BACKGROUND, "first", started).awaitSettled();
+
+        RecordingCallback<String> achievement = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                succeeding("achievement", started), achievement);
+        assertEquals("achievement", achievement.awaitSettled().getResult());
+    }
+
+    @Test
+    public void retriesTransientFailures() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                failing(attempts, 2, BackendException.REASON_TRANSIENT), callback);
+
+        assertEquals("done", callback.awaitSettled().getResult());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void reportsTheLastFailureOnceOutOfAttempts() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                failing(attempts, Integer.MAX_VALUE, BackendException.REASON_THROTTLED), callback);
+
+        assertFalse(callback.awaitSettled().isSuccessful());
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void doesNotRetryPermanentFailures() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                failing(attempts, Integer.MAX_VALUE, BackendException.REASON_PERMANENT), callback);
+
+        Exception e = callback.awaitSettled().getException();
+        assertEquals(BackendException.REASON_PERMANENT, ((BackendException) e).getReason());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void dispatchOnceNeverRetries() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatchOnce(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                failing(attempts, Integer.MAX_VALUE, BackendException.REASON_TRANSIENT), callback);
+
+        assertFalse(callback.awaitSettled().isSuccessful());
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void reportsCallsThrowingWhenStarted() throws Exception {
+        final RuntimeException thrown = new IllegalStateException("not signed in");
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_PLAYERS, CallDispatcher.LANE_INTERACTIVE,
+                new CallDispatcher.Call<String>() {
+                    @Override
+                    public void start(Callback<String> callback) {
+                        throw thrown;
+                    }
+                }, callback);
+
+        assertSame(thrown, callback.awaitSettled().getException());
+    }
+
+    @Test
+    public void settlesEveryCallUnderLoad() throws Exception {
+        mDispatcher.setRateLimit(CallDispatcher.FAMILY_EVENTS, 5, 2000);
+        List<RecordingCallback<String>> callbacks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            RecordingCallback<String> callback = new RecordingCallback<>();
+            int lane = i % 2 == 0 ? CallDispatcher.LANE_INTERACTIVE : CallDispatcher.LANE_BACKGROUND;
+            mDispatcher.dispatch(CallDispatcher.FAMILY_EVENTS, lane,
+                    failing(new AtomicInteger(), i % 3, BackendException.REASON_TRANSIENT), callback);
+            callbacks.add(callback);
+        }
+
+        for (RecordingCallback<String> callback : callbacks) {
+            assertTrue(callback.awaitSettled().isSuccessful());
+        }
+    }
+
+    private RecordingCallback<String> dispatch(final int lane, final String name, final List<String> started) {
+        RecordingCallback<String> callback = new RecordingCallback<>();
+        mDispatcher.dispatch(CallDispatcher.FAMILY_LEADERBOARDS, lane, succeeding(name, started), callback);
+        return callback;
+    }
+
+    private static CallDispatcher.Call<String> succeeding(final String name, final List<String> started) {
+        return new CallDispatcher.Call<String>() {
+            @Override
+            public void start(Callback<String> callback) {
+                started.add(name);
+                callback.onSuccess(name);
+            }
+        };
+    }
+
+    /**
+     * @return a call failing with the given reason for its first failures attempts, then succeeding.
+     */
+    private static CallDispatcher.Call<String> failing(final AtomicInteger attempts, final int failures,
+                                                       final int reason) {
+        return new CallDispatcher.Call<String>() {
+            @Override
+            public void start(Callback<String> callback) {
+                if (attempts.incrementAndGet() <= failures) {
+                    callback.onFailure(new BackendException(reason, "attempt " + attempts.get()));
+                } else {
+                    callback.onSuccess("done");
+                }
+            }
+        };
+    }
+}
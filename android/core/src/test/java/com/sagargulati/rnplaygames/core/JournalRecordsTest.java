@@ -0,0 +1,153 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class JournalRecordsTest {
+    @Test
+    public void readsBackEveryKindOfWrite() throws IOException {
+        byte[] journal = write(
+                new JournalRecords.Entry(0, JournalRecords.OP_SUBMIT_SCORE, "player", "board", 1234, "tag"),
+                new JournalRecords.Entry(1, JournalRecords.OP_SUBMIT_SCORE, null, "board", -5, null),
+                new JournalRecords.Entry(2, JournalRecords.OP_UNLOCK, "player", "unlocked", 0, null),
+                new JournalRecords.Entry(3, JournalRecords.OP_INCREMENT, "player", "incremented", 3, null),
+                new JournalRecords.Entry(4, JournalRecords.OP_SET_STEPS, "player", "set", 42, null));
+
+        JournalRecords records = new JournalRecords();
+        assertEquals(journal.length, records.read(new ByteArrayInputStream(journal)));
+        assertEquals(5, records.getNextSequence());
+
+        List<JournalRecords.Entry> pending = new ArrayList<>(records.getPending());
+        assertEquals(5, pending.size());
+        JournalRecords.Entry score = pending.get(0);
+        assertEquals(JournalRecords.OP_SUBMIT_SCORE, score.getOp());
+        assertEquals("player", score.accountId);
+        assertEquals("board", score.id);
+        assertEquals(1234, score.getValue());
+        assertEquals("tag", score.scoreTag);
+        JournalRecords.Entry signedOut = pending.get(1);
+        assertNull(signedOut.accountId);
+        assertNull(signedOut.scoreTag);
+        assertEquals(-5, signedOut.getValue());
+        assertEquals(JournalRecords.OP_UNLOCK, pending.get(2).getOp());
+        assertEquals(JournalRecords.OP_INCREMENT, pending.get(3).getOp());
+        assertEquals(42, pending.get(4).getValue());
+    }
+
+    @Test
+    public void appliesAcksAndConversions() throws IOException {
+        JournalRecords.Entry score = new JournalRecords.Entry(0, JournalRecords.OP_SUBMIT_SCORE, "p", "b", 1, null);
+        JournalRecords.Entry increment = new JournalRecords.Entry(1, JournalRecords.OP_INCREMENT, "p", "a", 3, null);
+        byte[] journal = write(score, increment, JournalRecords.ack(score), JournalRecords.conversion(increment, 13));
+
+        JournalRecords records = new JournalRecords();
+        records.read(new ByteArrayInputStream(journal));
+        assertFalse(records.isPending(0));
+        assertTrue(records.isPending(1));
+        JournalRecords.Entry converted = records.getPending().iterator().next();
+        assertEquals(JournalRecords.OP_SET_STEPS, converted.getOp());
+        assertEquals(13, converted.getValue());
+        assertEquals(2, records.getNextSequence());
+    }
+
+    @Test
+    public void stopsAtATornRecord() throws IOException {
+        byte[] valid = write(new JournalRecords.Entry(0, JournalRecords.OP_UNLOCK, "p", "a", 0, null));
+        byte[] journal = write(
+                new JournalRecords.Entry(0, JournalRecords.OP_UNLOCK, "p", "a", 0, null),
+                new JournalRecords.Entry(1, JournalRecords.OP_UNLOCK, "p", "b", 0, null));
+        byte[] torn = Arrays.copyOf(journal, journal.length - 3);
+
+        JournalRecords records = new JournalRecords();
+        assertEquals(valid.length, records.read(new ByteArrayInputStream(torn)));
+        assertEquals(1, records.getPending().size());
+    }
+
+    @Test
+    public void stopsAtACorruptedRecord() throws IOException {
+        byte[] valid = write(new JournalRecords.Entry(0, JournalRecords.OP_UNLOCK, "p", "a", 0, null));
+        byte[] journal = write(
+                new JournalRecords.Entry(0, JournalRecords.OP_UNLOCK, "p", "a", 0, null),
+                new JournalRecords.Entry(1, JournalRecords.OP_UNLOCK, "p", "b", 0, null),
+                new JournalRecords.Entry(2, JournalRecords.OP_UNLOCK, "p", "c", 0, null));
+        // Flips a bit in the payload of the second record, so that its checksum no longer matches.
+        journal[valid.length + 6] ^= 1;
+
+        JournalRecords records = new JournalRecords();
+        assertEquals(valid.length, records.read(new ByteArrayInputStream(journal)));
+        assertEquals(1, records.getPending().size());
+    }
+
+    @Test
+    public void compactionKeepsOnlyThePendingWrites() throws IOException {
+        JournalRecords records = new JournalRecords();
+        List<JournalRecords.Entry> written = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            JournalRecords.Entry entry = new JournalRecords.Entry(
+                    records.getNextSequence(), JournalRecords.OP_SUBMIT_SCORE, "p", "b", i, null);
+            records.apply(entry);
+            written.add(entry);
+        }
+        assertFalse(records.shouldCompact("p", 256));
+        for (int i = 0; i < 80; i++) {
+            records.apply(JournalRecords.ack(written.get(i)));
+        }
+        assertTrue(records.shouldCompact("p", 256));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        records.writePending(new DataOutputStream(bytes));
+        records.onCompacted();
+        assertFalse(records.shouldCompact("p", 256));
+
+        JournalRecords compacted = new JournalRecords();
+        compacted.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(20, compacted.getPending().size());
+        assertEquals(80, compacted.getPending().iterator().next().getValue());
+        assertEquals(100, compacted.getNextSequence());
+    }
+
+    @Test
+    public void dropsTheOldestWritesOfOtherAccounts() {
+        JournalRecords records = new JournalRecords();
+        for (int i = 0; i < 5; i++) {
+            records.apply(new JournalRecords.Entry(records.getNextSequence(), JournalRecords.OP_UNLOCK,
+                    "other", "old" + i, 0, null));
+            records.apply(new JournalRecords.Entry(records.getNextSequence(), JournalRecords.OP_UNLOCK,
+                    "current", "mine" + i, 0, null));
+        }
+        records.apply(new JournalRecords.Entry(records.getNextSequence(), JournalRecords.OP_UNLOCK,
+                null, "signedOut", 0, null));
+        assertTrue(records.shouldCompact("current", 2));
+
+        assertEquals(3, records.dropOldOtherAccountEntries("current", 2));
+        assertFalse(records.shouldCompact("current", 2));
+        List<String> ids = new ArrayList<>();
+        for (JournalRecords.Entry entry : records.getPending()) {
+            ids.add(entry.id);
+        }
+        assertEquals(Arrays.asList("mine0", "mine1", "mine2", "old3", "mine3", "old4", "mine4", "signedOut"), ids);
+        assertEquals(0, records.dropOldOtherAccountEntries("current", 2));
+    }
+
+    private static byte[] write(final JournalRecords.Entry... records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (JournalRecords.Entry record : records) {
+            JournalRecords.write(out, record);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+}
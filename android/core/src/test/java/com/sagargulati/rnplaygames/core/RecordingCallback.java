@@ -0,0 +1,56 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the settlement of a callback, and fails the test if it is settled more than once.
+ */
+class RecordingCallback<T> implements Callback<T> {
+    private final CountDownLatch mSettled = new CountDownLatch(1);
+    private final AtomicInteger mSettlements = new AtomicInteger();
+    private volatile T mResult;
+    private volatile Exception mException;
+
+    @Override
+    public void onSuccess(T result) {
+        mResult = result;
+        settle();
+    }
+
+    @Override
+    public void onFailure(Exception e) {
+        mException = e;
+        settle();
+    }
+
+    private void settle() {
+        mSettlements.incrementAndGet();
+        mSettled.countDown();
+    }
+
+    /**
+     * Waits for the callback to be settled, and checks it was settled exactly once.
+     */
+    RecordingCallback<T> awaitSettled() throws InterruptedException {
+        assertTrue("callback never settled", mSettled.await(5, TimeUnit.SECONDS));
+        assertEquals("callback settled more than once", 1, mSettlements.get());
+        return this;
+    }
+
+    T getResult() {
+        return mResult;
+    }
+
+    Exception getException() {
+        return mException;
+    }
+
+    boolean isSuccessful() {
+        return mSettlements.get() > 0 && mException == null;
+    }
+}
@@ -0,0 +1,138 @@
+package com.sagargulati.rnplaygames.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ScoreSubmissionQueueTest {
+    @Test
+    public void keepsTheBestScorePerBoardAndTag() {
+        ScoreSubmissionQueue<String> queue = new ScoreSubmissionQueue<>();
+        queue.setSmallerIsBetter("time", true);
+        queue.enqueue("points", 10, null, "a");
+        queue.enqueue("points", 30, null, "b");
+        queue.enqueue("points", 20, null, "c");
+        queue.enqueue("points", 5, "tagged", "d");
+        queue.enqueue("time", 900, null, "e");
+        queue.enqueue("time", 800, null, "f");
+
+        Map<String, ScoreSubmissionQueue.PendingScore<String>> drained = byKey(queue.drain());
+        assertEquals(3, drained.size());
+        assertEquals(30, drained.get("points/null").getBestScore());
+        assertEquals(3, drained.get("points/null").waiters.size());
+        assertEquals(5, drained.get("points/tagged").getBestScore());
+        assertEquals(800, drained.get("time/null").getBestScore());
+        assertTrue(queue.isEmpty());
+        assertTrue(queue.drain().isEmpty());
+    }
+
+    @Test
+    public void onlyTheSubmittedScoreIsANewBest() {
+        ScoreSubmissionQueue<String> queue = new ScoreSubmissionQueue<>();
+        queue.enqueue("points", 10, null, "worse");
+        queue.enqueue("points", 30, null, "best");
+
+        ScoreSubmissionQueue.PendingScore<String> pending = queue.drain().get(0);
+        for (ScoreSubmissionQueue.Waiter<String> waiter : pending.waiters) {
+            NewBests expected = waiter.handle.equals("best") ? NewBests.ALL : NewBests.NONE;
+            assertSame(expected, pending.isNewBestFor(waiter, NewBests.ALL));
+        }
+    }
+
+    @Test
+    public void settlesEveryWaiterOfASubmission() throws Exception {
+        ScoreSubmissionQueue<RecordingCallback<NewBests>> queue = new ScoreSubmissionQueue<>();
+        List<RecordingCallback<NewBests>> callbacks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            RecordingCallback<NewBests> callback = new RecordingCallback<>();
+            queue.enqueue(i % 2 == 0 ? "even" : "odd", i, null, callback);
+            callbacks.add(callback);
+        }
+
+        final List<String> submitted = new ArrayList<>();
+        LeaderboardsBackend backend = new LeaderboardsBackend() {
+            @Override
+            public void submitScoreImmediate(String boardId, long score, String scoreTag, Callback<NewBests> callback) {
+                submitted.add(boardId + "=" + score);
+                if (boardId.equals("odd")) {
+                    callback.onFailure(new BackendException(BackendException.REASON_PERMANENT, "unknown board"));
+                } else {
+                    callback.onSuccess(NewBests.ALL);
+                }
+            }
+        };
+        final int[] completions = {0};
+        BatchSubmitter.submitScores(queue.drain(), backend,
+                new BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<RecordingCallback<NewBests>>, NewBests>() {
+            @Override
+            public void onSubmitted(ScoreSubmissionQueue.PendingScore<RecordingCallback<NewBests>> pending,
+                                    NewBests newBests) {
+                for (ScoreSubmissionQueue.Waiter<RecordingCallback<NewBests>> waiter : pending.waiters) {
+                    waiter.handle.onSuccess(pending.isNewBestFor(waiter, newBests));
+                }
+            }
+
+            @Override
+            public void onFailed(ScoreSubmissionQueue.PendingScore<RecordingCallback<NewBests>> pending,
+                                 Exception e) {
+                for (ScoreSubmissionQueue.Waiter<RecordingCallback<NewBests>> waiter : pending.waiters) {
+                    waiter.handle.onFailure(e);
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                completions[0]++;
+            }
+        });
+
+        assertEquals(2, submitted.size());
+        assertTrue(submitted.contains("even=8"));
+        assertTrue(submitted.contains("odd=9"));
+        assertEquals(1, completions[0]);
+        for (int i = 0; i < callbacks.size(); i++) {
+            RecordingCallback<NewBests> callback = callbacks.get(i).awaitSettled();
+            assertEquals(i % 2 == 0, callback.isSuccessful());
+            if (i % 2 == 0) {
+                assertSame(i == 8 ? NewBests.ALL : NewBests.NONE, callback.getResult());
+            }
+        }
+    }
+
+    @Test
+    public void completesAnEmptyBatch() {
+        final int[] completions = {0};
+        BatchSubmitter.submitScores(new ScoreSubmissionQueue<String>().drain(), null,
+                new BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<String>, NewBests>() {
+            @Override
+            public void onSubmitted(ScoreSubmissionQueue.PendingScore<String> pending, NewBests newBests) {
+            }
+
+            @Override
+            public void onFailed(ScoreSubmissionQueue.PendingScore<String> pending, Exception e) {
+            }
+
+            @Override
+            public void onComplete() {
+                completions[0]++;
+            }
+        });
+        assertEquals(1, completions[0]);
+    }
+
+    private static Map<String, ScoreSubmissionQueue.PendingScore<String>> byKey(
+            final List<ScoreSubmissionQueue.PendingScore<String>> pendingScores) {
+        Map<String, ScoreSubmissionQueue.PendingScore<String>> byKey = new HashMap<>();
+        for (ScoreSubmissionQueue.PendingScore<String> pending : pendingScores) {
+            byKey.put(pending.boardId + "/" + pending.scoreTag, pending);
+        }
+        return byKey;
+    }
+}
@@ -1,26 +1,49 @@
 package com.sagargulati.rnplaygames;
 
-import android.app.Activity;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 
-import com.facebook.react.bridge.ActivityEventListener;
-import com.facebook.react.bridge.BaseActivityEventListener;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableMap;
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
 import com.google.android.gms.games.AchievementsClient;
-import com.google.android.gms.games.Games;
-import com.google.android.gms.games.GamesActivityResultCodes;
+import com.google.android.gms.games.AnnotatedData;
+import com.google.android.gms.games.achievement.Achievement;
+import com.google.android.gms.games.achievement.AchievementBuffer;
+import com.google.android.gms.tasks.Continuation;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sagargulati.rnplaygames.core.AchievementStepAggregator;
+import com.sagargulati.rnplaygames.core.AchievementsBackend;
+import com.sagargulati.rnplaygames.core.BatchSubmitter;
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.Results;
+import com.sagargulati.rnplaygames.util.AchievementStateIndex;
+import com.sagargulati.rnplaygames.util.ActivityResultRouter;
+import com.sagargulati.rnplaygames.util.BulkPromise;
+import com.sagargulati.rnplaygames.util.CallbackExecutors;
+import com.sagargulati.rnplaygames.util.EventChannel;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
 import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.IntentCache;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+import com.sagargulati.rnplaygames.util.WritableResultMap;
+import com.sagargulati.rnplaygames.util.WriteJournal;
 
 
 /**
@@ -29,31 +52,79 @@ import com.sagargulati.rnplaygames.util.Helpers;
  * @author Sagar Gulati
  * @version 0.0.1-beta (0.0.1-beta/6:54 PM Tuesday, January 14, 2020)
  */
-public class RNPlayGamesAchievement extends ReactContextBaseJavaModule {
-    private Promise mAchievementsUIPromise;
-    private final static int RQC_ACHIEVEMENTS_UI = 1016;
+public class RNPlayGamesAchievement extends ReactContextBaseJavaModule implements LifecycleEventListener {
+    public static final String NAME = "RNPlayGamesAchievement";
+    private final static long DEFAULT_STEPS_FLUSH_INTERVAL_MS = 5000;
+    private final static long INTENT_TTL_MS = 5 * 60 * 1000;
+    private final static long INTENT_STALE_MS = 55 * 60 * 1000;
+    private final static String ACHIEVEMENTS_INTENT_KEY = "achievements";
 
+    // To be exposed to JS
+    private static final String STATE_UNLOCKED = "STATE_UNLOCKED";
+    private static final String STATE_REVEALED = "STATE_REVEALED";
+    private static final String STATE_HIDDEN = "STATE_HIDDEN";
+    private static final String UPDATE_UNLOCK = "UPDATE_UNLOCK";
+    private static final String UPDATE_INCREMENT = "UPDATE_INCREMENT";
+    private static final String UPDATE_SET_STEPS = "UPDATE_SET_STEPS";
+    private static final String UPDATE_REVEAL = "UPDATE_REVEAL";
+    public final static String ACHIEVEMENT_UNLOCKED_EVENT = "ACHIEVEMENT_UNLOCKED_EVENT";
+    public static final String ACHIEVEMENT_UNLOCKED_EVENT_NAME = "rnplaygamesachievementunlocked";
 
-    public RNPlayGamesAchievement(ReactApplicationContext reactContext) {
-        super(reactContext);
-        ActivityEventListener mActivityEventListener = new BaseActivityEventListener() {
-            @Override
-            public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
-                super.onActivityResult(activity, requestCode, resultCode, data);
+    // UI intent, fetched ahead of the show calls.
+    private final IntentCache mIntentCache = new IntentCache(INTENT_TTL_MS, INTENT_STALE_MS,
+            new IntentCache.Loader() {
+        @Override
+        public Task<Intent> load(String key) {
+            return getAchievementsIntent();
+        }
 
-                // check if the user signed out from the UI.
-                if (resultCode == GamesActivityResultCodes.RESULT_RECONNECT_REQUIRED) {
-                    Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), false);
-                }
+        @Override
+        public boolean isSignedIn() {
+            return getAchievementsClient() != null;
+        }
+    });
 
-                switch (requestCode) {
-                    case RQC_ACHIEVEMENTS_UI:
-                        handleAchievementsActivityResults(requestCode, resultCode, data);
-                        break;
-                }
+    // Local achievement states
+    private final AchievementStateIndex mStateIndex = new AchievementStateIndex();
+    private Task<AchievementStateIndex> mStateIndexLoadTask;
+
+    // Step aggregation
+    private final AchievementStepAggregator<Promise> mStepAggregator = new AchievementStepAggregator<>();
+    private final Handler mFlushHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean(false);
+    private volatile boolean mStepAggregationEnabled = false;
+    private volatile long mStepsFlushIntervalMs = DEFAULT_STEPS_FLUSH_INTERVAL_MS;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            flushPendingSteps(null);
+        }
+    };
+
+
+    private final GamesClientRegistry.AuthStateListener mAuthStateListener =
+            new GamesClientRegistry.AuthStateListener() {
+        @Override
+        public void onAuthStateChanged(boolean isSignedIn) {
+            synchronized (mStateIndex) {
+                mStateIndex.clear();
+                mStateIndexLoadTask = null;
             }
-        };
-        reactContext.addActivityEventListener(mActivityEventListener);
+            mIntentCache.clear();
+        }
+    };
+
+    public RNPlayGamesAchievement(ReactApplicationContext reactContext) {
+        super(reactContext);
+        reactContext.addLifecycleEventListener(this);
+        GamesClientRegistry.getInstance(reactContext).addAuthStateListener(mAuthStateListener);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        // The registry outlives this module, e.g. across reloads of JS.
+        GamesClientRegistry.getInstance(getReactApplicationContext()).removeAuthStateListener(mAuthStateListener);
     }
 
     /**
@@ -61,24 +132,30 @@ public class RNPlayGamesAchievement extends ReactContextBaseJavaModule {
      * @param promise
      */
     @ReactMethod
-    public void showAchievementsUI(final Promise promise) {
-        final Task<Intent> achievementsIntent = this.getAchievementsIntent();
-        mAchievementsUIPromise = promise;
+    public void showAchievementsUI(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("achievement.showAchievementsUI", rawPromise);
+        final Task<Intent> achievementsIntent = mIntentCache.get(ACHIEVEMENTS_INTENT_KEY);
 
         if (achievementsIntent == null) {
-            Helpers.rejectPromiseWithAuthenticationRequired(mAchievementsUIPromise);
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        achievementsIntent.addOnSuccessListener(new OnSuccessListener<Intent>() {
+        achievementsIntent.addOnSuccessListener(CallbackExecutors.mainThread(), new OnSuccessListener<Intent>() {
             @Override
             public void onSuccess(Intent intent) {
-                getCurrentActivity().startActivityForResult(intent, RQC_ACHIEVEMENTS_UI);
+                ActivityResultRouter.getInstance(getReactApplicationContext()).startActivityForResult(
+                        getCurrentActivity(), intent, new ActivityResultRouter.ResultHandler() {
+                            @Override
+                            public void onActivityResult(int resultCode, Intent data, Promise promise) {
+                                Helpers.resolvePromise(promise);
+                            }
+                        }, promise);
             }
-        }).addOnFailureListener(new OnFailureListener() {
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
             @Override
             public void onFailure(@NonNull Exception e) {
-                Helpers.rejectPromise(mAchievementsUIPromise, e);
+                Helpers.rejectPromise(promise, e);
             }
         });
     }
@@ -90,51 +167,269 @@ public class RNPlayGamesAchievement extends ReactContextBaseJavaModule {
      * @param promise
      */
     @ReactMethod
-    public void incrementAchievement(final String id, final int numSteps, final Promise promise) {
-        AchievementsClient achievementsClient = getAchievementsClient();
-        if (achievementsClient == null) {
+    public void incrementAchievement(final String id, final int numSteps, final Promise rawPromise) {
+        incrementAchievementHelper(id, numSteps, MethodMetrics.track("achievement.incrementAchievement", rawPromise));
+    }
+
+    private void incrementAchievementHelper(final String id, final int numSteps, final Promise promise) {
+        if (mStateIndex.isUnlocked(id)) {
+            // Incrementing an unlocked achievement has no effect.
+            Helpers.resolvePromise(promise, getStepsResult(true));
+            return;
+        }
+        loadStateIndex(false);
+
+        if (mStepAggregationEnabled) {
+            mStepAggregator.increment(id, numSteps, promise);
+            scheduleStepsFlush();
+            return;
+        }
+
+        AchievementsBackend achievementsBackend = getAchievementsBackend();
+        if (achievementsBackend == null) {
+            if (journalSteps(id, numSteps, false, null)) {
+                Helpers.resolvePromise(promise, getQueuedStepsResult());
+                return;
+            }
             Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        achievementsClient.incrementImmediate(id, numSteps).addOnSuccessListener(new OnSuccessListener<Boolean>() {
+        achievementsBackend.incrementImmediate(id, numSteps, new Callback<Boolean>() {
             @Override
             public void onSuccess(Boolean aBoolean) {
+                sendUnlockedEventIfNew(id, aBoolean);
+                mStateIndex.applySteps(id, numSteps, false, aBoolean);
 
                 // resolves promise with whether or not the achievement was unlocked.
-                WritableMap returnObject = Helpers.getReturnObject();
-                returnObject.putBoolean("isUnlocked", aBoolean);
-                Helpers.resolvePromise(promise, returnObject);
+                Helpers.resolvePromise(promise, getStepsResult(aBoolean));
             }
-        }).addOnFailureListener(new OnFailureListener() {
+
             @Override
-            public void onFailure(@NonNull Exception e) {
+            public void onFailure(Exception e) {
+                if (journalSteps(id, numSteps, false, e)) {
+                    Helpers.resolvePromise(promise, getQueuedStepsResult());
+                    return;
+                }
+                Helpers.rejectPromise(promise, e);
+            }
+        });
+    }
+
+    /**
+     * Sets the achievement specified by the id to the given number of steps.
+     * Has no effect if the achievement already has more steps.
+     * @param id
+     * @param numSteps
+     * @param promise
+     */
+    @ReactMethod
+    public void setAchievementSteps(final String id, final int numSteps, final Promise rawPromise) {
+        setAchievementStepsHelper(id, numSteps, MethodMetrics.track("achievement.setAchievementSteps", rawPromise));
+    }
+
+    private void setAchievementStepsHelper(final String id, final int numSteps, final Promise promise) {
+        if (mStateIndex.hasSteps(id, numSteps)) {
+            Helpers.resolvePromise(promise, getStepsResult(mStateIndex.isUnlocked(id)));
+            return;
+        }
+        loadStateIndex(false);
+
+        if (mStepAggregationEnabled) {
+            mStepAggregator.setSteps(id, numSteps, promise);
+            scheduleStepsFlush();
+            return;
+        }
+
+        AchievementsBackend achievementsBackend = getAchievementsBackend();
+        if (achievementsBackend == null) {
+            if (journalSteps(id, numSteps, true, null)) {
+                Helpers.resolvePromise(promise, getQueuedStepsResult());
+                return;
+            }
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+
+        achievementsBackend.setStepsImmediate(id, numSteps, new Callback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean aBoolean) {
+                sendUnlockedEventIfNew(id, aBoolean);
+                mStateIndex.applySteps(id, numSteps, true, aBoolean);
+                Helpers.resolvePromise(promise, getStepsResult(aBoolean));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                if (journalSteps(id, numSteps, true, e)) {
+                    Helpers.resolvePromise(promise, getQueuedStepsResult());
+                    return;
+                }
                 Helpers.rejectPromise(promise, e);
             }
         });
     }
 
+    /**
+     * Enables or disables step aggregation.
+     * While enabled, incrementAchievement and setAchievementSteps add up the pending steps per achievement,
+     * which are sent every flushIntervalMs, when the app is paused or when flushAchievementSteps is called.
+     * Disabling aggregation flushes the pending steps.
+     * @param enabled
+     * @param flushIntervalMs interval between flushes, in milliseconds. Pass 0 to use the default.
+     * @param promise
+     */
+    @ReactMethod
+    public void setStepAggregationEnabled(final boolean enabled, final int flushIntervalMs, final Promise promise) {
+        mStepsFlushIntervalMs = flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_STEPS_FLUSH_INTERVAL_MS;
+        mStepAggregationEnabled = enabled;
+        if (!enabled) {
+            flushPendingSteps(promise);
+            return;
+        }
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Sets the token bucket of the achievement calls. Calls over the limit wait for a token, and
+     * UI and reads go before queued writes.
+     * @param burst number of calls that can be made at once after a quiet period.
+     * @param callsPerSecond sustained rate of calls.
+     * @param promise
+     */
+    @ReactMethod
+    public void setRateLimit(final int burst, final double callsPerSecond, final Promise promise) {
+        GamesClientRegistry.getInstance(getReactApplicationContext()).getDispatcher()
+                .setRateLimit(CallDispatcher.FAMILY_ACHIEVEMENTS, burst, callsPerSecond);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Sends every pending achievement step right away.
+     * The promise is resolved once all the pending updates have completed.
+     * @param promise
+     */
+    @ReactMethod
+    public void flushAchievementSteps(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("achievement.flushAchievementSteps", rawPromise);
+        flushPendingSteps(promise);
+    }
+
+    private void scheduleStepsFlush() {
+        if (mFlushScheduled.compareAndSet(false, true)) {
+            mFlushHandler.postDelayed(mFlushRunnable, mStepsFlushIntervalMs);
+        }
+    }
+
+    /**
+     * Sends one increment (or set steps) per achievement with pending steps,
+     * then settles every caller folded into it with whether or not the achievement is now unlocked.
+     * @param promise nullable, resolved once every update has completed.
+     */
+    private void flushPendingSteps(final Promise promise) {
+        final List<AchievementStepAggregator.Flush<Promise>> flushes = mStepAggregator.drain();
+        if (flushes.isEmpty()) {
+            Helpers.resolvePromise(promise);
+            return;
+        }
+
+        AchievementsBackend achievementsBackend = getAchievementsBackend();
+        if (achievementsBackend == null) {
+            boolean isJournaled = true;
+            for (AchievementStepAggregator.Flush<Promise> flush : flushes) {
+                if (journalFlush(flush, null)) {
+                    for (Promise waiter : flush.handles) {
+                        Helpers.resolvePromise(waiter, getQueuedStepsResult());
+                    }
+                    continue;
+                }
+                isJournaled = false;
+                for (Promise waiter : flush.handles) {
+                    Helpers.rejectPromiseWithAuthenticationRequired(waiter);
+                }
+            }
+            if (isJournaled) {
+                Helpers.resolvePromise(promise);
+            } else {
+                Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            }
+            return;
+        }
+
+        BatchSubmitter.submitSteps(flushes, achievementsBackend,
+                new BatchSubmitter.Listener<AchievementStepAggregator.Flush<Promise>, Boolean>() {
+            @Override
+            public void onSubmitted(AchievementStepAggregator.Flush<Promise> flush, Boolean aBoolean) {
+                sendUnlockedEventIfNew(flush.id, aBoolean);
+                mStateIndex.applySteps(flush.id, flush.steps, false, aBoolean);
+                if (flush.isAbsolute) {
+                    mStateIndex.applySteps(flush.id, flush.absoluteSteps, true, aBoolean);
+                }
+                for (Promise waiter : flush.handles) {
+                    Helpers.resolvePromise(waiter, getStepsResult(aBoolean));
+                }
+            }
+
+            @Override
+            public void onFailed(AchievementStepAggregator.Flush<Promise> flush, Exception e) {
+                boolean isJournaled = journalFlush(flush, e);
+                for (Promise waiter : flush.handles) {
+                    if (isJournaled) {
+                        Helpers.resolvePromise(waiter, getQueuedStepsResult());
+                    } else {
+                        Helpers.rejectPromise(waiter, e);
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                Helpers.resolvePromise(promise);
+            }
+        });
+    }
+
     /**
      * Unlock the achievement specified by the id.
      * @param id
      * @param promise
      */
     @ReactMethod
-    public void unlockAchievement(final String id, final Promise promise) {
-        AchievementsClient achievementsClient = getAchievementsClient();
-        if (achievementsClient == null) {
+    public void unlockAchievement(final String id, final Promise rawPromise) {
+        unlockAchievementHelper(id, MethodMetrics.track("achievement.unlockAchievement", rawPromise));
+    }
+
+    private void unlockAchievementHelper(final String id, final Promise promise) {
+        if (mStateIndex.isUnlocked(id)) {
+            Helpers.resolvePromise(promise);
+            return;
+        }
+        loadStateIndex(false);
+
+        AchievementsBackend achievementsBackend = getAchievementsBackend();
+        if (achievementsBackend == null) {
+            if (journalUnlock(id, null)) {
+                Helpers.resolvePromise(promise);
+                return;
+            }
             Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        achievementsClient.unlockImmediate(id).addOnSuccessListener(new OnSuccessListener<Void>() {
+        achievementsBackend.unlockImmediate(id, new Callback<Void>() {
             @Override
             public void onSuccess(Void aVoid) {
+                sendUnlockedEventIfNew(id, true);
+                mStateIndex.markUnlocked(id);
                 Helpers.resolvePromise(promise);
             }
-        }).addOnFailureListener(new OnFailureListener() {
+
             @Override
-            public void onFailure(@NonNull Exception e) {
+            public void onFailure(Exception e) {
+                if (journalUnlock(id, e)) {
+                    Helpers.resolvePromise(promise);
+                    return;
+                }
                 Helpers.rejectPromise(promise, e);
             }
         });
@@ -146,19 +441,99 @@ public class RNPlayGamesAchievement extends ReactContextBaseJavaModule {
      * @param promise
      */
     @ReactMethod
-    public void revealHiddenAchievement(final String id, final Promise promise) {
-        AchievementsClient achievementsClient = getAchievementsClient();
-        if (achievementsClient == null) {
+    public void revealHiddenAchievement(final String id, final Promise rawPromise) {
+        revealHiddenAchievementHelper(id, MethodMetrics.track("achievement.revealHiddenAchievement", rawPromise));
+    }
+
+    private void revealHiddenAchievementHelper(final String id, final Promise promise) {
+        if (mStateIndex.isRevealed(id)) {
+            Helpers.resolvePromise(promise);
+            return;
+        }
+        loadStateIndex(false);
+
+        AchievementsBackend achievementsBackend = getAchievementsBackend();
+        if (achievementsBackend == null) {
             Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        achievementsClient.revealImmediate(id).addOnSuccessListener(new OnSuccessListener<Void>() {
+        achievementsBackend.revealImmediate(id, new Callback<Void>() {
             @Override
             public void onSuccess(Void aVoid) {
+                mStateIndex.markRevealed(id);
                 Helpers.resolvePromise(promise);
             }
-        }).addOnFailureListener(new OnFailureListener() {
+
+            @Override
+            public void onFailure(Exception e) {
+                Helpers.rejectPromise(promise, e);
+            }
+        });
+    }
+
+    /**
+     * Applies several achievement updates at once, e.g. at the end of a match.
+     * Every update goes through the same path as the matching single update method, and the updates are
+     * sent concurrently. The promise is resolved once with one { status, value } or { status, code, message }
+     * result per update.
+     * @param updates array of { type, id, numSteps }, type being one of
+     *                UPDATE_UNLOCK, UPDATE_INCREMENT, UPDATE_SET_STEPS or UPDATE_REVEAL.
+     * @param promise
+     */
+    @ReactMethod
+    public void applyAchievementUpdates(final ReadableArray updates, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("achievement.applyAchievementUpdates", rawPromise);
+        BulkPromise bulkPromise = new BulkPromise(updates.size(), promise);
+        for (int i = 0; i < updates.size(); i++) {
+            Promise itemPromise = bulkPromise.getItemPromise(i);
+            try {
+                ReadableMap update = updates.getMap(i);
+                String type = update.getString("type");
+                String id = update.getString("id");
+                if (UPDATE_UNLOCK.equals(type)) {
+                    unlockAchievementHelper(id, itemPromise);
+                } else if (UPDATE_INCREMENT.equals(type)) {
+                    incrementAchievementHelper(id, update.getInt("numSteps"), itemPromise);
+                } else if (UPDATE_SET_STEPS.equals(type)) {
+                    setAchievementStepsHelper(id, update.getInt("numSteps"), itemPromise);
+                } else if (UPDATE_REVEAL.equals(type)) {
+                    revealHiddenAchievementHelper(id, itemPromise);
+                } else {
+                    itemPromise.reject(new IllegalArgumentException("Unknown achievement update type: " + type));
+                }
+            } catch (Exception e) {
+                Helpers.rejectPromise(itemPromise, e);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the state of every achievement of the current player, keyed by achievement id.
+     * The states are kept in memory and updated as writes succeed; they are only loaded
+     * from the games service the first time, or when forceReload is true.
+     * @param forceReload
+     * @param promise resolved with { [id]: { state, isIncremental, currentSteps, totalSteps } }
+     */
+    @ReactMethod
+    public void getAchievementStates(final boolean forceReload, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("achievement.getAchievementStates", rawPromise);
+        if (!forceReload && mStateIndex.isLoaded()) {
+            Helpers.resolvePromise(promise, getStatesObject());
+            return;
+        }
+
+        Task<AchievementStateIndex> loadTask = loadStateIndex(forceReload);
+        if (loadTask == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+        loadTask.addOnSuccessListener(CallbackExecutors.background(), new OnSuccessListener<AchievementStateIndex>() {
+            @Override
+            public void onSuccess(AchievementStateIndex index) {
+                Helpers.resolvePromise(promise, getStatesObject());
+            }
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
             @Override
             public void onFailure(@NonNull Exception e) {
                 Helpers.rejectPromise(promise, e);
@@ -166,34 +541,242 @@ public class RNPlayGamesAchievement extends ReactContextBaseJavaModule {
         });
     }
 
+    /**
+     * Synchronously returns the achievement states kept in memory, without loading them.
+     * @return the object getAchievementStates resolves with, or null if the states are not loaded.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getCachedAchievementStates() {
+        return mStateIndex.isLoaded() ? getStatesObject() : null;
+    }
+
+    /**
+     * Synchronously tells whether or not the achievement is unlocked, from the states kept in memory.
+     * @param id
+     * @return false if the achievement is locked, or if the states are not loaded (see getAchievementStates).
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public boolean isAchievementUnlocked(final String id) {
+        return mStateIndex.isUnlocked(id);
+    }
+
+    /**
+     * Loads the achievement states into the local index, unless they are loaded or being loaded already.
+     * @return the load Task, or null if the user is not signed in.
+     */
+    private Task<AchievementStateIndex> loadStateIndex(final boolean forceReload) {
+        synchronized (mStateIndex) {
+            if (mStateIndexLoadTask != null && (!forceReload || !mStateIndexLoadTask.isComplete())) {
+                return mStateIndexLoadTask;
+            }
+
+            final AchievementsClient achievementsClient = getAchievementsClient();
+            if (achievementsClient == null) return null;
+
+            final Task<AchievementStateIndex> loadTask = dispatch(new GamesClientRegistry.TaskCall<AnnotatedData<AchievementBuffer>>() {
+                @Override
+                public Task<AnnotatedData<AchievementBuffer>> start() {
+                    return achievementsClient.load(forceReload);
+                }
+            }).continueWith(CallbackExecutors.background(),
+                    new Continuation<AnnotatedData<AchievementBuffer>, AchievementStateIndex>() {
+                @Override
+                public AchievementStateIndex then(@NonNull Task<AnnotatedData<AchievementBuffer>> task) throws Exception {
+                    if (!task.isSuccessful()) throw task.getException();
+                    AchievementBuffer buffer = task.getResult().get();
+                    try {
+                        mStateIndex.load(buffer);
+                    } finally {
+                        buffer.release();
+                    }
+                    return mStateIndex;
+                }
+            });
+            loadTask.addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
+                @Override
+                public void onFailure(@NonNull Exception e) {
+                    // Allow the next call to try again.
+                    synchronized (mStateIndex) {
+                        if (mStateIndexLoadTask == loadTask) {
+                            mStateIndexLoadTask = null;
+                        }
+                    }
+                }
+            });
+            mStateIndexLoadTask = loadTask;
+            return loadTask;
+        }
+    }
+
+    private WritableMap getStatesObject() {
+        WritableMap statesObject = Helpers.getReturnObject();
+        for (Map.Entry<String, AchievementStateIndex.State> entry : mStateIndex.snapshot().entrySet()) {
+            AchievementStateIndex.State state = entry.getValue();
+            WritableMap stateObject = Helpers.getReturnObject();
+            stateObject.putInt("state", state.state);
+            stateObject.putBoolean("isIncremental", state.isIncremental);
+            stateObject.putInt("currentSteps", state.currentSteps);
+            stateObject.putInt("totalSteps", state.totalSteps);
+            statesObject.putMap(entry.getKey(), stateObject);
+        }
+        return statesObject;
+    }
+
+    private static WritableMap getStepsResult(final boolean isUnlocked) {
+        return Results.writeStepsResult(new WritableResultMap(), isUnlocked).getMap();
+    }
+
+    /**
+     * Records steps that could not be sent in the write journal, if journaling is enabled.
+     * An increment that failed while online may have been applied anyway, so it is recorded as the step count it
+     * leads to, which cannot be applied twice. It is not journaled if the current steps are not known.
+     * @param e the failure, or null if the player is signed out.
+     * @return whether or not the steps were journaled and will be replayed later.
+     */
+    private boolean journalSteps(final String id, final int numSteps, final boolean isAbsolute, final Exception e) {
+        WriteJournal journal = WriteJournal.getInstance(getReactApplicationContext());
+        if (!journal.isEnabled() || (e != null && !Helpers.isTransientFailure(e))) {
+            return false;
+        }
+        if (isAbsolute) {
+            journal.recordSetSteps(id, numSteps);
+            return true;
+        }
+        if (e == null || !journal.isConnected()) {
+            // The increment never left the device.
+            journal.recordIncrement(id, numSteps);
+            return true;
+        }
+
+        AchievementStateIndex.State state = mStateIndex.get(id);
+        if (state == null || !state.isIncremental) return false;
+        int absoluteSteps = state.currentSteps + numSteps;
+        journal.recordSetSteps(id, absoluteSteps);
+        // So that the next increment failing the same way builds on this one.
+        mStateIndex.applySteps(id, absoluteSteps, true, false);
+        return true;
+    }
+
+    /**
+     * Records the steps of a flush that could not be sent in the write journal, its increment first.
+     * @see #journalSteps
+     */
+    private boolean journalFlush(final AchievementStepAggregator.Flush<Promise> flush, final Exception e) {
+        if (flush.steps != 0 || !flush.isAbsolute) {
+            if (!journalSteps(flush.id, flush.steps, false, e)) return false;
+        }
+        return !flush.isAbsolute || journalSteps(flush.id, flush.absoluteSteps, true, e);
+    }
+
+    /**
+     * Records an unlock that could not be sent in the write journal, if journaling is enabled.
+     * @param e the failure, or null if the player is signed out.
+     * @return whether or not the unlock was journaled and will be replayed later.
+     */
+    private boolean journalUnlock(final String id, final Exception e) {
+        WriteJournal journal = WriteJournal.getInstance(getReactApplicationContext());
+        if (!journal.isEnabled() || (e != null && !Helpers.isTransientFailure(e))) {
+            return false;
+        }
+        journal.recordUnlock(id);
+        return true;
+    }
+
+    /**
+     * Emits an achievement unlocked event, unless the achievement was already known to be unlocked.
+     * Must be called before the write is applied to the state index.
+     */
+    private void sendUnlockedEventIfNew(final String id, final boolean isUnlocked) {
+        if (!isUnlocked || mStateIndex.isUnlocked(id)) return;
+
+        EventChannel.getInstance(getReactApplicationContext()).emitEvent(ACHIEVEMENT_UNLOCKED_EVENT_NAME,
+                new EventChannel.Payload() {
+            @Override
+            public WritableMap build() {
+                WritableMap event = Helpers.getReturnObject();
+                event.putString("id", id);
+                return event;
+            }
+        });
+    }
+
+    private static WritableMap getQueuedStepsResult() {
+        return Results.writeQueuedStepsResult(new WritableResultMap()).getMap();
+    }
+
     private Task<Intent> getAchievementsIntent() {
-        AchievementsClient achievementsClient = getAchievementsClient();
+        final AchievementsClient achievementsClient = getAchievementsClient();
         if (achievementsClient != null) {
-            return achievementsClient.getAchievementsIntent();
+            return dispatch(new GamesClientRegistry.TaskCall<Intent>() {
+                @Override
+                public Task<Intent> start() {
+                    return achievementsClient.getAchievementsIntent();
+                }
+            });
         }
         return null;
     }
 
+    /**
+     * Makes a call the player is waiting on through the dispatcher, ahead of the queued writes.
+     */
+    private <T> Task<T> dispatch(final GamesClientRegistry.TaskCall<T> call) {
+        return GamesClientRegistry.getInstance(getReactApplicationContext())
+                .dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_INTERACTIVE, call);
+    }
+
     /**
      * Attempts to retrieve an instance of AchievementsClient.
      * @return AchievementsClient or null if the user is not signed in.
      */
     private AchievementsClient getAchievementsClient() {
-        if (GoogleSignIn.getLastSignedInAccount(getReactApplicationContext()) != null) {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getAchievementsClient();
+    }
+
+    /**
+     * @return AchievementsBackend or null if the user is not signed in.
+     */
+    private AchievementsBackend getAchievementsBackend() {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getAchievementsBackend();
+    }
+
+    @Override
+    public void onHostResume() {
+        // Only once the achievements were shown, so that a game never showing them makes no calls.
+        mIntentCache.refreshAll();
+    }
 
-            final GoogleSignInAccount lastSignedInAccount =
-                    GoogleSignIn.getLastSignedInAccount(getReactApplicationContext());
-            return Games.getAchievementsClient(getReactApplicationContext(), lastSignedInAccount);
+    @Override
+    public void onHostPause() {
+        // Do not hold steps while the game is in the background.
+        if (!mStepAggregator.isEmpty()) {
+            flushPendingSteps(null);
         }
-        return null;
     }
 
-    private void handleAchievementsActivityResults(final int requestCode, final int resultCode, final Intent data) {
-        Helpers.resolvePromise(mAchievementsUIPromise);
+    @Override
+    public void onHostDestroy() {
+        mFlushHandler.removeCallbacks(mFlushRunnable);
+        mFlushScheduled.set(false);
+        flushPendingSteps(null);
     }
 
     @Override
     public String getName() {
-        return "RNPlayGamesAchievement";
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        final Map<String, Object> constants = new HashMap<>();
+        constants.put(ACHIEVEMENT_UNLOCKED_EVENT, ACHIEVEMENT_UNLOCKED_EVENT_NAME);
+        constants.put(STATE_UNLOCKED, Achievement.STATE_UNLOCKED);
+        constants.put(STATE_REVEALED, Achievement.STATE_REVEALED);
+        constants.put(STATE_HIDDEN, Achievement.STATE_HIDDEN);
+        constants.put(UPDATE_UNLOCK, UPDATE_UNLOCK);
+        constants.put(UPDATE_INCREMENT, UPDATE_INCREMENT);
+        constants.put(UPDATE_SET_STEPS, UPDATE_SET_STEPS);
+        constants.put(UPDATE_REVEAL, UPDATE_REVEAL);
+        return constants;
     }
 }
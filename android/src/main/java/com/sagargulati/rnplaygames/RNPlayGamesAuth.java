@@ -2,15 +2,17 @@ package com.sagargulati.rnplaygames;
 
 import android.app.Activity;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import androidx.annotation.NonNull;
 import android.util.Log;
 
-import com.facebook.react.bridge.ActivityEventListener;
-import com.facebook.react.bridge.BaseActivityEventListener;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
 import com.google.android.gms.auth.api.Auth;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
@@ -22,14 +24,21 @@ import com.google.android.gms.common.Scopes;
 import com.google.android.gms.drive.Drive;
 import com.google.android.gms.games.Games;
 import com.google.android.gms.games.Games.GamesOptions;
-import com.google.android.gms.games.GamesActivityResultCodes;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import com.sagargulati.rnplaygames.util.ActivityResultRouter;
+import com.sagargulati.rnplaygames.util.EventChannel;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
 import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+import com.sagargulati.rnplaygames.util.MethodTracing;
+import com.sagargulati.rnplaygames.util.WriteJournal;
 
 /**
  * Authentication module.
@@ -38,91 +47,204 @@ import com.sagargulati.rnplaygames.util.Helpers;
  * @version 0.0.1-beta (0.0.1-beta/6:54 PM Tuesday, January 14, 2020)
  */
 public class RNPlayGamesAuth extends ReactContextBaseJavaModule {
+    public static final String NAME = "RNPlayGamesAuth";
     private static final String TAG = "RNPlayGames";
-    private final static int RQC_SIGNIN_UI = 1013;
 
-    // Promises
-    private Promise mSignInWithUIPromise;
+    // Callers waiting on the sign in attempt in flight.
+    private final List<SilentSignInWaiter> mSilentSignInWaiters = new ArrayList<>();
+    private final List<Promise> mSignInWithUIPromises = new ArrayList<>();
+    private boolean mSilentSignInInFlight = false;
+    private boolean mSignInWithUIInFlight = false;
+
+    // Pre-warmed sign in
+    private final boolean mPrewarmSignIn;
+    private boolean mPrewarmStarted = false;
+    private boolean mPrewarmSignInFailed = false;
+    private GoogleSignInClient mSignInClient;
+    // Starts the pre-warmed sign in once the host activity exists, then removes itself.
+    private final LifecycleEventListener mPrewarmListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            getReactApplicationContext().removeLifecycleEventListener(this);
+            prewarmSignIn();
+        }
+
+        @Override
+        public void onHostPause() {
+        }
+
+        @Override
+        public void onHostDestroy() {
+        }
+    };
+
+    // Periodic metrics event
+    private final Handler mMetricsHandler = new Handler(Looper.getMainLooper());
+    private volatile long mMetricsEventIntervalMs = 0;
+    private final Runnable mMetricsRunnable = new Runnable() {
+        @Override
+        public void run() {
+            EventChannel.getInstance(getReactApplicationContext()).emitLatest(METRICS_EVENT_NAME,
+                    new EventChannel.Payload() {
+                @Override
+                public WritableMap build() {
+                    return MethodMetrics.getInstance().snapshot();
+                }
+            });
+            long intervalMs = mMetricsEventIntervalMs;
+            if (intervalMs > 0) {
+                mMetricsHandler.postDelayed(this, intervalMs);
+            }
+        }
+    };
 
     // To be exposed to JS
     public final static String AUTH_STATE_CHANGE_EVENT = "AUTH_STATE_CHANGE_EVENT";
     public static final String AUTH_STATE_CHANGED_EVENT_NAME = "rnplaygamesauthstate";
+    public final static String METRICS_EVENT = "METRICS_EVENT";
+    public static final String METRICS_EVENT_NAME = "rnplaygamesmetrics";
 
 
     public RNPlayGamesAuth(ReactApplicationContext reactContext) {
-        super(reactContext);
-        ActivityEventListener mActivityEventListener = new BaseActivityEventListener() {
-            @Override
-            public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
-                super.onActivityResult(activity, requestCode, resultCode, data);
-
-                // check if the user signed out UI.
-                if (resultCode == GamesActivityResultCodes.RESULT_RECONNECT_REQUIRED) {
-                    Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), false);
-                }
+        this(reactContext, false);
+    }
 
-                // SignIn UI result
-                switch (requestCode) {
-                    case RQC_SIGNIN_UI:
-                        handleSignInActivityResults(requestCode, resultCode, data);
-                        break;
-                }
+    /**
+     * @param reactContext
+     * @param prewarmSignIn whether or not to start the silent sign in as soon as the host activity exists,
+     *                      instead of waiting for JS to ask for it.
+     */
+    public RNPlayGamesAuth(ReactApplicationContext reactContext, final boolean prewarmSignIn) {
+        super(reactContext);
+        mPrewarmSignIn = prewarmSignIn;
+        if (prewarmSignIn) {
+            if (reactContext.hasCurrentActivity()) {
+                prewarmSignIn();
+            } else {
+                reactContext.addLifecycleEventListener(mPrewarmListener);
             }
-        };
-        reactContext.addActivityEventListener(mActivityEventListener);
+        }
     }
 
     /**
      * Attempts to sign in the user silently.
      * If it fails, then will prompt user with sign-in UI.
+     * Concurrent calls join the silent sign in already in flight and are all settled from it.
      * @param triggerUI whether or not to trigger the interactive UI if silent sign in fails.
      * @param promise
      */
     @ReactMethod
-    public void signInPlayerInBackground(final boolean triggerUI, final Promise promise) {
-        if (!this.isSignedIn()) {
-            this.getSignInClient().silentSignIn().addOnCompleteListener(getCurrentActivity(),
+    public void signInPlayerInBackground(final boolean triggerUI, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("auth.signInPlayerInBackground", rawPromise);
+        if (this.isSignedIn()) {
+            Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
+            Helpers.resolvePromise(promise);
+            return;
+        }
+
+        boolean prewarmSignInFailed;
+        synchronized (mSilentSignInWaiters) {
+            prewarmSignInFailed = mPrewarmSignInFailed;
+            mPrewarmSignInFailed = false;
+            if (!prewarmSignInFailed) {
+                mSilentSignInWaiters.add(new SilentSignInWaiter(triggerUI, promise));
+                if (mSilentSignInInFlight) return;
+                mSilentSignInInFlight = true;
+            }
+        }
+
+        if (!prewarmSignInFailed) {
+            startSilentSignIn();
+        } else if (triggerUI) {
+            // The pre-warmed silent sign in already failed, go straight to the UI.
+            signInPlayerWithUIHelper(promise);
+        } else {
+            Helpers.rejectPromise(promise, new Exception("Sign in failed."));
+        }
+    }
+
+    /**
+     * Starts the silent sign in without waiting for JS, so that the first JS call can join it or resolve right away.
+     */
+    private void prewarmSignIn() {
+        synchronized (mSilentSignInWaiters) {
+            if (mPrewarmStarted) return;
+            mPrewarmStarted = true;
+            if (mSilentSignInInFlight || this.isSignedIn()) return;
+            mSilentSignInInFlight = true;
+        }
+        startSilentSignIn();
+    }
+
+    private void startSilentSignIn() {
+        final long startNanos = MethodMetrics.start();
+        try {
+            MethodTracing.traceTask("auth.silentSignIn", this.getSignInClient().silentSignIn()).addOnCompleteListener(
                     new OnCompleteListener<GoogleSignInAccount>() {
                         @Override
                         public void onComplete(@NonNull Task<GoogleSignInAccount> task) {
-                            if (task.isSuccessful()) {
-                                Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
-                                Helpers.resolvePromise(promise);
-                            } else if (triggerUI){
-                                Log.d(TAG, "Failed to sign in silently, trying UI.");
-                                // Player will need to sign-in explicitly via UI
-                                signInPlayerWithUI(promise);
-                            } else {
-                                Helpers.rejectPromise(promise, new Exception("Sign in failed."));
-                            }
+                            MethodMetrics.getInstance().record("auth.silentSignIn", startNanos, task.isSuccessful()
+                                    ? MethodMetrics.OUTCOME_SUCCESS
+                                    : MethodMetrics.OUTCOME_FAILURE);
+                            handleSilentSignInResult(task.isSuccessful());
                         }
                     });
-        } else {
-            Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
-            Helpers.resolvePromise(promise);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start silent sign in.", e);
+            MethodMetrics.getInstance().record("auth.silentSignIn", startNanos, MethodMetrics.OUTCOME_FAILURE);
+            handleSilentSignInResult(false);
         }
     }
 
     /**
      * Displays the interactive sign in UI to the user.
+     * Only one sign in UI is displayed at a time; concurrent calls are settled when it is dismissed.
      * @param promise
      */
     @ReactMethod
-    public void signInPlayerWithUI(final Promise promise) {
-        if (!this.isSignedIn()) {
-            mSignInWithUIPromise = promise;
-            getCurrentActivity().startActivityForResult(this.startSignInIntent(), RQC_SIGNIN_UI);
-        } else {
+    public void signInPlayerWithUI(final Promise rawPromise) {
+        signInPlayerWithUIHelper(MethodMetrics.track("auth.signInPlayerWithUI", rawPromise));
+    }
+
+    /**
+     * @param promise already tracked, e.g. by the silent sign in that falls back to the UI.
+     */
+    private void signInPlayerWithUIHelper(final Promise promise) {
+        if (this.isSignedIn()) {
             Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
             Helpers.resolvePromise(promise);
+            return;
+        }
+
+        synchronized (mSignInWithUIPromises) {
+            mSignInWithUIPromises.add(promise);
+            if (mSignInWithUIInFlight) return;
+            mSignInWithUIInFlight = true;
+        }
+
+        Activity activity = getCurrentActivity();
+        if (activity == null) {
+            settleSignInWithUI(new Exception("Sign in UI requires a current activity."));
+            return;
+        }
+        boolean started = ActivityResultRouter.getInstance(getReactApplicationContext()).startActivityForResult(
+                activity, this.startSignInIntent(), new ActivityResultRouter.ResultHandler() {
+                    @Override
+                    public void onActivityResult(int resultCode, Intent data, Promise ignored) {
+                        handleSignInActivityResults(resultCode, data);
+                    }
+                }, null);
+        if (!started) {
+            settleSignInWithUI(new Exception("Failed to start the sign in UI."));
         }
     }
 
     @ReactMethod
-    public void signOutPlayer(final Promise promise) {
+    public void signOutPlayer(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("auth.signOutPlayer", rawPromise);
         if (this.isSignedIn()) {
-            this.getSignInClient().signOut().addOnCompleteListener(getCurrentActivity(),
-                    new OnCompleteListener<Void>() {
+            MethodTracing.traceTask("auth.signOut", this.getSignInClient().signOut()).addOnCompleteListener(
+                    getCurrentActivity(), new OnCompleteListener<Void>() {
                         @Override
                         public void onComplete(@NonNull Task<Void> task) {
                             if (task.isSuccessful()) {
@@ -138,14 +260,120 @@ public class RNPlayGamesAuth extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Enables or disables the write journal.
+     * While enabled, scores, unlocks and increments that fail because the player is signed out
+     * or the network is unavailable are saved on disk, and replayed in order after the next sign in
+     * or when connectivity returns. Their promises are fulfilled with isQueued set to true.
+     * @param enabled
+     * @param promise
+     */
+    @ReactMethod
+    public void setWriteJournalEnabled(final boolean enabled, final Promise promise) {
+        WriteJournal.getInstance(getReactApplicationContext()).setEnabled(enabled);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Enables or disables the android.os.Trace sections, see MethodTracing.
+     * While enabled, every tracked method call gets a correlation id, found in the traces and in the
+     * traceId of the object its promise is settled with.
+     * @param enabled
+     * @param promise
+     */
+    @ReactMethod
+    public void setTracingEnabled(final boolean enabled, final Promise promise) {
+        MethodTracing.setEnabled(enabled);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Retrieves the latency histogram and the success, failure and authentication required counts
+     * of every bridge method called so far, keyed by "module.method".
+     * @param promise
+     */
+    @ReactMethod
+    public void getMetrics(final Promise promise) {
+        Helpers.resolvePromise(promise, MethodMetrics.getInstance().snapshot());
+    }
+
+    /**
+     * Clears every recorded metric.
+     * @param promise
+     */
+    @ReactMethod
+    public void resetMetrics(final Promise promise) {
+        MethodMetrics.getInstance().reset();
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Emits the metrics snapshot as a METRICS_EVENT at a fixed interval.
+     * @param intervalMs interval between two events, 0 to stop emitting them.
+     * @param promise
+     */
+    @ReactMethod
+    public void setMetricsEventInterval(final int intervalMs, final Promise promise) {
+        mMetricsEventIntervalMs = Math.max(0, intervalMs);
+        mMetricsHandler.removeCallbacks(mMetricsRunnable);
+        if (intervalMs > 0) {
+            mMetricsHandler.postDelayed(mMetricsRunnable, intervalMs);
+        }
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Sets how the calls to the games services failing with a transient error are retried.
+     * Retries are delayed by a random time of up to baseDelayMs * 2^(attempt - 1), capped at maxDelayMs.
+     * @param maxAttempts number of times a call is made before it fails, 1 to disable retries.
+     * @param baseDelayMs
+     * @param maxDelayMs
+     * @param promise
+     */
+    @ReactMethod
+    public void setRetryPolicy(final int maxAttempts, final int baseDelayMs, final int maxDelayMs,
+                               final Promise promise) {
+        GamesClientRegistry.getInstance(getReactApplicationContext()).getDispatcher()
+                .setRetryBackoff(maxAttempts, baseDelayMs, maxDelayMs);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Called by index.js when a JS listener subscribes to one of the events of the library.
+     * Payloads of events without listeners are never built.
+     * @param eventName
+     */
+    @ReactMethod
+    public void startObserving(final String eventName) {
+        EventChannel.getInstance(getReactApplicationContext()).addListener(eventName);
+    }
+
+    /**
+     * Called by index.js when a JS listener added through startObserving is removed.
+     * @param eventName
+     */
+    @ReactMethod
+    public void stopObserving(final String eventName) {
+        EventChannel.getInstance(getReactApplicationContext()).removeListener(eventName);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        getReactApplicationContext().removeLifecycleEventListener(mPrewarmListener);
+        mMetricsEventIntervalMs = 0;
+        mMetricsHandler.removeCallbacks(mMetricsRunnable);
+    }
+
     private GoogleSignInAccount getSignedInUser() {
-        return GoogleSignIn.getLastSignedInAccount(getReactApplicationContext());
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getAccount();
     }
 
     /**
      * Verifies whether or not the user is signed in.
+     * Also exposed to JS as a synchronous method, so render code can read it without waiting on a promise.
      * @return whether or  not a user is signed in.
      */
+    @ReactMethod(isBlockingSynchronousMethod = true)
     public boolean isSignedIn() {
         return getSignedInUser() != null;
     }
@@ -154,16 +382,21 @@ public class RNPlayGamesAuth extends ReactContextBaseJavaModule {
 //        GoogleSignInClient signInClient = GoogleSignIn.getClient(getReactApplicationContext(),
 //                GoogleSignInOptions.DEFAULT_GAMES_SIGN_IN);
 
-        // get sign in client with special scope for saved games (feature coming soon)
+        // get sign in client with special scope for saved games (see RNPlayGamesSnapshots)
         return this.getSignInClient().getSignInIntent();
     }
 
 
     /**
      *  Sign in client with necessary drive scope for use of saved games.
+     *  Built once and reused for every sign in, sign out and sign in intent.
      * @return sign in client
      */
-    private GoogleSignInClient getSignInClient() {
+    private synchronized GoogleSignInClient getSignInClient() {
+        if (mSignInClient != null) {
+            return mSignInClient;
+        }
+
         // Build Sign in options with SCOPE_APP_FOLDER google drive scope.
         GoogleSignInOptions googleSignInOptions = new GoogleSignInOptions.Builder(
                 GoogleSignInOptions.DEFAULT_GAMES_SIGN_IN)
@@ -172,24 +405,91 @@ public class RNPlayGamesAuth extends ReactContextBaseJavaModule {
 //                .requestScopes(Drive.SCOPE_APPFOLDER) // Old Method #2s
 //                .requestEmail()
                 .build();
-        return GoogleSignIn.getClient(getCurrentActivity(), googleSignInOptions);
+        mSignInClient = GoogleSignIn.getClient(getReactApplicationContext(), googleSignInOptions);
+        return mSignInClient;
+    }
+
+    /**
+     * Settles every caller that joined the silent sign in.
+     * Callers that asked for the UI join a single UI sign in if the silent sign in failed.
+     */
+    private void handleSilentSignInResult(final boolean isSuccessful) {
+        List<SilentSignInWaiter> waiters;
+        synchronized (mSilentSignInWaiters) {
+            waiters = new ArrayList<>(mSilentSignInWaiters);
+            mSilentSignInWaiters.clear();
+            mSilentSignInInFlight = false;
+            // Nobody joined the pre-warmed sign in yet, keep its failure for the first JS call.
+            mPrewarmSignInFailed = !isSuccessful && waiters.isEmpty() && mPrewarmSignIn;
+        }
+
+        if (isSuccessful) {
+            Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
+            WriteJournal.getInstance(getReactApplicationContext()).replay();
+            for (SilentSignInWaiter waiter : waiters) {
+                Helpers.resolvePromise(waiter.promise);
+            }
+            return;
+        }
+
+        for (SilentSignInWaiter waiter : waiters) {
+            if (waiter.triggerUI) {
+                Log.d(TAG, "Failed to sign in silently, trying UI.");
+                // Player will need to sign-in explicitly via UI
+                signInPlayerWithUIHelper(waiter.promise);
+            } else {
+                Helpers.rejectPromise(waiter.promise, new Exception("Sign in failed."));
+            }
+        }
     }
 
-    private void handleSignInActivityResults(int requestCode, int resultCode, Intent data) {
+    private void handleSignInActivityResults(int resultCode, Intent data) {
         GoogleSignInResult result = Auth.GoogleSignInApi.getSignInResultFromIntent(data);
 
-        if (result.isSuccess()) {
+        if (result != null && result.isSuccess()) {
             Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), true);
-            Helpers.resolvePromise(mSignInWithUIPromise);
+            WriteJournal.getInstance(getReactApplicationContext()).replay();
+            settleSignInWithUI(null);
         } else {
             Log.e(TAG, "Sign In failed via UI with result code: " + resultCode);
-            Helpers.rejectPromise(mSignInWithUIPromise, new Exception("Sign In Failed."));
+            settleSignInWithUI(new Exception("Sign In Failed."));
+        }
+    }
+
+    /**
+     * Settles every caller waiting on the sign in UI.
+     * @param error null if the sign in succeeded.
+     */
+    private void settleSignInWithUI(final Exception error) {
+        List<Promise> promises;
+        synchronized (mSignInWithUIPromises) {
+            promises = new ArrayList<>(mSignInWithUIPromises);
+            mSignInWithUIPromises.clear();
+            mSignInWithUIInFlight = false;
+        }
+
+        for (Promise promise : promises) {
+            if (error == null) {
+                Helpers.resolvePromise(promise);
+            } else {
+                Helpers.rejectPromise(promise, error);
+            }
         }
     }
 
     @Override
     public String getName() {
-        return "RNPlayGamesAuth";
+        return NAME;
+    }
+
+    private static class SilentSignInWaiter {
+        final boolean triggerUI;
+        final Promise promise;
+
+        SilentSignInWaiter(final boolean triggerUI, final Promise promise) {
+            this.triggerUI = triggerUI;
+            this.promise = promise;
+        }
     }
 
 
@@ -197,6 +497,7 @@ public class RNPlayGamesAuth extends ReactContextBaseJavaModule {
     public Map<String, Object> getConstants() {
         final Map<String, Object> constants = new HashMap<>();
         constants.put(AUTH_STATE_CHANGE_EVENT, AUTH_STATE_CHANGED_EVENT_NAME);
+        constants.put(METRICS_EVENT, METRICS_EVENT_NAME);
         return constants;
     }
 }
@@ -0,0 +1,331 @@
+package com.sagargulati.rnplaygames;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.games.AnnotatedData;
+import com.google.android.gms.games.EventsClient;
+import com.google.android.gms.games.event.Event;
+import com.google.android.gms.games.event.EventBuffer;
+import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.EventCounters;
+import com.sagargulati.rnplaygames.util.CallbackExecutors;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
+import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+import com.sagargulati.rnplaygames.util.SingleFlightCache;
+
+/**
+ * Events module.
+ * Increments only add to an in-memory counter, and the counters are sent to the games services as one
+ * increment per event every flush interval, when the app is paused or when flushEvents is called.
+ * Counts belong to the last account signed in: counts recorded while the player is signed out are kept until
+ * that account signs in again, and dropped if another account signs in.
+ */
+public class RNPlayGamesEvents extends ReactContextBaseJavaModule implements LifecycleEventListener {
+    public static final String NAME = "RNPlayGamesEvents";
+    private static final int MAX_EVENTS = 256;
+    private static final long DEFAULT_EVENT_FLUSH_INTERVAL_MS = 30 * 1000;
+    private static final long EVENTS_TTL_MS = 60 * 1000;
+    private static final long EVENTS_STALE_MS = 5 * 60 * 1000;
+
+    private final EventCounters mCounters = new EventCounters(MAX_EVENTS);
+    private final Handler mFlushHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean(false);
+    private volatile long mFlushIntervalMs = DEFAULT_EVENT_FLUSH_INTERVAL_MS;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            flushCounters(getEventsClient());
+        }
+    };
+    private final Runnable mFlushTrigger = new Runnable() {
+        @Override
+        public void run() {
+            CallbackExecutors.background().execute(mFlushRunnable);
+        }
+    };
+
+    private final SingleFlightCache<List<EventEntry>> mEventsCache =
+            new SingleFlightCache<>(EVENTS_TTL_MS, EVENTS_STALE_MS);
+    // The account the counts belong to, null until an account signs in.
+    private String mCountersAccountId;
+
+    private final GamesClientRegistry.AuthStateListener mAuthStateListener =
+            new GamesClientRegistry.AuthStateListener() {
+        @Override
+        public void onAuthStateChanged(boolean isSignedIn) {
+            mEventsCache.invalidate();
+            if (isSignedIn) {
+                updateCountersAccount();
+            }
+        }
+    };
+
+    public RNPlayGamesEvents(ReactApplicationContext reactContext) {
+        super(reactContext);
+        reactContext.addLifecycleEventListener(this);
+        updateCountersAccount();
+        GamesClientRegistry.getInstance(reactContext).addAuthStateListener(mAuthStateListener);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        // The registry outlives this module, e.g. across reloads of JS.
+        GamesClientRegistry.getInstance(getReactApplicationContext()).removeAuthStateListener(mAuthStateListener);
+    }
+
+    /**
+     * Gives every event id a slot, to be passed to incrementEvent.
+     * The promise is resolved with an object mapping every event id to its slot.
+     * Registering an id again returns the same slot.
+     * @param eventIds array of event ids, as found in the Play Console.
+     * @param promise
+     */
+    @ReactMethod
+    public void registerEvents(final ReadableArray eventIds, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("events.registerEvents", rawPromise);
+        try {
+            WritableMap slots = Helpers.getReturnObject();
+            for (int i = 0; i < eventIds.size(); i++) {
+                String eventId = eventIds.getString(i);
+                slots.putInt(eventId, mCounters.register(eventId));
+            }
+            Helpers.resolvePromise(promise, slots);
+        } catch (Exception e) {
+            Helpers.rejectPromise(promise, e);
+        }
+    }
+
+    /**
+     * Adds to the counter of an event. Nothing is sent until the next flush.
+     * @param slot slot of the event, see registerEvents. Unregistered slots are ignored.
+     * @param amount
+     */
+    @ReactMethod
+    public void incrementEvent(final int slot, final int amount) {
+        if (amount <= 0 || !mCounters.increment(slot, amount)) return;
+        if (!mFlushScheduled.get() && mFlushScheduled.compareAndSet(false, true)) {
+            mFlushHandler.postDelayed(mFlushTrigger, mFlushIntervalMs);
+        }
+    }
+
+    /**
+     * Sets the interval between two flushes of the counters.
+     * @param flushIntervalMs interval between flushes, in milliseconds. Pass 0 to use the default.
+     */
+    @ReactMethod
+    public void setEventFlushInterval(final int flushIntervalMs) {
+        mFlushIntervalMs = flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_EVENT_FLUSH_INTERVAL_MS;
+    }
+
+    /**
+     * Sends every counter to the games services right away.
+     * @param promise
+     */
+    @ReactMethod
+    public void flushEvents(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("events.flushEvents", rawPromise);
+        EventsClient eventsClient = getEventsClient();
+        if (eventsClient == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+        flushCounters(eventsClient);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Loads the events of the game.
+     * The events are cached; their counts always include the increments recorded since they were loaded.
+     * The promise is resolved with an array of { id, name, description, count, isVisible }.
+     * @param forceReload whether or not to bypass the cache and the local games service data.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadEvents(final boolean forceReload, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("events.loadEvents", rawPromise);
+        final EventsClient eventsClient = getEventsClient();
+        if (eventsClient == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+
+        if (forceReload) {
+            mEventsCache.invalidate();
+        }
+        mEventsCache.get(new SingleFlightCache.Loader<List<EventEntry>>() {
+            @Override
+            public Task<List<EventEntry>> load() {
+                // The loaded counts include every increment sent before the load.
+                flushCounters(eventsClient);
+                mCounters.resetFlushed();
+                return GamesClientRegistry.getInstance(getReactApplicationContext()).dispatch(
+                        CallDispatcher.FAMILY_EVENTS, CallDispatcher.LANE_INTERACTIVE,
+                        new GamesClientRegistry.TaskCall<AnnotatedData<EventBuffer>>() {
+                    @Override
+                    public Task<AnnotatedData<EventBuffer>> start() {
+                        return eventsClient.load(forceReload);
+                    }
+                }).continueWith(CallbackExecutors.background(),
+                        new Continuation<AnnotatedData<EventBuffer>, List<EventEntry>>() {
+                    @Override
+                    public List<EventEntry> then(@NonNull Task<AnnotatedData<EventBuffer>> task) throws Exception {
+                        if (!task.isSuccessful()) throw task.getException();
+                        return copyEvents(task.getResult().get());
+                    }
+                });
+            }
+        }).addOnSuccessListener(CallbackExecutors.background(), new OnSuccessListener<List<EventEntry>>() {
+            @Override
+            public void onSuccess(List<EventEntry> events) {
+                Helpers.resolvePromise(promise, getEventsArray(events));
+            }
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception e) {
+                Helpers.rejectPromise(promise, e);
+            }
+        });
+    }
+
+    /**
+     * Sets the token bucket of the event loads.
+     * @param burst number of calls that can be made at once after a quiet period.
+     * @param callsPerSecond sustained rate of calls.
+     * @param promise
+     */
+    @ReactMethod
+    public void setRateLimit(final int burst, final double callsPerSecond, final Promise promise) {
+        GamesClientRegistry.getInstance(getReactApplicationContext()).getDispatcher()
+                .setRateLimit(CallDispatcher.FAMILY_EVENTS, burst, callsPerSecond);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Makes the signed in account the one the counts belong to, dropping the counts of the previous account.
+     */
+    private synchronized void updateCountersAccount() {
+        GoogleSignInAccount account = GamesClientRegistry.getInstance(getReactApplicationContext()).getAccount();
+        String accountId = account == null ? null : account.getId();
+        if (accountId == null || accountId.equals(mCountersAccountId)) return;
+        if (mCountersAccountId != null) {
+            mCounters.clear();
+        }
+        mCountersAccountId = accountId;
+    }
+
+    /**
+     * Sends one increment per event with a pending count.
+     * EventsClient.increment only queues the increment in the games service, so nothing is awaited.
+     * @param eventsClient nullable; the counts are kept if the player is signed out.
+     */
+    private void flushCounters(final EventsClient eventsClient) {
+        if (eventsClient == null) return;
+        int size = mCounters.size();
+        for (int slot = 0; slot < size; slot++) {
+            long count = mCounters.take(slot);
+            while (count > 0) {
+                int increment = (int) Math.min(count, Integer.MAX_VALUE);
+                eventsClient.increment(mCounters.getId(slot), increment);
+                count -= increment;
+            }
+        }
+    }
+
+    private static List<EventEntry> copyEvents(final EventBuffer buffer) {
+        List<EventEntry> events = new ArrayList<>();
+        try {
+            for (Event event : buffer) {
+                events.add(new EventEntry(event.getEventId(), event.getName(), event.getDescription(),
+                        event.getValue(), event.isVisible()));
+            }
+        } finally {
+            buffer.release();
+        }
+        return events;
+    }
+
+    private WritableArray getEventsArray(final List<EventEntry> events) {
+        WritableArray array = Helpers.getReturnArray();
+        for (EventEntry entry : events) {
+            int slot = mCounters.getSlot(entry.id);
+            WritableMap event = Helpers.getReturnObject();
+            event.putString("id", entry.id);
+            event.putString("name", entry.name);
+            event.putString("description", entry.description);
+            event.putDouble("count", entry.count + (slot < 0 ? 0 : mCounters.getUnloaded(slot)));
+            event.putBoolean("isVisible", entry.isVisible);
+            array.pushMap(event);
+        }
+        return array;
+    }
+
+    /**
+     * @return EventsClient or null if the user is not signed in.
+     */
+    private EventsClient getEventsClient() {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getEventsClient();
+    }
+
+    @Override
+    public void onHostResume() {
+    }
+
+    @Override
+    public void onHostPause() {
+        flushCounters(getEventsClient());
+    }
+
+    @Override
+    public void onHostDestroy() {
+        mFlushHandler.removeCallbacks(mFlushTrigger);
+        mFlushScheduled.set(false);
+        flushCounters(getEventsClient());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Plain copy of the Event fields returned to JS.
+     */
+    private static class EventEntry {
+        final String id;
+        final String name;
+        final String description;
+        final long count;
+        final boolean isVisible;
+
+        EventEntry(final String id, final String name, final String description, final long count,
+                   final boolean isVisible) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.count = count;
+            this.isVisible = isVisible;
+        }
+    }
+}
@@ -1,30 +1,61 @@
 package com.sagargulati.rnplaygames;
 
-import android.app.Activity;
 import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
 
-import com.facebook.react.bridge.ActivityEventListener;
-import com.facebook.react.bridge.BaseActivityEventListener;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.games.Games;
-import com.google.android.gms.games.GamesActivityResultCodes;
+import com.google.android.gms.games.AnnotatedData;
 import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.games.PageDirection;
+import com.google.android.gms.games.leaderboard.Leaderboard;
+import com.google.android.gms.games.leaderboard.LeaderboardScore;
+import com.google.android.gms.games.leaderboard.LeaderboardScoreBuffer;
 import com.google.android.gms.games.leaderboard.LeaderboardVariant;
-import com.google.android.gms.games.leaderboard.ScoreSubmissionData;
+import com.google.android.gms.tasks.Continuation;
+import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.sagargulati.rnplaygames.core.BatchSubmitter;
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.LeaderboardsBackend;
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.PersonalBestCache;
+import com.sagargulati.rnplaygames.core.Results;
+import com.sagargulati.rnplaygames.core.ScoreSubmissionQueue;
+import com.sagargulati.rnplaygames.util.ActivityResultRouter;
+import com.sagargulati.rnplaygames.util.BulkPromise;
+import com.sagargulati.rnplaygames.util.CallbackExecutors;
+import com.sagargulati.rnplaygames.util.EventChannel;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
 import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.IntentCache;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+import com.sagargulati.rnplaygames.util.ScorePageCache;
+import com.sagargulati.rnplaygames.util.WritableResultMap;
+import com.sagargulati.rnplaygames.util.WriteJournal;
 
 /**
  * Leaderboards module.
@@ -32,40 +63,106 @@ import com.sagargulati.rnplaygames.util.Helpers;
  * @author Sagar Gulati
  * @version 0.0.1-beta (0.0.1-beta/6:54 PM Tuesday, January 14, 2020)
  */
-public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
-    private Promise mLeaderboardUIPromise;
-    private final static int RQC_SINGLE_LEADERBOARD_UI = 1014;
-    private final static int RQC_ALL_LEADERBOARDS_UI = 1015;
+public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule implements LifecycleEventListener {
+    public static final String NAME = "RNPlayGamesLeaderboard";
+    private final static long DEFAULT_SCORE_FLUSH_INTERVAL_MS = 5000;
+    private final static int MAX_CACHED_SCORE_BOARDS = 16;
+    private final static long SCORE_PAGE_TTL_MS = 60 * 1000;
+    private final static char CURSOR_SEPARATOR = '#';
+    private final static int MIN_PAGE_SIZE = 1;
+    private final static int MAX_PAGE_SIZE = 25;
+    private final static long INTENT_TTL_MS = 5 * 60 * 1000;
+    private final static long INTENT_STALE_MS = 55 * 60 * 1000;
+    private final static String ALL_LEADERBOARDS_INTENT_KEY = "all";
+
+    // Resolves the promise of a leaderboard UI once it is dismissed.
+    private final ActivityResultRouter.ResultHandler mLeaderboardUIResultHandler =
+            new ActivityResultRouter.ResultHandler() {
+                @Override
+                public void onActivityResult(int resultCode, Intent data, Promise promise) {
+                    Helpers.resolvePromise(promise);
+                }
+            };
+
+    // UI intents, fetched ahead of the show calls.
+    private final IntentCache mIntentCache = new IntentCache(INTENT_TTL_MS, INTENT_STALE_MS,
+            new IntentCache.Loader() {
+        @Override
+        public Task<Intent> load(String key) {
+            if (ALL_LEADERBOARDS_INTENT_KEY.equals(key)) {
+                return getAllLeaderboardsIntent();
+            }
+            // key: "<timeSpan>|<boardId>"
+            String[] keyParts = key.split("\\|", 2);
+            return getLeaderboardIntent(keyParts[1], Integer.parseInt(keyParts[0]));
+        }
+
+        @Override
+        public boolean isSignedIn() {
+            return getLeaderboardsClient() != null;
+        }
+    });
+
+    // Score batching
+    private final ScoreSubmissionQueue<Promise> mScoreQueue = new ScoreSubmissionQueue<>();
+    private final Handler mFlushHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean mFlushScheduled = new AtomicBoolean(false);
+    private volatile boolean mScoreBatchingEnabled = false;
+    private volatile long mScoreFlushIntervalMs = DEFAULT_SCORE_FLUSH_INTERVAL_MS;
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mFlushScheduled.set(false);
+            flushPendingScores(null);
+        }
+    };
+
+    // Score loading. Only the buffer of the last loaded page is kept open, to load the next page from it.
+    private final ScorePageCache mScorePageCache = new ScorePageCache(MAX_CACHED_SCORE_BOARDS, SCORE_PAGE_TTL_MS);
+    private final Object mOpenScoresLock = new Object();
+    private LeaderboardsClient.LeaderboardScores mOpenScores;
+    private String mOpenScoresKey;
+    private int mOpenScoresPageCount;
+
+    // Personal bests. Scores that cannot be a new best for any time span are not submitted.
+    private final PersonalBestCache mPersonalBests = new PersonalBestCache();
+    private final ConcurrentHashMap<String, Task<List<Task<?>>>> mPersonalBestLoads = new ConcurrentHashMap<>();
+    private final AtomicInteger mPersonalBestsGeneration = new AtomicInteger();
 
     // To be exposed to JS
     private static final String TIME_SPAN_DAILY = "TIME_SPAN_DAILY";
     private static final String TIME_SPAN_WEEKLY = "TIME_SPAN_WEEKLY";
     private static final String TIME_SPAN_ALL_TIME = "TIME_SPAN_ALL_TIME";
     private static final String COLLECTION_PUBLIC = "COLLECTION_PUBLIC";
+    private static final String SCORE_ORDER_LARGER_IS_BETTER = "SCORE_ORDER_LARGER_IS_BETTER";
+    private static final String SCORE_ORDER_SMALLER_IS_BETTER = "SCORE_ORDER_SMALLER_IS_BETTER";
+    public final static String SCORE_SUBMITTED_EVENT = "SCORE_SUBMITTED_EVENT";
+    public static final String SCORE_SUBMITTED_EVENT_NAME = "rnplaygamesscoresubmitted";
+
+    private final GamesClientRegistry.AuthStateListener mAuthStateListener =
+            new GamesClientRegistry.AuthStateListener() {
+        @Override
+        public void onAuthStateChanged(boolean isSignedIn) {
+            mScorePageCache.clear();
+            releaseOpenScores();
+            // Loads still in flight belong to the previous player.
+            mPersonalBestsGeneration.incrementAndGet();
+            mPersonalBests.clear();
+            mPersonalBestLoads.clear();
+            mIntentCache.clear();
+        }
+    };
 
     public RNPlayGamesLeaderboard(ReactApplicationContext reactContext) {
         super(reactContext);
-        ActivityEventListener mActivityEventListener = new BaseActivityEventListener() {
-            @Override
-            public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
-                super.onActivityResult(activity, requestCode, resultCode, data);
-
-                // check if the user signed out from the UI.
-                if (resultCode == GamesActivityResultCodes.RESULT_RECONNECT_REQUIRED) {
-                    Helpers.sendAuthStateChangedEvent(getReactApplicationContext(), false);
-                }
+        reactContext.addLifecycleEventListener(this);
+        GamesClientRegistry.getInstance(reactContext).addAuthStateListener(mAuthStateListener);
+    }
 
-                switch (requestCode) {
-                    case RQC_ALL_LEADERBOARDS_UI:
-                        handleAllLeaderboardsActivityResults(requestCode, resultCode, data);
-                        break;
-                    case RQC_SINGLE_LEADERBOARD_UI:
-                        handleSingleLeaderboardActivityResults(requestCode, resultCode, data);
-                        break;
-                }
-            }
-        };
-        reactContext.addActivityEventListener(mActivityEventListener);
+    @Override
+    public void onCatalystInstanceDestroy() {
+        // The registry outlives this module, e.g. across reloads of JS.
+        GamesClientRegistry.getInstance(getReactApplicationContext()).removeAuthStateListener(mAuthStateListener);
     }
 
     /**
@@ -74,9 +171,9 @@ public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
      * @param promise
      */
     @ReactMethod
-    public void showLeaderboardUI(final String boardId, final Promise promise) {
-        mLeaderboardUIPromise = promise;
-        singleLeaderboardUIHelper(boardId, LeaderboardVariant.TIME_SPAN_ALL_TIME);
+    public void showLeaderboardUI(final String boardId, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.showLeaderboardUI", rawPromise);
+        singleLeaderboardUIHelper(boardId, LeaderboardVariant.TIME_SPAN_ALL_TIME, promise);
     }
 
     /**
@@ -86,9 +183,9 @@ public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
      * @param promise
      */
     @ReactMethod
-    public void showLeaderboardUIFilteredTimeSpan(final String boardId, final int timeSpan, final Promise promise) {
-        mLeaderboardUIPromise = promise;
-        singleLeaderboardUIHelper(boardId, timeSpan);
+    public void showLeaderboardUIFilteredTimeSpan(final String boardId, final int timeSpan, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.showLeaderboardUIFilteredTimeSpan", rawPromise);
+        singleLeaderboardUIHelper(boardId, timeSpan, promise);
     }
 
     /**
@@ -96,24 +193,25 @@ public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
      * @param promise
      */
     @ReactMethod
-    public void showAllLeaderboardsUI(final Promise promise) {
-        mLeaderboardUIPromise = promise;
-        Task<Intent> allLeaderboardsIntent = this.getAllLeaderboardsIntent();
+    public void showAllLeaderboardsUI(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.showAllLeaderboardsUI", rawPromise);
+        Task<Intent> allLeaderboardsIntent = mIntentCache.get(ALL_LEADERBOARDS_INTENT_KEY);
 
         if (allLeaderboardsIntent == null) {
-            Helpers.rejectPromiseWithAuthenticationRequired(mLeaderboardUIPromise);
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        allLeaderboardsIntent.addOnSuccessListener(new OnSuccessListener<Intent>() {
+        allLeaderboardsIntent.addOnSuccessListener(CallbackExecutors.mainThread(), new OnSuccessListener<Intent>() {
             @Override
             public void onSuccess(Intent intent) {
-                getCurrentActivity().startActivityForResult(intent, RQC_ALL_LEADERBOARDS_UI);
+                ActivityResultRouter.getInstance(getReactApplicationContext()).startActivityForResult(
+                        getCurrentActivity(), intent, mLeaderboardUIResultHandler, promise);
             }
-        }).addOnFailureListener(new OnFailureListener() {
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
             @Override
             public void onFailure(@NonNull Exception e) {
-                Helpers.rejectPromise(mLeaderboardUIPromise, e);
+                Helpers.rejectPromise(promise, e);
             }
         });
     }
@@ -124,67 +222,117 @@ public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
      * On success, promise is resolved with object containing isNewBest key
      * @param boardId
      * @param timeSpan
+     * @param promise
      */
-    private void singleLeaderboardUIHelper(final String boardId, final int timeSpan) {
-        Task<Intent> leaderboardIntent = this.getLeaderboardIntent(boardId, timeSpan);
+    private void singleLeaderboardUIHelper(final String boardId, final int timeSpan, final Promise promise) {
+        Task<Intent> leaderboardIntent = mIntentCache.get(getLeaderboardIntentKey(boardId, timeSpan));
 
         if (leaderboardIntent == null) {
-            Helpers.rejectPromiseWithAuthenticationRequired(mLeaderboardUIPromise);
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
 
-        leaderboardIntent.addOnSuccessListener(new OnSuccessListener<Intent>() {
+        leaderboardIntent.addOnSuccessListener(CallbackExecutors.mainThread(), new OnSuccessListener<Intent>() {
             @Override
             public void onSuccess(Intent intent) {
-                getCurrentActivity().startActivityForResult(intent, RQC_SINGLE_LEADERBOARD_UI);
+                ActivityResultRouter.getInstance(getReactApplicationContext()).startActivityForResult(
+                        getCurrentActivity(), intent, mLeaderboardUIResultHandler, promise);
             }
         });
 
-        leaderboardIntent.addOnFailureListener(new OnFailureListener() {
+        leaderboardIntent.addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
             @Override
             public void onFailure(@NonNull Exception e) {
-                Helpers.rejectPromise(mLeaderboardUIPromise, e);
+                Helpers.rejectPromise(promise, e);
+            }
+        });
+    }
+
+    /**
+     * Fetches the UI intents of the specified leaderboards ahead of time, so that showLeaderboardUI and
+     * showLeaderboardUIFilteredTimeSpan open them right away.
+     * The intents are cached until the auth state changes and refreshed when the app resumes.
+     * @param boardIds array of leaderboard ids
+     * @param timeSpan TIME_SPAN_DAILY, TIME_SPAN_WEEKLY or TIME_SPAN_ALL_TIME
+     * @param promise resolved once every intent has been fetched, even if some of them failed.
+     */
+    @ReactMethod
+    public void prefetchLeaderboardUIs(final ReadableArray boardIds, final int timeSpan, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.prefetchLeaderboardUIs", rawPromise);
+        if (getLeaderboardsClient() == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+
+        List<Task<?>> fetches = new ArrayList<>();
+        for (int i = 0; i < boardIds.size(); i++) {
+            fetches.add(mIntentCache.prefetch(getLeaderboardIntentKey(boardIds.getString(i), timeSpan)));
+        }
+        Tasks.whenAllComplete(fetches).addOnCompleteListener(CallbackExecutors.background(),
+                new OnCompleteListener<List<Task<?>>>() {
+            @Override
+            public void onComplete(@NonNull Task<List<Task<?>>> task) {
+                Helpers.resolvePromise(promise);
             }
         });
     }
 
+    private static String getLeaderboardIntentKey(final String boardId, final int timeSpan) {
+        return timeSpan + "|" + boardId;
+    }
+
     /**
      * Submits the new score to the specified leaderhoard.
+     * Once the personal bests of the leaderboard are loaded, a score that is not a new best for any time span
+     * is not submitted, and the promise is resolved right away with isSkipped set to true.
      * @param boardId id of the leaderboard
      * @param score
      * @param scoreTag
      * @param promise
      */
     @ReactMethod
-    public void submitScore(final String boardId, final int score, String scoreTag, final Promise promise) {
-        try {
-            Task<ScoreSubmissionData> scoreSubmissionDataTask;
-            final WritableMap scoreResultsMap = Helpers.getReturnObject();
+    public void submitScore(final String boardId, final int score, final String scoreTag, final Promise rawPromise) {
+        submitScoreHelper(boardId, score, scoreTag, MethodMetrics.track("leaderboard.submitScore", rawPromise));
+    }
+
+    private void submitScoreHelper(final String boardId, final int score, final String scoreTag, final Promise promise) {
+        if (mScoreBatchingEnabled) {
+            mScoreQueue.enqueue(boardId, (long)score, scoreTag, promise);
+            scheduleScoreFlush();
+            return;
+        }
 
-            LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
-            if (leaderboardsClient == null) {
+        try {
+            LeaderboardsBackend leaderboardsBackend = getLeaderboardsBackend();
+            if (leaderboardsBackend == null) {
+                if (journalScore(boardId, score, scoreTag, null)) {
+                    Helpers.resolvePromise(promise, getQueuedScoreResult());
+                    return;
+                }
                 Helpers.rejectPromiseWithAuthenticationRequired(promise);
                 return;
             }
 
-            if (scoreTag == null) {
-                scoreSubmissionDataTask = leaderboardsClient.submitScoreImmediate(boardId, (long)score);
-            } else {
-                scoreSubmissionDataTask = leaderboardsClient.submitScoreImmediate(boardId,
-                        (long)score, scoreTag);
+            if (canSkipScore(boardId, score)) {
+                Helpers.resolvePromise(promise, getSkippedScoreResult());
+                return;
             }
-            scoreSubmissionDataTask.addOnSuccessListener(new OnSuccessListener<ScoreSubmissionData>() {
+
+            leaderboardsBackend.submitScoreImmediate(boardId, (long)score, scoreTag, new Callback<NewBests>() {
                 @Override
-                public void onSuccess(ScoreSubmissionData scoreSubmissionData) {
-                    // resolve promise with whether or not the score is a new best.
-                    scoreResultsMap.putBoolean("isNewBest",
-                            scoreSubmissionData.getScoreResult(LeaderboardVariant.TIME_SPAN_ALL_TIME)
-                                    .newBest);
-                    promise.resolve(scoreResultsMap);
+                public void onSuccess(NewBests newBests) {
+                    onScoreSubmitted(boardId, score, scoreTag, newBests);
+
+                    // resolve promise with the time spans the score is a new best for.
+                    promise.resolve(Results.writeScoreResult(new WritableResultMap(), newBests).getMap());
                 }
-            }).addOnFailureListener(new OnFailureListener() {
+
                 @Override
-                public void onFailure(@NonNull Exception e) {
+                public void onFailure(Exception e) {
+                    if (journalScore(boardId, score, scoreTag, e)) {
+                        Helpers.resolvePromise(promise, getQueuedScoreResult());
+                        return;
+                    }
                     Helpers.rejectPromise(promise,e);
                 }
             });
@@ -194,55 +342,683 @@ public class RNPlayGamesLeaderboard extends ReactContextBaseJavaModule  {
         }
     }
 
-    private Task<Intent> getLeaderboardIntent(final String boardId, final int timeSpan) {
+    /**
+     * Submits several scores at once, e.g. at the end of a match.
+     * Every score goes through the same path as submitScore, and the scores are submitted concurrently.
+     * The promise is resolved once with one { status, value } or { status, code, message } result per score.
+     * @param scores array of { boardId, score, scoreTag }
+     * @param promise
+     */
+    @ReactMethod
+    public void submitScores(final ReadableArray scores, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.submitScores", rawPromise);
+        BulkPromise bulkPromise = new BulkPromise(scores.size(), promise);
+        for (int i = 0; i < scores.size(); i++) {
+            Promise itemPromise = bulkPromise.getItemPromise(i);
+            try {
+                ReadableMap item = scores.getMap(i);
+                String scoreTag = item.hasKey("scoreTag") && !item.isNull("scoreTag")
+                        ? item.getString("scoreTag")
+                        : null;
+                submitScoreHelper(item.getString("boardId"), item.getInt("score"), scoreTag, itemPromise);
+            } catch (Exception e) {
+                Helpers.rejectPromise(itemPromise, e);
+            }
+        }
+    }
+
+    /**
+     * Enables or disables score batching.
+     * While enabled, submitScore only keeps the best pending score per leaderboard and score tag,
+     * and pending scores are submitted every flushIntervalMs, when the app is paused or when flushScores is called.
+     * Disabling batching flushes the pending scores.
+     * @param enabled
+     * @param flushIntervalMs interval between flushes, in milliseconds. Pass 0 to use the default.
+     * @param promise
+     */
+    @ReactMethod
+    public void setScoreBatchingEnabled(final boolean enabled, final int flushIntervalMs, final Promise promise) {
+        mScoreFlushIntervalMs = flushIntervalMs > 0 ? flushIntervalMs : DEFAULT_SCORE_FLUSH_INTERVAL_MS;
+        mScoreBatchingEnabled = enabled;
+        if (!enabled) {
+            flushPendingScores(promise);
+            return;
+        }
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Sets the token bucket of the leaderboard calls. Calls over the limit wait for a token, and
+     * UI and reads go before queued writes.
+     * @param burst number of calls that can be made at once after a quiet period.
+     * @param callsPerSecond sustained rate of calls.
+     * @param promise
+     */
+    @ReactMethod
+    public void setRateLimit(final int burst, final double callsPerSecond, final Promise promise) {
+        GamesClientRegistry.getInstance(getReactApplicationContext()).getDispatcher()
+                .setRateLimit(CallDispatcher.FAMILY_LEADERBOARDS, burst, callsPerSecond);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Sets the score order of the specified leaderboard, used to pick the best pending score and to tell
+     * whether a score is a new best. The order is also read from the leaderboard when its personal bests load.
+     * @param boardId id of the leaderboard
+     * @param scoreOrder SCORE_ORDER_LARGER_IS_BETTER or SCORE_ORDER_SMALLER_IS_BETTER
+     */
+    @ReactMethod
+    public void setLeaderboardScoreOrder(final String boardId, final int scoreOrder) {
+        setSmallerIsBetter(boardId, scoreOrder == Leaderboard.SCORE_ORDER_SMALLER_IS_BETTER);
+    }
+
+    private void setSmallerIsBetter(final String boardId, final boolean smallerIsBetter) {
+        mScoreQueue.setSmallerIsBetter(boardId, smallerIsBetter);
+        mPersonalBests.setSmallerIsBetter(boardId, smallerIsBetter);
+    }
+
+    /**
+     * Loads the daily, weekly and all time bests of the current player on the specified leaderboards, so that
+     * the scores submitted to them can be skipped when they are not a new best.
+     * Personal bests are never loaded otherwise, they are only learned from the scores that are new bests.
+     * The promise is resolved once every load has completed, even if some of them failed.
+     * @param boardIds array of leaderboard ids
+     * @param promise
+     */
+    @ReactMethod
+    public void loadPersonalBests(final ReadableArray boardIds, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.loadPersonalBests", rawPromise);
+        if (getLeaderboardsClient() == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+
+        List<Task<?>> loads = new ArrayList<>();
+        for (int i = 0; i < boardIds.size(); i++) {
+            Task<List<Task<?>>> load = loadPersonalBestsHelper(boardIds.getString(i));
+            if (load != null) {
+                loads.add(load);
+            }
+        }
+        Tasks.whenAllComplete(loads).addOnCompleteListener(CallbackExecutors.background(),
+                new OnCompleteListener<List<Task<?>>>() {
+            @Override
+            public void onComplete(@NonNull Task<List<Task<?>>> task) {
+                Helpers.resolvePromise(promise);
+            }
+        });
+    }
+
+    /**
+     * @return whether or not the score is known not to be a new best for any time span.
+     */
+    private boolean canSkipScore(final String boardId, final long score) {
+        long now = System.currentTimeMillis();
+        return mPersonalBests.isLoaded(boardId, now) && !mPersonalBests.evaluate(boardId, score, now).isAny();
+    }
+
+    /**
+     * Loads the score order of the leaderboard, then the current player's best for every time span.
+     * @return the load, shared with any load of the same leaderboard already in flight,
+     * or null if the user is not signed in.
+     */
+    private Task<List<Task<?>>> loadPersonalBestsHelper(final String boardId) {
+        Task<List<Task<?>>> inFlight = mPersonalBestLoads.get(boardId);
+        if (inFlight != null) return inFlight;
+
+        final LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
+        if (leaderboardsClient == null) return null;
+
+        final GamesClientRegistry registry = GamesClientRegistry.getInstance(getReactApplicationContext());
+        final int generation = mPersonalBestsGeneration.get();
+        final int lane = CallDispatcher.LANE_INTERACTIVE;
+        Task<List<Task<?>>> load = registry.dispatch(CallDispatcher.FAMILY_LEADERBOARDS, lane,
+                new GamesClientRegistry.TaskCall<AnnotatedData<Leaderboard>>() {
+            @Override
+            public Task<AnnotatedData<Leaderboard>> start() {
+                return leaderboardsClient.loadLeaderboardMetadata(boardId, false);
+            }
+        }).continueWithTask(CallbackExecutors.background(),
+                new Continuation<AnnotatedData<Leaderboard>, Task<List<Task<?>>>>() {
+            @Override
+            public Task<List<Task<?>>> then(@NonNull Task<AnnotatedData<Leaderboard>> task) {
+                Leaderboard leaderboard = task.isSuccessful() ? task.getResult().get() : null;
+                if (leaderboard != null && generation == mPersonalBestsGeneration.get()) {
+                    setSmallerIsBetter(boardId,
+                            leaderboard.getScoreOrder() == Leaderboard.SCORE_ORDER_SMALLER_IS_BETTER);
+                }
+
+                List<Task<?>> bestLoads = new ArrayList<>();
+                for (final int timeSpan : new int[] {LeaderboardVariant.TIME_SPAN_DAILY,
+                        LeaderboardVariant.TIME_SPAN_WEEKLY, LeaderboardVariant.TIME_SPAN_ALL_TIME}) {
+                    bestLoads.add(registry.dispatch(CallDispatcher.FAMILY_LEADERBOARDS, lane,
+                            new GamesClientRegistry.TaskCall<AnnotatedData<LeaderboardScore>>() {
+                        @Override
+                        public Task<AnnotatedData<LeaderboardScore>> start() {
+                            return leaderboardsClient.loadCurrentPlayerLeaderboardScore(boardId, timeSpan,
+                                    LeaderboardVariant.COLLECTION_PUBLIC);
+                        }
+                    }).addOnSuccessListener(CallbackExecutors.background(),
+                            new OnSuccessListener<AnnotatedData<LeaderboardScore>>() {
+                        @Override
+                        public void onSuccess(AnnotatedData<LeaderboardScore> data) {
+                            if (generation != mPersonalBestsGeneration.get()) return;
+                            LeaderboardScore best = data.get();
+                            mPersonalBests.putBest(boardId, timeSpan, best == null ? null : best.getRawScore(),
+                                    System.currentTimeMillis());
+                        }
+                    }));
+                }
+                return Tasks.whenAllComplete(bestLoads);
+            }
+        });
+
+        inFlight = mPersonalBestLoads.putIfAbsent(boardId, load);
+        if (inFlight != null) return inFlight;
+        load.addOnCompleteListener(CallbackExecutors.background(), new OnCompleteListener<List<Task<?>>>() {
+            @Override
+            public void onComplete(@NonNull Task<List<Task<?>>> task) {
+                mPersonalBestLoads.remove(boardId, task);
+            }
+        });
+        return load;
+    }
+
+    /**
+     * Submits every pending score right away.
+     * The promise is resolved once all the pending submissions have completed.
+     * @param promise
+     */
+    @ReactMethod
+    public void flushScores(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.flushScores", rawPromise);
+        flushPendingScores(promise);
+    }
+
+    private void scheduleScoreFlush() {
+        if (mFlushScheduled.compareAndSet(false, true)) {
+            mFlushHandler.postDelayed(mFlushRunnable, mScoreFlushIntervalMs);
+        }
+    }
+
+    /**
+     * Submits the best pending score of every board and score tag, then settles every caller folded into it.
+     * A caller is told its score is a new best only if it is the score that was submitted.
+     * @param promise nullable, resolved once every submission has completed.
+     */
+    private void flushPendingScores(final Promise promise) {
+        final List<ScoreSubmissionQueue.PendingScore<Promise>> pendingScores = mScoreQueue.drain();
+        if (pendingScores.isEmpty()) {
+            Helpers.resolvePromise(promise);
+            return;
+        }
+
+        LeaderboardsBackend leaderboardsBackend = getLeaderboardsBackend();
+        if (leaderboardsBackend == null) {
+            boolean isJournaled = true;
+            for (ScoreSubmissionQueue.PendingScore<Promise> pending : pendingScores) {
+                if (journalScore(pending.boardId, pending.getBestScore(), pending.scoreTag, null)) {
+                    for (ScoreSubmissionQueue.Waiter<Promise> waiter : pending.waiters) {
+                        Helpers.resolvePromise(waiter.handle, getQueuedScoreResult());
+                    }
+                    continue;
+                }
+                isJournaled = false;
+                for (ScoreSubmissionQueue.Waiter<Promise> waiter : pending.waiters) {
+                    Helpers.rejectPromiseWithAuthenticationRequired(waiter.handle);
+                }
+            }
+            if (isJournaled) {
+                Helpers.resolvePromise(promise);
+            } else {
+                Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            }
+            return;
+        }
+
+        List<ScoreSubmissionQueue.PendingScore<Promise>> submittedScores = new ArrayList<>();
+        for (ScoreSubmissionQueue.PendingScore<Promise> pending : pendingScores) {
+            if (!canSkipScore(pending.boardId, pending.getBestScore())) {
+                submittedScores.add(pending);
+                continue;
+            }
+            for (ScoreSubmissionQueue.Waiter<Promise> waiter : pending.waiters) {
+                Helpers.resolvePromise(waiter.handle, getSkippedScoreResult());
+            }
+        }
+
+        BatchSubmitter.submitScores(submittedScores, leaderboardsBackend,
+                new BatchSubmitter.Listener<ScoreSubmissionQueue.PendingScore<Promise>, NewBests>() {
+            @Override
+            public void onSubmitted(ScoreSubmissionQueue.PendingScore<Promise> pending, NewBests newBests) {
+                onScoreSubmitted(pending.boardId, pending.getBestScore(), pending.scoreTag, newBests);
+                for (ScoreSubmissionQueue.Waiter<Promise> waiter : pending.waiters) {
+                    Helpers.resolvePromise(waiter.handle, Results.writeScoreResult(new WritableResultMap(),
+                            pending.isNewBestFor(waiter, newBests)).getMap());
+                }
+            }
+
+            @Override
+            public void onFailed(ScoreSubmissionQueue.PendingScore<Promise> pending, Exception e) {
+                boolean isJournaled = journalScore(pending.boardId, pending.getBestScore(), pending.scoreTag, e);
+                for (ScoreSubmissionQueue.Waiter<Promise> waiter : pending.waiters) {
+                    if (isJournaled) {
+                        Helpers.resolvePromise(waiter.handle, getQueuedScoreResult());
+                    } else {
+                        Helpers.rejectPromise(waiter.handle, e);
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                Helpers.resolvePromise(promise);
+            }
+        });
+    }
+
+    /**
+     * Loads the first page of the top scores of the specified leaderboard.
+     * The promise is resolved with { scores, cursor }. Pass the cursor to loadMoreScores
+     * to load the next page; it is null when there are no more scores.
+     * @param boardId id of the leaderboard
+     * @param timeSpan TIME_SPAN_DAILY, TIME_SPAN_WEEKLY or TIME_SPAN_ALL_TIME
+     * @param collection COLLECTION_PUBLIC
+     * @param pageSize number of scores per page, between 1 and 25.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadTopScores(final String boardId, final int timeSpan, final int collection, final int pageSize,
+                              final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.loadTopScores", rawPromise);
+        if (!isValidPageSize(pageSize)) {
+            Helpers.rejectPromiseWithInvalidArgument(promise, "pageSize must be between 1 and 25.");
+            return;
+        }
+        resolveScorePage(ScorePageCache.getKey(false, boardId, timeSpan, collection, pageSize), 0, promise);
+    }
+
+    /**
+     * Loads the first page of the scores around the current player on the specified leaderboard.
+     * Resolves like loadTopScores.
+     * @param boardId id of the leaderboard
+     * @param timeSpan TIME_SPAN_DAILY, TIME_SPAN_WEEKLY or TIME_SPAN_ALL_TIME
+     * @param collection COLLECTION_PUBLIC
+     * @param pageSize number of scores per page, between 1 and 25.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadPlayerCenteredScores(final String boardId, final int timeSpan, final int collection,
+                                         final int pageSize, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.loadPlayerCenteredScores", rawPromise);
+        if (!isValidPageSize(pageSize)) {
+            Helpers.rejectPromiseWithInvalidArgument(promise, "pageSize must be between 1 and 25.");
+            return;
+        }
+        resolveScorePage(ScorePageCache.getKey(true, boardId, timeSpan, collection, pageSize), 0, promise);
+    }
+
+    /**
+     * Loads the page of scores designated by a cursor returned from a previous load.
+     * The promise is rejected with E_INVALID_ARGUMENT if the cursor was not returned by a load.
+     * @param cursor
+     * @param promise
+     */
+    @ReactMethod
+    public void loadMoreScores(final String cursor, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("leaderboard.loadMoreScores", rawPromise);
+        int separator = cursor == null ? -1 : cursor.lastIndexOf(CURSOR_SEPARATOR);
+        if (separator < 0 || !isValidScorePageKey(cursor.substring(0, separator))) {
+            Helpers.rejectPromiseWithInvalidArgument(promise, "Invalid cursor.");
+            return;
+        }
+
+        int pageIndex;
+        try {
+            pageIndex = Integer.parseInt(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            pageIndex = -1;
+        }
+        // The first page is only loaded by loadTopScores and loadPlayerCenteredScores.
+        if (pageIndex < 1) {
+            Helpers.rejectPromiseWithInvalidArgument(promise, "Invalid cursor.");
+            return;
+        }
+        resolveScorePage(cursor.substring(0, separator), pageIndex, promise);
+    }
+
+    private static boolean isValidPageSize(final int pageSize) {
+        return pageSize >= MIN_PAGE_SIZE && pageSize <= MAX_PAGE_SIZE;
+    }
+
+    /**
+     * Whether or not the key has the format of ScorePageCache.getKey, which loadScorePage relies on.
+     */
+    private static boolean isValidScorePageKey(final String key) {
+        String[] keyParts = key.split("\\|", 5);
+        if (keyParts.length != 5 || keyParts[4].isEmpty()) return false;
+        if (!"top".equals(keyParts[0]) && !"centered".equals(keyParts[0])) return false;
+        try {
+            Integer.parseInt(keyParts[1]);
+            Integer.parseInt(keyParts[2]);
+            return isValidPageSize(Integer.parseInt(keyParts[3]));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private void resolveScorePage(final String key, final int pageIndex, final Promise promise) {
+        List<ScorePageCache.ScoreEntry> cachedPage = mScorePageCache.getPage(key, pageIndex);
+        if (cachedPage != null) {
+            Helpers.resolvePromise(promise, getScorePageObject(key, pageIndex, cachedPage));
+            return;
+        }
+
         LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
+        if (leaderboardsClient == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+
+        loadScorePage(leaderboardsClient, key, pageIndex).addOnSuccessListener(CallbackExecutors.background(),
+                new OnSuccessListener<List<ScorePageCache.ScoreEntry>>() {
+            @Override
+            public void onSuccess(List<ScorePageCache.ScoreEntry> page) {
+                Helpers.resolvePromise(promise, getScorePageObject(key, pageIndex, page));
+            }
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
+            @Override
+            public void onFailure(@NonNull Exception e) {
+                Helpers.rejectPromise(promise, e);
+            }
+        });
+    }
+
+    /**
+     * Loads a page of scores from the games service.
+     * The next page can only be loaded from the buffer of the previous page, so if that buffer
+     * is no longer open, the previous pages are loaded again first (they are usually served from
+     * the local games service cache). If a previous page loaded again turns out to be the last one,
+     * the page is empty.
+     * @param key a key validated by isValidScorePageKey.
+     * @param pageIndex 0 or more.
+     */
+    private Task<List<ScorePageCache.ScoreEntry>> loadScorePage(final LeaderboardsClient leaderboardsClient,
+                                                               final String key, final int pageIndex) {
+        // key: "<top|centered>|<timeSpan>|<collection>|<pageSize>|<boardId>"
+        final String[] keyParts = key.split("\\|", 5);
+        final int pageSize = Integer.parseInt(keyParts[3]);
+
+        Task<AnnotatedData<LeaderboardsClient.LeaderboardScores>> scoresTask;
+        if (pageIndex == 0) {
+            final boolean playerCentered = "centered".equals(keyParts[0]);
+            final int timeSpan = Integer.parseInt(keyParts[1]);
+            final int collection = Integer.parseInt(keyParts[2]);
+            scoresTask = dispatch(new GamesClientRegistry.TaskCall<AnnotatedData<LeaderboardsClient.LeaderboardScores>>() {
+                @Override
+                public Task<AnnotatedData<LeaderboardsClient.LeaderboardScores>> start() {
+                    return playerCentered
+                            ? leaderboardsClient.loadPlayerCenteredScores(keyParts[4], timeSpan, collection, pageSize, false)
+                            : leaderboardsClient.loadTopScores(keyParts[4], timeSpan, collection, pageSize, false);
+                }
+            });
+        } else {
+            LeaderboardScoreBuffer openBuffer = null;
+            synchronized (mOpenScoresLock) {
+                if (mOpenScores != null && key.equals(mOpenScoresKey) && mOpenScoresPageCount == pageIndex) {
+                    openBuffer = mOpenScores.getScores();
+                }
+            }
+
+            if (openBuffer == null) {
+                return loadScorePage(leaderboardsClient, key, pageIndex - 1).continueWithTask(
+                        CallbackExecutors.background(),
+                        new Continuation<List<ScorePageCache.ScoreEntry>, Task<List<ScorePageCache.ScoreEntry>>>() {
+                    @Override
+                    public Task<List<ScorePageCache.ScoreEntry>> then(@NonNull Task<List<ScorePageCache.ScoreEntry>> task)
+                            throws Exception {
+                        if (!task.isSuccessful()) throw task.getException();
+                        if (task.getResult().size() < pageSize) {
+                            // The board shrank since the cursor was returned, there is no such page anymore.
+                            return Tasks.forResult(Collections.<ScorePageCache.ScoreEntry>emptyList());
+                        }
+                        return loadScorePage(leaderboardsClient, key, pageIndex);
+                    }
+                });
+            }
+            final LeaderboardScoreBuffer previousBuffer = openBuffer;
+            scoresTask = dispatch(new GamesClientRegistry.TaskCall<AnnotatedData<LeaderboardsClient.LeaderboardScores>>() {
+                @Override
+                public Task<AnnotatedData<LeaderboardsClient.LeaderboardScores>> start() {
+                    return leaderboardsClient.loadMoreScores(previousBuffer, pageSize, PageDirection.NEXT);
+                }
+            });
+        }
+
+        return scoresTask.continueWith(CallbackExecutors.background(),
+                new Continuation<AnnotatedData<LeaderboardsClient.LeaderboardScores>, List<ScorePageCache.ScoreEntry>>() {
+            @Override
+            public List<ScorePageCache.ScoreEntry> then(@NonNull Task<AnnotatedData<LeaderboardsClient.LeaderboardScores>> task)
+                    throws Exception {
+                if (!task.isSuccessful()) throw task.getException();
+                return onScoresLoaded(key, pageIndex, pageSize, task.getResult().get());
+            }
+        });
+    }
+
+    /**
+     * Copies the new page out of the loaded scores and keeps them open only if another page may follow.
+     */
+    private List<ScorePageCache.ScoreEntry> onScoresLoaded(final String key, final int pageIndex, final int pageSize,
+                                                          final LeaderboardsClient.LeaderboardScores scores) {
+        List<ScorePageCache.ScoreEntry> page = new ArrayList<>();
+        LeaderboardScoreBuffer buffer = scores.getScores();
+        int count = buffer.getCount();
+
+        // A buffer loaded with loadMoreScores replaces the previous one and holds every page loaded so far,
+        // so a buffer that did not grow past the previous pages has no new page: the board ends there.
+        int start = pageIndex * pageSize;
+        int end = Math.min(count, start + pageSize);
+        for (int i = start; i < end; i++) {
+            LeaderboardScore score = buffer.get(i);
+            page.add(new ScorePageCache.ScoreEntry(score.getRank(), score.getDisplayRank(), score.getRawScore(),
+                    score.getDisplayScore(), score.getScoreTag(), score.getTimestampMillis(),
+                    score.getScoreHolder() != null ? score.getScoreHolder().getPlayerId() : null,
+                    score.getScoreHolderDisplayName()));
+        }
+
+        boolean isLast = page.size() < pageSize;
+        mScorePageCache.putPage(key, pageIndex, page, isLast);
+
+        LeaderboardsClient.LeaderboardScores previousScores;
+        synchronized (mOpenScoresLock) {
+            previousScores = mOpenScores;
+            mOpenScores = isLast ? null : scores;
+            mOpenScoresKey = isLast ? null : key;
+            mOpenScoresPageCount = pageIndex + 1;
+        }
+        if (previousScores != null && previousScores != scores) {
+            previousScores.release();
+        }
+        if (isLast) {
+            scores.release();
+        }
+        return page;
+    }
+
+    private void releaseOpenScores() {
+        LeaderboardsClient.LeaderboardScores openScores;
+        synchronized (mOpenScoresLock) {
+            openScores = mOpenScores;
+            mOpenScores = null;
+            mOpenScoresKey = null;
+        }
+        if (openScores != null) {
+            openScores.release();
+        }
+    }
+
+    private WritableMap getScorePageObject(final String key, final int pageIndex,
+                                           final List<ScorePageCache.ScoreEntry> page) {
+        WritableArray scores = Helpers.getReturnArray();
+        for (ScorePageCache.ScoreEntry entry : page) {
+            WritableMap score = Helpers.getReturnObject();
+            score.putDouble("rank", entry.rank);
+            score.putString("displayRank", entry.displayRank);
+            score.putDouble("rawScore", entry.rawScore);
+            score.putString("displayScore", entry.displayScore);
+            score.putString("scoreTag", entry.scoreTag);
+            score.putDouble("timestamp", entry.timestamp);
+            score.putString("playerId", entry.playerId);
+            score.putString("displayName", entry.displayName);
+            scores.pushMap(score);
+        }
+
+        WritableMap pageObject = Helpers.getReturnObject();
+        pageObject.putArray("scores", scores);
+        if (mScorePageCache.hasMore(key, pageIndex)) {
+            pageObject.putString("cursor", key + CURSOR_SEPARATOR + (pageIndex + 1));
+        } else {
+            pageObject.putNull("cursor");
+        }
+        return pageObject;
+    }
+
+    /**
+     * Records a score that could not be submitted in the write journal, if journaling is enabled.
+     * @param e the failure, or null if the player is signed out.
+     * @return whether or not the score was journaled and will be replayed later.
+     */
+    private boolean journalScore(final String boardId, final long score, final String scoreTag, final Exception e) {
+        WriteJournal journal = WriteJournal.getInstance(getReactApplicationContext());
+        if (!journal.isEnabled() || (e != null && !Helpers.isTransientFailure(e))) {
+            return false;
+        }
+        journal.recordScore(boardId, score, scoreTag);
+        return true;
+    }
+
+    private void onScoreSubmitted(final String boardId, final long score, final String scoreTag,
+                                  final NewBests newBests) {
+        mScorePageCache.invalidateBoard(boardId);
+        mPersonalBests.recordSubmission(boardId, score, newBests, System.currentTimeMillis());
+        sendScoreSubmittedEvent(boardId, score, scoreTag, newBests);
+    }
+
+    private void sendScoreSubmittedEvent(final String boardId, final long score, final String scoreTag,
+                                         final NewBests newBests) {
+        EventChannel.getInstance(getReactApplicationContext()).emitEvent(SCORE_SUBMITTED_EVENT_NAME,
+                new EventChannel.Payload() {
+            @Override
+            public WritableMap build() {
+                WritableMap event = Helpers.getReturnObject();
+                event.putString("boardId", boardId);
+                event.putDouble("score", score);
+                event.putString("scoreTag", scoreTag);
+                event.putBoolean("isNewBest", newBests.allTime);
+                event.putBoolean("isNewDailyBest", newBests.daily);
+                event.putBoolean("isNewWeeklyBest", newBests.weekly);
+                event.putBoolean("isNewAllTimeBest", newBests.allTime);
+                return event;
+            }
+        });
+    }
+
+    private static WritableMap getQueuedScoreResult() {
+        return Results.writeQueuedScoreResult(new WritableResultMap()).getMap();
+    }
+
+    private static WritableMap getSkippedScoreResult() {
+        return Results.writeSkippedScoreResult(new WritableResultMap()).getMap();
+    }
+
+    private Task<Intent> getLeaderboardIntent(final String boardId, final int timeSpan) {
+        final LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
         if (leaderboardsClient != null) {
-            return leaderboardsClient.getLeaderboardIntent(boardId, timeSpan);
+            return dispatch(new GamesClientRegistry.TaskCall<Intent>() {
+                @Override
+                public Task<Intent> start() {
+                    return leaderboardsClient.getLeaderboardIntent(boardId, timeSpan);
+                }
+            });
         }
         return null;
     }
 
     private Task<Intent> getAllLeaderboardsIntent() {
-        LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
+        final LeaderboardsClient leaderboardsClient = getLeaderboardsClient();
         if (leaderboardsClient != null) {
-            return leaderboardsClient.getAllLeaderboardsIntent();
+            return dispatch(new GamesClientRegistry.TaskCall<Intent>() {
+                @Override
+                public Task<Intent> start() {
+                    return leaderboardsClient.getAllLeaderboardsIntent();
+                }
+            });
         }
         return null;
     }
 
+    /**
+     * Makes a call the player is waiting on through the dispatcher, ahead of the queued writes.
+     */
+    private <T> Task<T> dispatch(final GamesClientRegistry.TaskCall<T> call) {
+        return GamesClientRegistry.getInstance(getReactApplicationContext())
+                .dispatch(CallDispatcher.FAMILY_LEADERBOARDS, CallDispatcher.LANE_INTERACTIVE, call);
+    }
+
     /**
      * Attempts to retrieve an instance of LeaderboardsClient.
      * @return LeaderboardsClient or null if the user is not signed in.
      */
     private LeaderboardsClient getLeaderboardsClient() {
-        if (GoogleSignIn.getLastSignedInAccount(getReactApplicationContext()) != null) {
-            return Games.getLeaderboardsClient(getReactApplicationContext(),
-                    GoogleSignIn.getLastSignedInAccount(getReactApplicationContext()));
-        }
-        return null;
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getLeaderboardsClient();
     }
 
-    private void handleSingleLeaderboardActivityResults(final int requestCode, final int resultCode, final Intent data) {
-        Helpers.resolvePromise(mLeaderboardUIPromise);
+    /**
+     * @return LeaderboardsBackend or null if the user is not signed in.
+     */
+    private LeaderboardsBackend getLeaderboardsBackend() {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getLeaderboardsBackend();
+    }
+
+    @Override
+    public void onHostResume() {
+        // Only the intents already shown or prefetched, so that a game never showing them makes no calls.
+        mIntentCache.refreshAll();
     }
 
-    private void handleAllLeaderboardsActivityResults(final int requestCode, final int resultCode, final Intent data) {
-        Helpers.resolvePromise(mLeaderboardUIPromise);
+    @Override
+    public void onHostPause() {
+        // Do not hold scores while the game is in the background.
+        if (!mScoreQueue.isEmpty()) {
+            flushPendingScores(null);
+        }
+        releaseOpenScores();
     }
 
+    @Override
+    public void onHostDestroy() {
+        mFlushHandler.removeCallbacks(mFlushRunnable);
+        mFlushScheduled.set(false);
+        flushPendingScores(null);
+        releaseOpenScores();
+    }
 
     @Override
     public String getName() {
-        return "RNPlayGamesLeaderboard";
+        return NAME;
     }
 
     @Override
     public Map<String, Object> getConstants() {
         final Map<String, Object> constants = new HashMap<>();
+        constants.put(SCORE_SUBMITTED_EVENT, SCORE_SUBMITTED_EVENT_NAME);
         constants.put(TIME_SPAN_DAILY, LeaderboardVariant.TIME_SPAN_DAILY);
         constants.put(TIME_SPAN_WEEKLY, LeaderboardVariant.TIME_SPAN_WEEKLY);
         constants.put(TIME_SPAN_ALL_TIME, LeaderboardVariant.TIME_SPAN_ALL_TIME);
         constants.put(COLLECTION_PUBLIC, LeaderboardVariant.COLLECTION_PUBLIC);
+        constants.put(SCORE_ORDER_LARGER_IS_BETTER, Leaderboard.SCORE_ORDER_LARGER_IS_BETTER);
+        constants.put(SCORE_ORDER_SMALLER_IS_BETTER, Leaderboard.SCORE_ORDER_SMALLER_IS_BETTER);
         return constants;
     }
 }
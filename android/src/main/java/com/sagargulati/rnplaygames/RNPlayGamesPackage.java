@@ -1,30 +1,96 @@
 package com.sagargulati.rnplaygames;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.TurboReactPackage;
 import com.facebook.react.bridge.JavaScriptModule;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
+import com.sagargulati.rnplaygames.util.CallbackExecutors;
 
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * React Native Google Play Games Services for Android
+ * Modules are created the first time JS uses them, so a game only pays for the modules it uses.
+ * RNPlayGamesAuth is created with the React context when the sign in is pre-warmed.
  *
  * @author Sagar Gulati
  * @version 0.0.1-beta (0.0.1-beta/6:54 PM Tuesday, January 14, 2020)
  */
-public class RNPlayGamesPackage implements ReactPackage {
+public class RNPlayGamesPackage extends TurboReactPackage {
+    private final boolean mPrewarmSignIn;
+
+    public RNPlayGamesPackage() {
+      this(false);
+    }
+
+    /**
+     * @param prewarmSignIn whether or not to start the silent sign in as soon as the React context
+     *                      and the host activity exist, instead of waiting for signInPlayerInBackground.
+     */
+    public RNPlayGamesPackage(boolean prewarmSignIn) {
+      mPrewarmSignIn = prewarmSignIn;
+    }
+
+    /**
+     * @param prewarmSignIn see RNPlayGamesPackage(boolean).
+     * @param callbackExecutor executor the games services results are handled on, instead of the
+     *                         default background thread. Must not be the main thread.
+     */
+    public RNPlayGamesPackage(boolean prewarmSignIn, Executor callbackExecutor) {
+      this(prewarmSignIn);
+      CallbackExecutors.setBackgroundExecutor(callbackExecutor);
+    }
+
+    @Override
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+      switch (name) {
+        case RNPlayGamesAuth.NAME:
+          return new RNPlayGamesAuth(reactContext, mPrewarmSignIn);
+        case RNPlayGamesPlayer.NAME:
+          return new RNPlayGamesPlayer(reactContext);
+        case RNPlayGamesLeaderboard.NAME:
+          return new RNPlayGamesLeaderboard(reactContext);
+        case RNPlayGamesAchievement.NAME:
+          return new RNPlayGamesAchievement(reactContext);
+        case RNPlayGamesSnapshots.NAME:
+          return new RNPlayGamesSnapshots(reactContext);
+        case RNPlayGamesEvents.NAME:
+          return new RNPlayGamesEvents(reactContext);
+        default:
+          return null;
+      }
+    }
+
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-      return Arrays.<NativeModule>asList(
-              new RNPlayGamesAuth(reactContext),
-              new RNPlayGamesPlayer(reactContext),
-              new RNPlayGamesLeaderboard(reactContext),
-              new RNPlayGamesAchievement(reactContext)
-      );
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+      final Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+      // The pre-warmed sign in starts from the constructor of RNPlayGamesAuth.
+      putModuleInfo(moduleInfos, RNPlayGamesAuth.NAME, RNPlayGamesAuth.class, mPrewarmSignIn, true);
+      putModuleInfo(moduleInfos, RNPlayGamesPlayer.NAME, RNPlayGamesPlayer.class, false, false);
+      putModuleInfo(moduleInfos, RNPlayGamesLeaderboard.NAME, RNPlayGamesLeaderboard.class, false, true);
+      putModuleInfo(moduleInfos, RNPlayGamesAchievement.NAME, RNPlayGamesAchievement.class, false, true);
+      putModuleInfo(moduleInfos, RNPlayGamesSnapshots.NAME, RNPlayGamesSnapshots.class, false, true);
+      putModuleInfo(moduleInfos, RNPlayGamesEvents.NAME, RNPlayGamesEvents.class, false, false);
+      return new ReactModuleInfoProvider() {
+        @Override
+        public Map<String, ReactModuleInfo> getReactModuleInfos() {
+          return moduleInfos;
+        }
+      };
+    }
+
+    private static void putModuleInfo(final Map<String, ReactModuleInfo> moduleInfos, final String name,
+                                      final Class<? extends NativeModule> moduleClass, final boolean needsEagerInit,
+                                      final boolean hasConstants) {
+      moduleInfos.put(name, new ReactModuleInfo(name, moduleClass.getName(), false, needsEagerInit, hasConstants,
+              false, false));
     }
 
     // does it work?
@@ -1,21 +1,40 @@
 package com.sagargulati.rnplaygames;
 
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.google.android.gms.auth.api.signin.GoogleSignIn;
-import com.google.android.gms.games.Games;
-import com.google.android.gms.games.Player;
 //import com.google.android.gms.games.PlayerLevelInfo;
-import com.google.android.gms.games.PlayersClient;
+import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.PlayerInfo;
+import com.sagargulati.rnplaygames.core.PlayerProfileCache;
+import com.sagargulati.rnplaygames.core.PlayersBackend;
+import com.sagargulati.rnplaygames.core.Results;
+import com.sagargulati.rnplaygames.util.CallbackExecutors;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
 import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+import com.sagargulati.rnplaygames.util.PlayerIconCache;
+import com.sagargulati.rnplaygames.util.SingleFlightCache;
+import com.sagargulati.rnplaygames.util.WritableResultMap;
 
 /**
  * Players module.
@@ -24,32 +43,81 @@ import com.sagargulati.rnplaygames.util.Helpers;
  * @version 0.0.1-beta (0.0.1-beta/6:54 PM Tuesday, January 14, 2020)
  */
 public class RNPlayGamesPlayer extends ReactContextBaseJavaModule {
+    public static final String NAME = "RNPlayGamesPlayer";
     private static final String TAG = "RNPlayGames";
+    private static final long DEFAULT_PLAYER_INFO_TTL_MS = 60 * 1000;
+    private static final long DEFAULT_PLAYER_INFO_STALE_MS = 5 * 60 * 1000;
+    private static final int DEFAULT_MAX_PROFILES = 200;
+    private static final long PROFILE_TTL_MS = 10 * 60 * 1000;
+    private static final int DEFAULT_MAX_ICON_BYTES = 4 * 1024 * 1024;
+
+    private final SingleFlightCache<PlayerInfo> mCurrentPlayerCache =
+            new SingleFlightCache<>(DEFAULT_PLAYER_INFO_TTL_MS, DEFAULT_PLAYER_INFO_STALE_MS);
+    private final PlayerProfileCache mProfiles = new PlayerProfileCache(DEFAULT_MAX_PROFILES, PROFILE_TTL_MS);
+    private final PlayerIconCache mIcons;
+
+    private final GamesClientRegistry.AuthStateListener mAuthStateListener =
+            new GamesClientRegistry.AuthStateListener() {
+        @Override
+        public void onAuthStateChanged(boolean isSignedIn) {
+            mCurrentPlayerCache.invalidate();
+            mProfiles.clear();
+            mIcons.clearMemory();
+        }
+    };
 
     public RNPlayGamesPlayer(ReactApplicationContext reactContext) {
         super(reactContext);
+        // Decoded icons never take more than 1/32 of the heap.
+        mIcons = new PlayerIconCache(reactContext,
+                (int) Math.min(DEFAULT_MAX_ICON_BYTES, Runtime.getRuntime().maxMemory() / 32));
+        GamesClientRegistry.getInstance(reactContext).addAuthStateListener(mAuthStateListener);
     }
 
+    @Override
+    public void onCatalystInstanceDestroy() {
+        // The registry outlives this module, e.g. across reloads of JS.
+        GamesClientRegistry.getInstance(getReactApplicationContext()).removeAuthStateListener(mAuthStateListener);
+    }
+
+    /**
+     * Retrieves the info of the player that is currently signed in.
+     * The info is cached, see setPlayerInfoCacheTtl.
+     * @param promise
+     */
     @ReactMethod
-    public void getCurrentPlayerInfo(final Promise promise) {
-        final WritableMap playerInfoMap = Helpers.getReturnObject();
-        final PlayersClient playersClient = this.getPlayersClient();
+    public void getCurrentPlayerInfo(final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("player.getCurrentPlayerInfo", rawPromise);
+        final PlayersBackend playersBackend = this.getPlayersBackend();
 
-        if (playersClient == null) {
+        if (playersBackend == null) {
             Helpers.rejectPromiseWithAuthenticationRequired(promise);
             return;
         }
-        playersClient.getCurrentPlayer().addOnSuccessListener(new OnSuccessListener<Player>() {
+        mCurrentPlayerCache.get(new SingleFlightCache.Loader<PlayerInfo>() {
             @Override
-            public void onSuccess(Player player) {
-                playerInfoMap.putString("displayName", player.getDisplayName());
-                playerInfoMap.putString("playerId", player.getPlayerId());
+            public Task<PlayerInfo> load() {
+                final TaskCompletionSource<PlayerInfo> source = new TaskCompletionSource<>();
+                playersBackend.getCurrentPlayer(new Callback<PlayerInfo>() {
+                    @Override
+                    public void onSuccess(PlayerInfo player) {
+                        source.setResult(player);
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        source.setException(e);
+                    }
+                });
+                return source.getTask();
+            }
+        }).addOnSuccessListener(CallbackExecutors.background(), new OnSuccessListener<PlayerInfo>() {
+            @Override
+            public void onSuccess(PlayerInfo player) {
 //                playerInfoMap.putString("levelInfo", playerlevelinfo.getLevelInfo());
-                playerInfoMap.putDouble("lastTimePlayed", player.getLastPlayedWithTimestamp());
-                playerInfoMap.putString("title", player.getTitle());
-                promise.resolve(playerInfoMap);
+                promise.resolve(Results.writePlayerInfo(new WritableResultMap(), player).getMap());
             }
-        }).addOnFailureListener(new OnFailureListener() {
+        }).addOnFailureListener(CallbackExecutors.background(), new OnFailureListener() {
             @Override
             public void onFailure(@NonNull Exception e) {
                 Helpers.rejectPromise(promise, e);
@@ -59,19 +127,179 @@ public class RNPlayGamesPlayer extends ReactContextBaseJavaModule {
 
 
     /**
-     * Attempts to retrieve an instance of PlayersClient.
-     * @return PlayersClient or null if the user is not signed in.
+     * Retrieves the profiles of other players, e.g. the players of a leaderboard page.
+     * Profiles are cached, and ids that are already being loaded are not loaded again, so the same ids can be
+     * asked for every time a list renders.
+     * The promise is resolved with an object mapping every id to { displayName, playerId, lastTimePlayed, title },
+     * or to null if the profile could not be loaded.
+     * @param playerIds ids of the players.
+     * @param forceReload whether or not to bypass the cache and the local games service data.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadPlayerProfiles(final ReadableArray playerIds, final boolean forceReload, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("player.loadPlayerProfiles", rawPromise);
+        final PlayersBackend playersBackend = this.getPlayersBackend();
+
+        if (playersBackend == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+        loadProfiles(playersBackend, playerIds, forceReload).addOnSuccessListener(CallbackExecutors.background(),
+                new OnSuccessListener<Map<String, PlayerInfo>>() {
+            @Override
+            public void onSuccess(Map<String, PlayerInfo> profiles) {
+                WritableMap result = Helpers.getReturnObject();
+                for (Map.Entry<String, PlayerInfo> profile : profiles.entrySet()) {
+                    if (profile.getValue() == null) {
+                        result.putNull(profile.getKey());
+                    } else {
+                        result.putMap(profile.getKey(),
+                                Results.writePlayerInfo(new WritableResultMap(), profile.getValue()).getMap());
+                    }
+                }
+                Helpers.resolvePromise(promise, result);
+            }
+        });
+    }
+
+    /**
+     * Retrieves the icons of players as file URIs, loading their profiles first if they are not cached.
+     * Icons are written once to the cache directory; only a bounded number of decoded bitmaps is kept in memory,
+     * see setPlayerProfileCacheSize.
+     * The promise is resolved with an object mapping every id to a file:// URI, or to null if the player has
+     * no icon or it could not be loaded.
+     * @param playerIds ids of the players.
+     * @param hiRes whether to load the high resolution images instead of the icons.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadPlayerIcons(final ReadableArray playerIds, final boolean hiRes, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("player.loadPlayerIcons", rawPromise);
+        final PlayersBackend playersBackend = this.getPlayersBackend();
+
+        if (playersBackend == null) {
+            Helpers.rejectPromiseWithAuthenticationRequired(promise);
+            return;
+        }
+        loadProfiles(playersBackend, playerIds, false).addOnSuccessListener(CallbackExecutors.background(),
+                new OnSuccessListener<Map<String, PlayerInfo>>() {
+            @Override
+            public void onSuccess(Map<String, PlayerInfo> profiles) {
+                final Map<String, Task<String>> icons = new LinkedHashMap<>();
+                for (Map.Entry<String, PlayerInfo> profile : profiles.entrySet()) {
+                    PlayerInfo player = profile.getValue();
+                    String imageUri = player == null ? null : hiRes ? player.hiResImageUri : player.iconImageUri;
+                    icons.put(profile.getKey(), mIcons.getFileUri(imageUri));
+                }
+                Tasks.whenAllComplete(icons.values()).addOnCompleteListener(CallbackExecutors.background(),
+                        new OnCompleteListener<List<Task<?>>>() {
+                    @Override
+                    public void onComplete(@NonNull Task<List<Task<?>>> completed) {
+                        WritableMap result = Helpers.getReturnObject();
+                        for (Map.Entry<String, Task<String>> icon : icons.entrySet()) {
+                            Task<String> fileUri = icon.getValue();
+                            if (fileUri.isSuccessful() && fileUri.getResult() != null) {
+                                result.putString(icon.getKey(), fileUri.getResult());
+                            } else {
+                                result.putNull(icon.getKey());
+                            }
+                        }
+                        Helpers.resolvePromise(promise, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sets how many player profiles and how many bytes of decoded icons are kept in memory.
+     * @param maxProfiles number of profiles kept, the least recently used ones are dropped first.
+     * @param maxIconBytes size of the decoded icons kept, in bytes.
+     */
+    @ReactMethod
+    public void setPlayerProfileCacheSize(final int maxProfiles, final int maxIconBytes) {
+        mProfiles.setCapacity(maxProfiles);
+        mIcons.setMaxBitmapBytes(maxIconBytes);
+    }
+
+    /**
+     * Sets how long the current player info is cached.
+     * @param ttlMs how long the info is served without being reloaded.
+     * @param staleMs how long expired info is still served while it is reloaded in the background.
+     */
+    @ReactMethod
+    public void setPlayerInfoCacheTtl(final int ttlMs, final int staleMs) {
+        mCurrentPlayerCache.setTtl(Math.max(0, ttlMs), Math.max(0, staleMs));
+    }
+
+    /**
+     * Sets the token bucket of the player calls. Calls over the limit wait for a token, and
+     * UI and reads go before queued writes.
+     * @param burst number of calls that can be made at once after a quiet period.
+     * @param callsPerSecond sustained rate of calls.
+     * @param promise
+     */
+    @ReactMethod
+    public void setRateLimit(final int burst, final double callsPerSecond, final Promise promise) {
+        GamesClientRegistry.getInstance(getReactApplicationContext()).getDispatcher()
+                .setRateLimit(CallDispatcher.FAMILY_PLAYERS, burst, callsPerSecond);
+        Helpers.resolvePromise(promise);
+    }
+
+    /**
+     * Synchronously returns the cached info of the current player, even if it is expired, without loading it.
+     * @return { displayName, playerId, lastTimePlayed, title }, or null if no info is cached.
      */
-    private PlayersClient getPlayersClient() {
-        if (GoogleSignIn.getLastSignedInAccount(getReactApplicationContext()) != null) {
-            return Games.getPlayersClient(getReactApplicationContext(),
-                    GoogleSignIn.getLastSignedInAccount(getReactApplicationContext()));
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap getCachedPlayerInfo() {
+        PlayerInfo player = mCurrentPlayerCache.peek();
+        return player == null ? null : Results.writePlayerInfo(new WritableResultMap(), player).getMap();
+    }
+
+    /**
+     * Drops the cached player info, so the next getCurrentPlayerInfo call reloads it.
+     */
+    @ReactMethod
+    public void invalidatePlayerInfo() {
+        mCurrentPlayerCache.invalidate();
+    }
+
+    /**
+     * @return a Task completing with every id mapped to its profile, or to null. Never fails.
+     */
+    private Task<Map<String, PlayerInfo>> loadProfiles(final PlayersBackend playersBackend,
+                                                       final ReadableArray playerIds, final boolean forceReload) {
+        List<String> ids = new ArrayList<>(playerIds.size());
+        for (int i = 0; i < playerIds.size(); i++) {
+            ids.add(playerIds.getString(i));
         }
-        return null;
+        final TaskCompletionSource<Map<String, PlayerInfo>> source = new TaskCompletionSource<>();
+        mProfiles.loadAll(playersBackend, ids, forceReload, SystemClock.elapsedRealtime(),
+                new Callback<Map<String, PlayerInfo>>() {
+            @Override
+            public void onSuccess(Map<String, PlayerInfo> profiles) {
+                source.setResult(profiles);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.setException(e);
+            }
+        });
+        return source.getTask();
+    }
+
+    /**
+     * Attempts to retrieve an instance of PlayersBackend.
+     * @return PlayersBackend or null if the user is not signed in.
+     */
+    private PlayersBackend getPlayersBackend() {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getPlayersBackend();
     }
 
     @Override
     public String getName() {
-        return "RNPlayGamesPlayer";
+        return NAME;
     }
 }
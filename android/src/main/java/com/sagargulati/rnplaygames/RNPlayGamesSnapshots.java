@@ -0,0 +1,433 @@
+package com.sagargulati.rnplaygames;
+
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.google.android.gms.games.AnnotatedData;
+import com.google.android.gms.games.SnapshotsClient;
+import com.google.android.gms.games.snapshot.Snapshot;
+import com.google.android.gms.games.snapshot.SnapshotContents;
+import com.google.android.gms.games.snapshot.SnapshotMetadata;
+import com.google.android.gms.games.snapshot.SnapshotMetadataBuffer;
+import com.google.android.gms.games.snapshot.SnapshotMetadataChange;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.SnapshotCodec;
+import com.sagargulati.rnplaygames.util.GamesClientRegistry;
+import com.sagargulati.rnplaygames.util.Helpers;
+import com.sagargulati.rnplaygames.util.MethodMetrics;
+
+/**
+ * Saved games module.
+ * Payloads never cross the bridge: JS passes the uri of a file to write and gets the uri of a file back on read.
+ * Files are streamed through gzip straight into and out of the snapshot contents on a background thread,
+ * and a write is skipped when the content hash matches the one of the snapshot opened for the write, i.e. the
+ * copy held by the games services once conflicts are resolved, so that a write made by another device is never
+ * mistaken for the content about to be written.
+ */
+public class RNPlayGamesSnapshots extends ReactContextBaseJavaModule {
+    public static final String NAME = "RNPlayGamesSnapshots";
+    private static final String STAGING_DIRECTORY = "rnplaygames-snapshots";
+
+    // To be exposed to JS
+    private static final String RESOLUTION_POLICY_MOST_RECENTLY_MODIFIED = "RESOLUTION_POLICY_MOST_RECENTLY_MODIFIED";
+    private static final String RESOLUTION_POLICY_LONGEST_PLAYTIME = "RESOLUTION_POLICY_LONGEST_PLAYTIME";
+    private static final String RESOLUTION_POLICY_HIGHEST_PROGRESS = "RESOLUTION_POLICY_HIGHEST_PROGRESS";
+    private static final String RESOLUTION_POLICY_LAST_KNOWN_GOOD = "RESOLUTION_POLICY_LAST_KNOWN_GOOD";
+
+    // Every snapshot operation runs here, one at a time.
+    private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+    private volatile int mConflictPolicy = SnapshotsClient.RESOLUTION_POLICY_MOST_RECENTLY_MODIFIED;
+
+    public RNPlayGamesSnapshots(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    /**
+     * Sets how conflicting versions of a snapshot, e.g. written by two devices, are resolved when it is opened.
+     * @param conflictPolicy one of the RESOLUTION_POLICY_ constants.
+     */
+    @ReactMethod
+    public void setConflictPolicy(final int conflictPolicy) {
+        mConflictPolicy = conflictPolicy;
+    }
+
+    /**
+     * Opens the snapshot, creating it if asked to, and resolves with its metadata without reading it.
+     * @param name
+     * @param createIfNotFound
+     * @param promise
+     */
+    @ReactMethod
+    public void openSnapshot(final String name, final boolean createIfNotFound, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("snapshots.openSnapshot", rawPromise);
+        run(promise, new Operation() {
+            @Override
+            public WritableMap run(SnapshotsClient snapshotsClient) throws Exception {
+                Snapshot snapshot = open(snapshotsClient, name, createIfNotFound);
+                WritableMap metadata = getMetadataObject(snapshot.getMetadata());
+                await(snapshotsClient.discardAndClose(snapshot));
+                return metadata;
+            }
+        });
+    }
+
+    /**
+     * Reads the snapshot into a staging file.
+     * The promise is resolved with { uri, size } and the snapshot metadata, uri being a file:// uri
+     * that stays valid until the next read of the same snapshot.
+     * @param name
+     * @param promise
+     */
+    @ReactMethod
+    public void readSnapshot(final String name, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("snapshots.readSnapshot", rawPromise);
+        run(promise, new Operation() {
+            @Override
+            public WritableMap run(SnapshotsClient snapshotsClient) throws Exception {
+                Snapshot snapshot = open(snapshotsClient, name, false);
+                File file = getStagingFile(name);
+                File partFile = new File(file.getPath() + ".part");
+                FileInputStream in = null;
+                FileOutputStream out = null;
+                try {
+                    // Read through a duplicate, as the descriptor of the contents is closed by discardAndClose.
+                    ParcelFileDescriptor descriptor = snapshot.getSnapshotContents().getParcelFileDescriptor().dup();
+                    in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
+                    in.getChannel().position(0);
+                    out = new FileOutputStream(partFile);
+                    SnapshotCodec.decompress(in, out);
+                    out.getFD().sync();
+                } catch (Exception e) {
+                    snapshotsClient.discardAndClose(snapshot);
+                    partFile.delete();
+                    throw e;
+                } finally {
+                    closeQuietly(out);
+                    closeQuietly(in);
+                }
+                WritableMap result = getMetadataObject(snapshot.getMetadata());
+                await(snapshotsClient.discardAndClose(snapshot));
+
+                if (!partFile.renameTo(file)) {
+                    throw new IOException("Could not stage the snapshot " + name + ".");
+                }
+                result.putString("uri", Uri.fromFile(file).toString());
+                result.putDouble("size", file.length());
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Writes the content of a file to the snapshot, creating the snapshot if needed.
+     * The promise is resolved with { isSkipped } and, if the snapshot was written, its new metadata.
+     * @param name
+     * @param uri file:// or content:// uri of the data to save.
+     * @param metadata { description, playedTimeMillis, progressValue }, every key being optional.
+     * @param promise
+     */
+    @ReactMethod
+    public void writeSnapshot(final String name, final String uri, final ReadableMap metadata,
+                              final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("snapshots.writeSnapshot", rawPromise);
+        run(promise, new Operation() {
+            @Override
+            public WritableMap run(SnapshotsClient snapshotsClient) throws Exception {
+                String hash;
+                InputStream in = openUri(uri);
+                try {
+                    hash = SnapshotCodec.hash(in);
+                } finally {
+                    closeQuietly(in);
+                }
+
+                Snapshot snapshot = open(snapshotsClient, name, true);
+                String storedHash;
+                try {
+                    storedHash = hashStored(snapshot);
+                } catch (Exception e) {
+                    snapshotsClient.discardAndClose(snapshot);
+                    throw e;
+                }
+                if (hash.equals(storedHash)) {
+                    await(snapshotsClient.discardAndClose(snapshot));
+                    WritableMap result = Helpers.getReturnObject();
+                    result.putBoolean("isSkipped", true);
+                    return result;
+                }
+
+                try {
+                    final SnapshotContents contents = snapshot.getSnapshotContents();
+                    contents.writeBytes(new byte[0]);
+                    in = openUri(uri);
+                    try {
+                        SnapshotCodec.compress(in, new SnapshotCodec.ChunkSink() {
+                            @Override
+                            public void write(int offset, byte[] chunk, int count) throws IOException {
+                                if (!contents.modifyBytes(offset, chunk, 0, count)) {
+                                    throw new IOException("Could not write the snapshot contents.");
+                                }
+                            }
+                        }, SnapshotCodec.DEFAULT_CHUNK_SIZE);
+                    } finally {
+                        closeQuietly(in);
+                    }
+                } catch (Exception e) {
+                    snapshotsClient.discardAndClose(snapshot);
+                    throw e;
+                }
+
+                SnapshotMetadata committed = await(snapshotsClient.commitAndClose(snapshot,
+                        getMetadataChange(metadata)));
+                WritableMap result = getMetadataObject(committed);
+                result.putBoolean("isSkipped", false);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Deletes the snapshot.
+     * @param name
+     * @param promise
+     */
+    @ReactMethod
+    public void deleteSnapshot(final String name, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("snapshots.deleteSnapshot", rawPromise);
+        run(promise, new Operation() {
+            @Override
+            public WritableMap run(final SnapshotsClient snapshotsClient) throws Exception {
+                Snapshot snapshot = open(snapshotsClient, name, false);
+                final SnapshotMetadata metadata = snapshot.getMetadata().freeze();
+                await(snapshotsClient.discardAndClose(snapshot));
+                await(GamesClientRegistry.getInstance(getReactApplicationContext()).dispatch(
+                        CallDispatcher.FAMILY_SNAPSHOTS, CallDispatcher.LANE_BACKGROUND,
+                        new GamesClientRegistry.TaskCall<String>() {
+                    @Override
+                    public Task<String> start() {
+                        return snapshotsClient.delete(metadata);
+                    }
+                }));
+                getStagingFile(name).delete();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Lists the snapshots of the current player.
+     * The promise is resolved with an array of metadata objects.
+     * @param forceReload whether or not to skip the local games service cache.
+     * @param promise
+     */
+    @ReactMethod
+    public void loadSnapshots(final boolean forceReload, final Promise rawPromise) {
+        final Promise promise = MethodMetrics.track("snapshots.loadSnapshots", rawPromise);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SnapshotsClient snapshotsClient = getSnapshotsClient();
+                if (snapshotsClient == null) {
+                    Helpers.rejectPromiseWithAuthenticationRequired(promise);
+                    return;
+                }
+
+                try {
+                    SnapshotMetadataBuffer buffer = await(GamesClientRegistry.getInstance(getReactApplicationContext())
+                            .dispatch(CallDispatcher.FAMILY_SNAPSHOTS, CallDispatcher.LANE_INTERACTIVE,
+                                    new GamesClientRegistry.TaskCall<AnnotatedData<SnapshotMetadataBuffer>>() {
+                        @Override
+                        public Task<AnnotatedData<SnapshotMetadataBuffer>> start() {
+                            return snapshotsClient.load(forceReload);
+                        }
+                    })).get();
+                    WritableArray snapshots = Helpers.getReturnArray();
+                    try {
+                        for (SnapshotMetadata metadata : buffer) {
+                            snapshots.pushMap(getMetadataObject(metadata));
+                        }
+                    } finally {
+                        buffer.release();
+                    }
+                    promise.resolve(snapshots);
+                } catch (Exception e) {
+                    Helpers.rejectPromise(promise, e);
+                }
+            }
+        });
+    }
+
+    private interface Operation {
+        /**
+         * Runs on the snapshot executor.
+         * @return the object the promise is resolved with.
+         */
+        WritableMap run(SnapshotsClient snapshotsClient) throws Exception;
+    }
+
+    private void run(final Promise promise, final Operation operation) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                SnapshotsClient snapshotsClient = getSnapshotsClient();
+                if (snapshotsClient == null) {
+                    Helpers.rejectPromiseWithAuthenticationRequired(promise);
+                    return;
+                }
+
+                try {
+                    Helpers.resolvePromise(promise, operation.run(snapshotsClient));
+                } catch (Exception e) {
+                    Helpers.rejectPromise(promise, e);
+                }
+            }
+        });
+    }
+
+    private Snapshot open(final SnapshotsClient snapshotsClient, final String name, final boolean createIfNotFound)
+            throws Exception {
+        final int conflictPolicy = mConflictPolicy;
+        SnapshotsClient.DataOrConflict<Snapshot> result = await(GamesClientRegistry
+                .getInstance(getReactApplicationContext())
+                .dispatch(CallDispatcher.FAMILY_SNAPSHOTS, CallDispatcher.LANE_INTERACTIVE,
+                        new GamesClientRegistry.TaskCall<SnapshotsClient.DataOrConflict<Snapshot>>() {
+            @Override
+            public Task<SnapshotsClient.DataOrConflict<Snapshot>> start() {
+                return snapshotsClient.open(name, createIfNotFound, conflictPolicy);
+            }
+        }));
+        if (result.isConflict()) {
+            // Only possible with a manual policy, which is not supported.
+            throw new Exception("Unresolved conflict on snapshot " + name + ".");
+        }
+        return result.getData();
+    }
+
+    private static <T> T await(final Task<T> task) throws Exception {
+        try {
+            return Tasks.await(task);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private InputStream openUri(final String uri) throws FileNotFoundException {
+        Uri parsed = Uri.parse(uri);
+        if (parsed.getScheme() == null) {
+            return new FileInputStream(uri);
+        }
+        if ("file".equals(parsed.getScheme())) {
+            return new FileInputStream(parsed.getPath());
+        }
+        InputStream in = getReactApplicationContext().getContentResolver().openInputStream(parsed);
+        if (in == null) throw new FileNotFoundException(uri);
+        return in;
+    }
+
+    private File getStagingFile(final String name) {
+        File directory = new File(getReactApplicationContext().getCacheDir(), STAGING_DIRECTORY);
+        directory.mkdirs();
+        return new File(directory, name.replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    /**
+     * @return the hash of the content of the opened snapshot, or null if nothing was ever written to it.
+     */
+    private static String hashStored(final Snapshot snapshot) throws IOException {
+        // Read through a duplicate, as the descriptor of the contents must stay open for the write.
+        ParcelFileDescriptor descriptor = snapshot.getSnapshotContents().getParcelFileDescriptor().dup();
+        FileInputStream in = new ParcelFileDescriptor.AutoCloseInputStream(descriptor);
+        try {
+            if (in.getChannel().size() == 0) return null;
+            in.getChannel().position(0);
+            return SnapshotCodec.hashStored(in);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private static SnapshotMetadataChange getMetadataChange(final ReadableMap metadata) {
+        SnapshotMetadataChange.Builder builder = new SnapshotMetadataChange.Builder();
+        if (metadata == null) return builder.build();
+
+        if (metadata.hasKey("description") && !metadata.isNull("description")) {
+            builder.setDescription(metadata.getString("description"));
+        }
+        if (metadata.hasKey("playedTimeMillis") && !metadata.isNull("playedTimeMillis")) {
+            builder.setPlayedTimeMillis((long) metadata.getDouble("playedTimeMillis"));
+        }
+        if (metadata.hasKey("progressValue") && !metadata.isNull("progressValue")) {
+            builder.setProgressValue((long) metadata.getDouble("progressValue"));
+        }
+        return builder.build();
+    }
+
+    private static WritableMap getMetadataObject(final SnapshotMetadata metadata) {
+        WritableMap map = Helpers.getReturnObject();
+        map.putString("name", metadata.getUniqueName());
+        map.putString("description", metadata.getDescription());
+        map.putDouble("lastModifiedTimestamp", metadata.getLastModifiedTimestamp());
+        map.putDouble("playedTimeMillis", metadata.getPlayedTime());
+        map.putDouble("progressValue", metadata.getProgressValue());
+        return map;
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Attempts to retrieve an instance of SnapshotsClient.
+     * @return SnapshotsClient or null if the user is not signed in.
+     */
+    private SnapshotsClient getSnapshotsClient() {
+        return GamesClientRegistry.getInstance(getReactApplicationContext()).getSnapshotsClient();
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        mExecutor.shutdown();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        final Map<String, Object> constants = new HashMap<>();
+        constants.put(RESOLUTION_POLICY_MOST_RECENTLY_MODIFIED, SnapshotsClient.RESOLUTION_POLICY_MOST_RECENTLY_MODIFIED);
+        constants.put(RESOLUTION_POLICY_LONGEST_PLAYTIME, SnapshotsClient.RESOLUTION_POLICY_LONGEST_PLAYTIME);
+        constants.put(RESOLUTION_POLICY_HIGHEST_PROGRESS, SnapshotsClient.RESOLUTION_POLICY_HIGHEST_PROGRESS);
+        constants.put(RESOLUTION_POLICY_LAST_KNOWN_GOOD, SnapshotsClient.RESOLUTION_POLICY_LAST_KNOWN_GOOD);
+        return constants;
+    }
+}
@@ -0,0 +1,128 @@
+package com.sagargulati.rnplaygames.util;
+
+import com.google.android.gms.games.achievement.Achievement;
+import com.google.android.gms.games.achievement.AchievementBuffer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Local copy of the achievement states of the signed in player, indexed by achievement id.
+ * Loaded once from AchievementsClient.load and kept up to date as writes succeed, so that writes
+ * which would not change anything can be skipped.
+ */
+public class AchievementStateIndex {
+    private final Map<String, State> mStates = new HashMap<>();
+    private boolean mIsLoaded = false;
+
+    public synchronized boolean isLoaded() {
+        return mIsLoaded;
+    }
+
+    /**
+     * Replaces the index with the content of the buffer. The buffer is not released.
+     */
+    public synchronized void load(final AchievementBuffer buffer) {
+        mStates.clear();
+        for (Achievement achievement : buffer) {
+            boolean isIncremental = achievement.getType() == Achievement.TYPE_INCREMENTAL;
+            mStates.put(achievement.getAchievementId(), new State(achievement.getState(), isIncremental,
+                    isIncremental ? achievement.getCurrentSteps() : 0,
+                    isIncremental ? achievement.getTotalSteps() : 0));
+        }
+        mIsLoaded = true;
+    }
+
+    public synchronized void clear() {
+        mStates.clear();
+        mIsLoaded = false;
+    }
+
+    /**
+     * @return a copy of the state of the achievement, or null if it is unknown.
+     */
+    public synchronized State get(final String id) {
+        State state = mStates.get(id);
+        return state == null ? null : state.copy();
+    }
+
+    /**
+     * @return a copy of every known achievement state.
+     */
+    public synchronized Map<String, State> snapshot() {
+        Map<String, State> snapshot = new HashMap<>();
+        for (Map.Entry<String, State> entry : mStates.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().copy());
+        }
+        return snapshot;
+    }
+
+    public synchronized boolean isUnlocked(final String id) {
+        State state = mStates.get(id);
+        return state != null && state.state == Achievement.STATE_UNLOCKED;
+    }
+
+    /**
+     * Whether or not revealing the achievement would have no effect, i.e. it is already revealed or unlocked.
+     */
+    public synchronized boolean isRevealed(final String id) {
+        State state = mStates.get(id);
+        return state != null && state.state != Achievement.STATE_HIDDEN;
+    }
+
+    /**
+     * Whether or not setting the achievement to numSteps would have no effect.
+     */
+    public synchronized boolean hasSteps(final String id, final int numSteps) {
+        State state = mStates.get(id);
+        return state != null && (state.state == Achievement.STATE_UNLOCKED || state.currentSteps >= numSteps);
+    }
+
+    public synchronized void markUnlocked(final String id) {
+        State state = mStates.get(id);
+        if (state == null) return;
+        state.state = Achievement.STATE_UNLOCKED;
+        state.currentSteps = state.totalSteps;
+    }
+
+    public synchronized void markRevealed(final String id) {
+        State state = mStates.get(id);
+        if (state == null || state.state != Achievement.STATE_HIDDEN) return;
+        state.state = Achievement.STATE_REVEALED;
+    }
+
+    /**
+     * Records a successful increment or set steps call.
+     * @param numSteps the steps added, or the new step count if isAbsolute is true.
+     * @param isUnlocked the result of the call.
+     */
+    public synchronized void applySteps(final String id, final int numSteps, final boolean isAbsolute,
+                                        final boolean isUnlocked) {
+        State state = mStates.get(id);
+        if (state == null) return;
+        if (isUnlocked) {
+            markUnlocked(id);
+            return;
+        }
+        int steps = isAbsolute ? Math.max(state.currentSteps, numSteps) : state.currentSteps + numSteps;
+        state.currentSteps = state.totalSteps > 0 ? Math.min(steps, state.totalSteps) : steps;
+    }
+
+    public static class State {
+        public int state;
+        public final boolean isIncremental;
+        public int currentSteps;
+        public final int totalSteps;
+
+        State(final int state, final boolean isIncremental, final int currentSteps, final int totalSteps) {
+            this.state = state;
+            this.isIncremental = isIncremental;
+            this.currentSteps = currentSteps;
+            this.totalSteps = totalSteps;
+        }
+
+        State copy() {
+            return new State(state, isIncremental, currentSteps, totalSteps);
+        }
+    }
+}
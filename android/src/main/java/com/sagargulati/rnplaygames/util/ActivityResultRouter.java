@@ -0,0 +1,137 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.BaseActivityEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.google.android.gms.games.GamesActivityResultCodes;
+
+/**
+ * Single activity event listener shared by every module.
+ * Each started activity gets its own request code, mapped to the handler and the promise waiting on its result,
+ * so overlapping UI requests are all settled.
+ */
+public class ActivityResultRouter extends BaseActivityEventListener {
+    private static final int FIRST_REQUEST_CODE = 1013;
+    private static final int REQUEST_CODE_COUNT = 256;
+
+    private static ActivityResultRouter sInstance;
+
+    private final ReactApplicationContext mContext;
+    private final SparseArray<PendingRequest> mPendingRequests = new SparseArray<>();
+    private int mNextRequestCode = FIRST_REQUEST_CODE;
+
+    public interface ResultHandler {
+        /**
+         * @param promise the promise the activity was started with, may be null.
+         */
+        void onActivityResult(int resultCode, Intent data, Promise promise);
+    }
+
+    public static synchronized ActivityResultRouter getInstance(final ReactApplicationContext context) {
+        if (sInstance == null || sInstance.mContext != context) {
+            sInstance = new ActivityResultRouter(context);
+            context.addActivityEventListener(sInstance);
+        }
+        return sInstance;
+    }
+
+    private ActivityResultRouter(final ReactApplicationContext context) {
+        mContext = context;
+    }
+
+    /**
+     * Starts an activity and routes its result to the handler.
+     * @param activity the current activity. The promise is rejected if it is null.
+     * @param intent
+     * @param handler called with the result of the activity.
+     * @param promise nullable, passed back to the handler.
+     * @return whether or not the activity was started. The promise has been rejected if it was not.
+     */
+    public boolean startActivityForResult(final Activity activity, final Intent intent, final ResultHandler handler,
+                                       final Promise promise) {
+        if (activity == null) {
+            Helpers.rejectPromise(promise, new Exception("No current activity."));
+            return false;
+        }
+
+        int requestCode;
+        final int traceId = MethodTracing.currentId();
+        synchronized (mPendingRequests) {
+            requestCode = allocateRequestCode();
+            mPendingRequests.put(requestCode, new PendingRequest(handler, promise, traceId));
+        }
+
+        boolean traced = MethodTracing.beginSection("startActivityForResult");
+        try {
+            activity.startActivityForResult(intent, requestCode);
+            MethodTracing.beginSlice("activity", traceId);
+            return true;
+        } catch (Exception e) {
+            synchronized (mPendingRequests) {
+                mPendingRequests.remove(requestCode);
+            }
+            Helpers.rejectPromise(promise, e);
+            return false;
+        } finally {
+            if (traced) {
+                MethodTracing.endSection();
+            }
+        }
+    }
+
+    @Override
+    public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
+        PendingRequest pendingRequest;
+        synchronized (mPendingRequests) {
+            pendingRequest = mPendingRequests.get(requestCode);
+            mPendingRequests.remove(requestCode);
+        }
+        if (pendingRequest == null) return;
+        MethodTracing.endSlice("activity", pendingRequest.traceId);
+
+        // check if the user signed out from the UI.
+        if (resultCode == GamesActivityResultCodes.RESULT_RECONNECT_REQUIRED) {
+            Helpers.sendAuthStateChangedEvent(mContext, false);
+        }
+
+        final PendingRequest request = pendingRequest;
+        final int result = resultCode;
+        final Intent resultData = data;
+        MethodTracing.runWithId(pendingRequest.traceId, "onActivityResult", new Runnable() {
+            @Override
+            public void run() {
+                request.handler.onActivityResult(result, resultData, request.promise);
+            }
+        });
+    }
+
+    private int allocateRequestCode() {
+        for (int i = 0; i < REQUEST_CODE_COUNT; i++) {
+            int requestCode = mNextRequestCode;
+            mNextRequestCode = requestCode + 1 < FIRST_REQUEST_CODE + REQUEST_CODE_COUNT
+                    ? requestCode + 1
+                    : FIRST_REQUEST_CODE;
+            if (mPendingRequests.get(requestCode) == null) {
+                return requestCode;
+            }
+        }
+        // Every request code is taken by a result that never came back; reuse the oldest one.
+        return mNextRequestCode;
+    }
+
+    private static class PendingRequest {
+        final ResultHandler handler;
+        final Promise promise;
+        final int traceId;
+
+        PendingRequest(final ResultHandler handler, final Promise promise, final int traceId) {
+            this.handler = handler;
+            this.promise = promise;
+            this.traceId = traceId;
+        }
+    }
+}
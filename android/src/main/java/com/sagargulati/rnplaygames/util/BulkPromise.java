@@ -0,0 +1,144 @@
+package com.sagargulati.rnplaygames.util;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import com.sagargulati.rnplaygames.core.BulkResults;
+
+import java.util.List;
+
+/**
+ * Settles a single promise for a whole batch of operations.
+ * Every operation is given its own item promise, and once all of them are settled the batch promise is
+ * resolved with one result per operation, in order, shaped like the results of Promise.allSettled:
+ * { status: "fulfilled", value } or { status: "rejected", code, message }.
+ */
+public class BulkPromise {
+    private static final String STATUS_FULFILLED = "fulfilled";
+    private static final String STATUS_REJECTED = "rejected";
+    private static final String DEFAULT_ERROR_CODE = "EUNSPECIFIED";
+
+    private final BulkResults<WritableMap> mResults;
+
+    /**
+     * @param size number of operations in the batch.
+     * @param promise resolved with the array of results.
+     */
+    public BulkPromise(final int size, final Promise promise) {
+        mResults = new BulkResults<>(size, new BulkResults.Listener<WritableMap>() {
+            @Override
+            public void onSettled(List<WritableMap> itemResults) {
+                WritableArray results = Arguments.createArray();
+                for (WritableMap itemResult : itemResults) {
+                    results.pushMap(itemResult);
+                }
+                if (promise != null) {
+                    promise.resolve(results);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return the promise of the operation at the given index. Only its first settlement counts.
+     */
+    public Promise getItemPromise(final int index) {
+        return new ItemPromise(index);
+    }
+
+    private class ItemPromise implements Promise {
+        private final int mIndex;
+
+        ItemPromise(final int index) {
+            mIndex = index;
+        }
+
+        private void fulfill(final Object value) {
+            WritableMap result = Arguments.createMap();
+            result.putString("status", STATUS_FULFILLED);
+            if (value instanceof WritableMap) {
+                result.putMap("value", (WritableMap) value);
+            } else if (value instanceof Boolean) {
+                result.putBoolean("value", (Boolean) value);
+            } else if (value instanceof Number) {
+                result.putDouble("value", ((Number) value).doubleValue());
+            } else if (value != null) {
+                result.putString("value", value.toString());
+            } else {
+                result.putNull("value");
+            }
+            mResults.settle(mIndex, result);
+        }
+
+        private void fail(final String code, final String message, final Throwable throwable) {
+            WritableMap result = Arguments.createMap();
+            result.putString("status", STATUS_REJECTED);
+            result.putString("code", code != null ? code : DEFAULT_ERROR_CODE);
+            if (message != null) {
+                result.putString("message", message);
+            } else if (throwable != null) {
+                result.putString("message", throwable.getMessage());
+            } else {
+                result.putNull("message");
+            }
+            mResults.settle(mIndex, result);
+        }
+
+        @Override
+        public void resolve(Object value) {
+            fulfill(value);
+        }
+
+        @Override
+        public void reject(String code, String message) {
+            fail(code, message, null);
+        }
+
+        @Override
+        public void reject(String code, Throwable throwable) {
+            fail(code, null, throwable);
+        }
+
+        @Override
+        public void reject(String code, String message, Throwable throwable) {
+            fail(code, message, throwable);
+        }
+
+        @Override
+        public void reject(Throwable throwable) {
+            fail(null, null, throwable);
+        }
+
+        @Override
+        public void reject(Throwable throwable, WritableMap userInfo) {
+            fail(null, null, throwable);
+        }
+
+        @Override
+        public void reject(String code, WritableMap userInfo) {
+            fail(code, null, null);
+        }
+
+        @Override
+        public void reject(String code, Throwable throwable, WritableMap userInfo) {
+            fail(code, null, throwable);
+        }
+
+        @Override
+        public void reject(String code, String message, WritableMap userInfo) {
+            fail(code, message, null);
+        }
+
+        @Override
+        public void reject(String code, String message, Throwable throwable, WritableMap userInfo) {
+            fail(code, message, throwable);
+        }
+
+        @Deprecated
+        public void reject(String message) {
+            fail(null, message, null);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors the Task listeners and continuations run on.
+ * Listeners run on the main thread by default, where building result maps and settling promises competes
+ * with rendering. Every listener that does not touch the UI runs on the background executor instead, and only
+ * the activity starts go back to the main thread.
+ */
+public class CallbackExecutors {
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static volatile Executor sBackgroundExecutor;
+
+    private static final Executor BACKGROUND = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            getBackgroundExecutor().execute(command);
+        }
+    };
+
+    private static final Executor MAIN_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                command.run();
+            } else {
+                sMainHandler.post(command);
+            }
+        }
+    };
+
+    private CallbackExecutors() {
+    }
+
+    /**
+     * @return the executor the non-UI listeners run on. Always forwards to the executor currently configured.
+     * While tracing, its commands run in a section with the correlation id current when it is retrieved.
+     */
+    public static Executor background() {
+        return MethodTracing.isEnabled() ? MethodTracing.bind(BACKGROUND, "callback") : BACKGROUND;
+    }
+
+    /**
+     * @return an executor running its commands on the main thread, right away if already on it.
+     * While tracing, its commands run in a section with the correlation id current when it is retrieved.
+     */
+    public static Executor mainThread() {
+        return MethodTracing.isEnabled() ? MethodTracing.bind(MAIN_THREAD, "callback") : MAIN_THREAD;
+    }
+
+    /**
+     * Replaces the background executor, e.g. with a pool shared with the rest of the app.
+     * @param executor null to go back to the default single thread executor.
+     */
+    public static synchronized void setBackgroundExecutor(final Executor executor) {
+        sBackgroundExecutor = executor;
+    }
+
+    private static Executor getBackgroundExecutor() {
+        Executor executor = sBackgroundExecutor;
+        if (executor != null) return executor;
+
+        synchronized (CallbackExecutors.class) {
+            if (sBackgroundExecutor == null) {
+                sBackgroundExecutor = createDefaultExecutor();
+            }
+            return sBackgroundExecutor;
+        }
+    }
+
+    private static ExecutorService createDefaultExecutor() {
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "rnplaygames-callbacks");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
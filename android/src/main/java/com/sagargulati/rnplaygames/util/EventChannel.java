@@ -0,0 +1,174 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single path every native event takes to JS.
+ * Events are held for a frame and merged before being emitted:
+ * - state events (emitState) are only emitted when the state differs from the one JS last received,
+ * - latest events (emitLatest) only emit the last payload of the frame,
+ * - list events (emitEvent) emit every payload of the frame at once, as an array.
+ * JS tells the channel how many listeners each event has (see index.js), and payloads of latest and list
+ * events nobody listens to are never built. State events carry no payload to build, and are emitted whether
+ * or not a listener was counted, so that apps subscribing with DeviceEventEmitter directly still get them.
+ */
+public class EventChannel {
+    private static final long COALESCING_WINDOW_MS = 16;
+
+    private static EventChannel sInstance;
+
+    private final ReactApplicationContext mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, Integer> mListenerCounts = new HashMap<>();
+
+    private final Map<String, Object> mEmittedStates = new HashMap<>();
+    private final LinkedHashMap<String, Object> mPendingStates = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Payload> mPendingLatest = new LinkedHashMap<>();
+    private final LinkedHashMap<String, List<Payload>> mPendingEvents = new LinkedHashMap<>();
+    private boolean mFlushScheduled = false;
+
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private final Runnable mFlushTrigger = new Runnable() {
+        @Override
+        public void run() {
+            CallbackExecutors.background().execute(mFlushRunnable);
+        }
+    };
+
+    public interface Payload {
+        /**
+         * Builds the event payload. Only called if the event has listeners when it is emitted.
+         */
+        WritableMap build();
+    }
+
+    public static synchronized EventChannel getInstance(final ReactApplicationContext context) {
+        if (sInstance == null || sInstance.mContext != context) {
+            sInstance = new EventChannel(context);
+        }
+        return sInstance;
+    }
+
+    private EventChannel(final ReactApplicationContext context) {
+        mContext = context;
+    }
+
+    public synchronized void addListener(final String eventName) {
+        mListenerCounts.put(eventName, getListenerCount(eventName) + 1);
+    }
+
+    public synchronized void removeListener(final String eventName) {
+        int count = getListenerCount(eventName) - 1;
+        if (count > 0) {
+            mListenerCounts.put(eventName, count);
+        } else {
+            mListenerCounts.remove(eventName);
+        }
+    }
+
+    public synchronized boolean hasListeners(final String eventName) {
+        return getListenerCount(eventName) > 0;
+    }
+
+    private int getListenerCount(final String eventName) {
+        Integer count = mListenerCounts.get(eventName);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Emits a state change, unless the state at the end of the frame is the one last emitted.
+     * @param value Boolean, Double, String or null.
+     */
+    public synchronized void emitState(final String eventName, final Object value) {
+        mPendingStates.put(eventName, value);
+        scheduleFlush();
+    }
+
+    /**
+     * Emits the payload, replacing any payload of the same event still waiting in the frame.
+     */
+    public synchronized void emitLatest(final String eventName, final Payload payload) {
+        if (!hasListeners(eventName)) return;
+        mPendingLatest.put(eventName, payload);
+        scheduleFlush();
+    }
+
+    /**
+     * Emits the payload as part of an array holding every payload of the event emitted during the frame.
+     */
+    public synchronized void emitEvent(final String eventName, final Payload payload) {
+        if (!hasListeners(eventName)) return;
+        List<Payload> payloads = mPendingEvents.get(eventName);
+        if (payloads == null) {
+            payloads = new ArrayList<>();
+            mPendingEvents.put(eventName, payloads);
+        }
+        payloads.add(payload);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (mFlushScheduled) return;
+        mFlushScheduled = true;
+        mHandler.postDelayed(mFlushTrigger, COALESCING_WINDOW_MS);
+    }
+
+    private void flush() {
+        Map<String, Object> states = new LinkedHashMap<>();
+        Map<String, Payload> latest;
+        Map<String, List<Payload>> events;
+        synchronized (this) {
+            mFlushScheduled = false;
+            for (Map.Entry<String, Object> state : mPendingStates.entrySet()) {
+                boolean isEmitted = mEmittedStates.containsKey(state.getKey());
+                Object emitted = mEmittedStates.get(state.getKey());
+                if (isEmitted && (emitted == null ? state.getValue() == null : emitted.equals(state.getValue()))) {
+                    continue;
+                }
+                mEmittedStates.put(state.getKey(), state.getValue());
+                states.put(state.getKey(), state.getValue());
+            }
+            mPendingStates.clear();
+            latest = new LinkedHashMap<>(mPendingLatest);
+            mPendingLatest.clear();
+            events = new LinkedHashMap<>(mPendingEvents);
+            mPendingEvents.clear();
+        }
+
+        if (!mContext.hasActiveCatalystInstance()) return;
+        DeviceEventManagerModule.RCTDeviceEventEmitter emitter =
+                mContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+        for (Map.Entry<String, Object> state : states.entrySet()) {
+            emitter.emit(state.getKey(), state.getValue());
+        }
+        for (Map.Entry<String, Payload> payload : latest.entrySet()) {
+            emitter.emit(payload.getKey(), payload.getValue().build());
+        }
+        for (Map.Entry<String, List<Payload>> payloads : events.entrySet()) {
+            WritableArray array = Arguments.createArray();
+            for (Payload payload : payloads.getValue()) {
+                array.pushMap(payload.build());
+            }
+            emitter.emit(payloads.getKey(), array);
+        }
+    }
+}
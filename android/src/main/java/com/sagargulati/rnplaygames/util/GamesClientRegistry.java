@@ -0,0 +1,312 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.VisibleForTesting;
+
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.games.AchievementsClient;
+import com.google.android.gms.games.EventsClient;
+import com.google.android.gms.games.Games;
+import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.games.PlayersClient;
+import com.google.android.gms.games.SnapshotsClient;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+import com.sagargulati.rnplaygames.core.AchievementsBackend;
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.DispatchingBackends;
+import com.sagargulati.rnplaygames.core.LeaderboardsBackend;
+import com.sagargulati.rnplaygames.core.PlayersBackend;
+
+/**
+ * Holds the signed in account and the games clients built from it, shared by every module.
+ * The registry is invalidated when the auth state or the signed in account changes
+ * (see Helpers.sendAuthStateChangedEvent).
+ */
+public class GamesClientRegistry {
+    // Names of the CallDispatcher families, as shown in the traces.
+    private static final String[] FAMILY_NAMES = { "leaderboards", "achievements", "players", "snapshots", "events" };
+
+    private static GamesClientRegistry sInstance;
+
+    private final Context mContext;
+    private final CopyOnWriteArrayList<AuthStateListener> mListeners = new CopyOnWriteArrayList<>();
+    private final CallDispatcher mDispatcher = new CallDispatcher(Executors.newSingleThreadScheduledExecutor(),
+            new CallDispatcher.RetryPolicy() {
+                @Override
+                public boolean isRetryable(Exception e) {
+                    return Helpers.isTransientFailure(e);
+                }
+            });
+
+    // Last auth state the registry was invalidated for, so that an unchanged state keeps the clients.
+    private boolean mHasAuthState = false;
+    private boolean mIsSignedIn = false;
+    private String mAccountId;
+
+    private GoogleSignInAccount mAccount;
+    private LeaderboardsClient mLeaderboardsClient;
+    private AchievementsClient mAchievementsClient;
+    private PlayersClient mPlayersClient;
+    private SnapshotsClient mSnapshotsClient;
+    private EventsClient mEventsClient;
+    private LeaderboardsBackend mLeaderboardsBackend;
+    private AchievementsBackend mAchievementsBackend;
+    private PlayersBackend mPlayersBackend;
+
+    // Backends replacing the Play Games ones, e.g. a FakeGamesBackend for load testing.
+    private LeaderboardsBackend mLeaderboardsBackendOverride;
+    private AchievementsBackend mAchievementsBackendOverride;
+    private PlayersBackend mPlayersBackendOverride;
+
+    public interface AuthStateListener {
+        void onAuthStateChanged(boolean isSignedIn);
+    }
+
+    public interface TaskCall<T> {
+        Task<T> start();
+    }
+
+    public static synchronized GamesClientRegistry getInstance(final Context context) {
+        if (sInstance == null) {
+            sInstance = new GamesClientRegistry(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private GamesClientRegistry(final Context context) {
+        mContext = context;
+        mDispatcher.setCallContext(MethodTracing.getCallContext());
+    }
+
+    /**
+     * Retrieves the signed in account.
+     * While no account is cached the last signed in account is looked up again, so that a sign in
+     * that happened outside of this library is picked up.
+     * @return the signed in account or null if the user is not signed in.
+     */
+    public synchronized GoogleSignInAccount getAccount() {
+        if (mAccount == null) {
+            mAccount = GoogleSignIn.getLastSignedInAccount(mContext);
+        }
+        return mAccount;
+    }
+
+    /**
+     * @return LeaderboardsClient or null if the user is not signed in.
+     */
+    public synchronized LeaderboardsClient getLeaderboardsClient() {
+        if (mLeaderboardsClient == null && getAccount() != null) {
+            mLeaderboardsClient = Games.getLeaderboardsClient(mContext, mAccount);
+        }
+        return mLeaderboardsClient;
+    }
+
+    /**
+     * @return AchievementsClient or null if the user is not signed in.
+     */
+    public synchronized AchievementsClient getAchievementsClient() {
+        if (mAchievementsClient == null && getAccount() != null) {
+            mAchievementsClient = Games.getAchievementsClient(mContext, mAccount);
+        }
+        return mAchievementsClient;
+    }
+
+    /**
+     * @return PlayersClient or null if the user is not signed in.
+     */
+    public synchronized PlayersClient getPlayersClient() {
+        if (mPlayersClient == null && getAccount() != null) {
+            mPlayersClient = Games.getPlayersClient(mContext, mAccount);
+        }
+        return mPlayersClient;
+    }
+
+    /**
+     * @return SnapshotsClient or null if the user is not signed in.
+     */
+    public synchronized SnapshotsClient getSnapshotsClient() {
+        if (mSnapshotsClient == null && getAccount() != null) {
+            mSnapshotsClient = Games.getSnapshotsClient(mContext, mAccount);
+        }
+        return mSnapshotsClient;
+    }
+
+    /**
+     * @return EventsClient or null if the user is not signed in.
+     */
+    public synchronized EventsClient getEventsClient() {
+        if (mEventsClient == null && getAccount() != null) {
+            mEventsClient = Games.getEventsClient(mContext, mAccount);
+        }
+        return mEventsClient;
+    }
+
+    /**
+     * @return LeaderboardsBackend over the LeaderboardsClient, or null if the user is not signed in.
+     * Its calls go through the dispatcher.
+     */
+    public synchronized LeaderboardsBackend getLeaderboardsBackend() {
+        if (mLeaderboardsBackendOverride != null) return mLeaderboardsBackendOverride;
+        if (mLeaderboardsBackend == null && getLeaderboardsClient() != null) {
+            mLeaderboardsBackend = new DispatchingBackends.Leaderboards(
+                    new PlayGamesBackends.Leaderboards(mLeaderboardsClient), mDispatcher);
+        }
+        return mLeaderboardsBackend;
+    }
+
+    /**
+     * @return AchievementsBackend over the AchievementsClient, or null if the user is not signed in.
+     * Its calls go through the dispatcher.
+     */
+    public synchronized AchievementsBackend getAchievementsBackend() {
+        if (mAchievementsBackendOverride != null) return mAchievementsBackendOverride;
+        if (mAchievementsBackend == null && getAchievementsClient() != null) {
+            mAchievementsBackend = new DispatchingBackends.Achievements(
+                    new PlayGamesBackends.Achievements(mAchievementsClient), mDispatcher);
+        }
+        return mAchievementsBackend;
+    }
+
+    /**
+     * @return PlayersBackend over the PlayersClient, or null if the user is not signed in.
+     * Its calls go through the dispatcher.
+     */
+    public synchronized PlayersBackend getPlayersBackend() {
+        if (mPlayersBackendOverride != null) return mPlayersBackendOverride;
+        if (mPlayersBackend == null && getPlayersClient() != null) {
+            mPlayersBackend = new DispatchingBackends.Players(
+                    new PlayGamesBackends.Players(mPlayersClient), mDispatcher);
+        }
+        return mPlayersBackend;
+    }
+
+    /**
+     * Replaces the Play Games backends used by the modules, whether or not a player is signed in.
+     * Only meant for testing the modules against a FakeGamesBackend; pass nulls to go back to Play Games.
+     * UI intents and the journal replay still go through the Play Games clients.
+     */
+    @VisibleForTesting
+    public synchronized void setBackendOverride(final LeaderboardsBackend leaderboardsBackend,
+                                                final AchievementsBackend achievementsBackend,
+                                                final PlayersBackend playersBackend) {
+        mLeaderboardsBackendOverride = leaderboardsBackend == null
+                ? null
+                : new DispatchingBackends.Leaderboards(leaderboardsBackend, mDispatcher);
+        mAchievementsBackendOverride = achievementsBackend == null
+                ? null
+                : new DispatchingBackends.Achievements(achievementsBackend, mDispatcher);
+        mPlayersBackendOverride = playersBackend == null
+                ? null
+                : new DispatchingBackends.Players(playersBackend, mDispatcher);
+    }
+
+    /**
+     * The dispatcher every call to the games services goes through, see CallDispatcher.
+     */
+    public CallDispatcher getDispatcher() {
+        return mDispatcher;
+    }
+
+    /**
+     * Makes a client call through the dispatcher.
+     * @param family one of the CallDispatcher.FAMILY_ constants.
+     * @param lane CallDispatcher.LANE_INTERACTIVE for calls the player is waiting on, LANE_BACKGROUND otherwise.
+     * @param call starts the client call. It may be called again if the call is retried.
+     * @return a Task completing with the result of the last attempt.
+     */
+    public <T> Task<T> dispatch(final int family, final int lane, final TaskCall<T> call) {
+        return dispatch(family, lane, call, true);
+    }
+
+    /**
+     * Makes a client call through the dispatcher, like dispatch.
+     * @param isRetryable false for calls that are not idempotent, e.g. increments, see CallDispatcher.dispatchOnce.
+     */
+    public <T> Task<T> dispatch(final int family, final int lane, final TaskCall<T> call, final boolean isRetryable) {
+        final TaskCompletionSource<T> source = new TaskCompletionSource<>();
+        CallDispatcher.Call<T> dispatchedCall = new CallDispatcher.Call<T>() {
+            @Override
+            public void start(final Callback<T> callback) {
+                MethodTracing.traceTask(FAMILY_NAMES[family], call.start()).addOnCompleteListener(
+                        CallbackExecutors.background(), new OnCompleteListener<T>() {
+                    @Override
+                    public void onComplete(@NonNull Task<T> task) {
+                        if (task.isSuccessful()) {
+                            callback.onSuccess(task.getResult());
+                        } else {
+                            callback.onFailure(task.getException());
+                        }
+                    }
+                });
+            }
+        };
+        Callback<T> callback = new Callback<T>() {
+            @Override
+            public void onSuccess(T result) {
+                source.setResult(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                source.setException(e);
+            }
+        };
+        if (isRetryable) {
+            mDispatcher.dispatch(family, lane, dispatchedCall, callback);
+        } else {
+            mDispatcher.dispatchOnce(family, lane, dispatchedCall, callback);
+        }
+        return source.getTask();
+    }
+
+    /**
+     * Drops the cached account and clients, then notifies the listeners, if the auth state or the signed in
+     * account changed since the last call. Signing in again with the same account keeps everything cached.
+     * @param isSignedIn the new auth state.
+     * @return whether or not the registry was invalidated.
+     */
+    public boolean invalidate(final boolean isSignedIn) {
+        GoogleSignInAccount account = isSignedIn ? GoogleSignIn.getLastSignedInAccount(mContext) : null;
+        String accountId = account == null ? null : account.getId();
+        synchronized (this) {
+            if (mHasAuthState && mIsSignedIn == isSignedIn
+                    && (mAccountId == null ? accountId == null : mAccountId.equals(accountId))) {
+                return false;
+            }
+            mHasAuthState = true;
+            mIsSignedIn = isSignedIn;
+            mAccountId = accountId;
+
+            mAccount = null;
+            mLeaderboardsClient = null;
+            mAchievementsClient = null;
+            mPlayersClient = null;
+            mSnapshotsClient = null;
+            mEventsClient = null;
+            mLeaderboardsBackend = null;
+            mAchievementsBackend = null;
+            mPlayersBackend = null;
+        }
+        for (AuthStateListener listener : mListeners) {
+            listener.onAuthStateChanged(isSignedIn);
+        }
+        return true;
+    }
+
+    public void addAuthStateListener(final AuthStateListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    public void removeAuthStateListener(final AuthStateListener listener) {
+        mListeners.remove(listener);
+    }
+}
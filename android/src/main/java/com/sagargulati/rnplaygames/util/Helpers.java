@@ -3,18 +3,28 @@ package com.sagargulati.rnplaygames.util;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
+import com.google.android.gms.common.api.ApiException;
+import com.google.android.gms.common.api.CommonStatusCodes;
+import com.google.android.gms.games.GamesClientStatusCodes;
 
 import com.sagargulati.rnplaygames.RNPlayGamesAuth;
+import com.sagargulati.rnplaygames.core.BackendException;
 
 public class Helpers {
     private final static String MESSAGE_AUTHENTICATION_REQUIRED = "Authentication Required.";
+    // Code of the rejections caused by an argument the method can never accept.
+    public final static String ERROR_INVALID_ARGUMENT = "E_INVALID_ARGUMENT";
 
     public static WritableMap getReturnObject() {
         return Arguments.createMap();
     }
 
+    public static WritableArray getReturnArray() {
+        return Arguments.createArray();
+    }
+
     public static void resolvePromise(final Promise promise) {
         if (promise == null) return;
         promise.resolve(null);
@@ -35,8 +45,43 @@ public class Helpers {
         promise.reject(new Exception(MESSAGE_AUTHENTICATION_REQUIRED));
     }
 
+    public static void rejectPromiseWithInvalidArgument(final Promise promise, final String message) {
+        if (promise == null) return;
+        promise.reject(ERROR_INVALID_ARGUMENT, message);
+    }
+
+    /**
+     * Whether or not a rejection message is the one used by rejectPromiseWithAuthenticationRequired.
+     */
+    public static boolean isAuthenticationRequired(final String message) {
+        return MESSAGE_AUTHENTICATION_REQUIRED.equals(message);
+    }
+
+    /**
+     * Whether or not a failed call may succeed if it is retried later,
+     * i.e. it failed because of the network rather than because of the request itself.
+     */
+    public static boolean isTransientFailure(final Exception exception) {
+        if (exception instanceof BackendException) return ((BackendException) exception).isTransient();
+        if (!(exception instanceof ApiException)) return false;
+
+        switch (((ApiException) exception).getStatusCode()) {
+            case CommonStatusCodes.NETWORK_ERROR:
+            case CommonStatusCodes.TIMEOUT:
+            case CommonStatusCodes.SERVICE_NOT_AVAILABLE:
+            case GamesClientStatusCodes.NETWORK_ERROR_OPERATION_FAILED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Invalidates the games clients if the auth state or the account changed, and tells JS about the new
+     * auth state. EventChannel only emits it if it differs from the one JS last received.
+     */
     public static void sendAuthStateChangedEvent(final ReactApplicationContext context, final boolean isSignedIn) {
-        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit(RNPlayGamesAuth.AUTH_STATE_CHANGED_EVENT_NAME, isSignedIn);
+        GamesClientRegistry.getInstance(context).invalidate(isSignedIn);
+        EventChannel.getInstance(context).emitState(RNPlayGamesAuth.AUTH_STATE_CHANGED_EVENT_NAME, isSignedIn);
     }
 }
\ No newline at end of file
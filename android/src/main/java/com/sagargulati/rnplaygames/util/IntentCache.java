@@ -0,0 +1,103 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.content.Intent;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the intents of the UI overlays, one SingleFlightCache per key, so that a show call can start the
+ * activity without waiting for the games services.
+ * Intents are fetched ahead of time with prefetch, and expired intents are still served while they are
+ * fetched again in the background. Every key ever requested is refreshed by refreshAll, e.g. on app resume.
+ */
+public class IntentCache {
+    private final long mTtlMs;
+    private final long mStaleMs;
+    private final Loader mLoader;
+    private final ConcurrentHashMap<String, SingleFlightCache<Intent>> mIntents = new ConcurrentHashMap<>();
+
+    public interface Loader {
+        /**
+         * @return a Task completing with the intent of the key, or null if the user is not signed in.
+         */
+        Task<Intent> load(String key);
+
+        /**
+         * @return whether or not intents can be fetched.
+         */
+        boolean isSignedIn();
+    }
+
+    /**
+     * @param ttlMs how long an intent is used without being fetched again.
+     * @param staleMs how long an expired intent is still used while it is fetched again.
+     * @param loader fetches the intent of a key.
+     */
+    public IntentCache(final long ttlMs, final long staleMs, final Loader loader) {
+        mTtlMs = ttlMs;
+        mStaleMs = staleMs;
+        mLoader = loader;
+    }
+
+    /**
+     * @return a Task completing with the intent of the key, right away if it is cached,
+     * or null if the user is not signed in.
+     */
+    public Task<Intent> get(final String key) {
+        if (!mLoader.isSignedIn()) return null;
+
+        SingleFlightCache<Intent> intent = mIntents.get(key);
+        if (intent == null) {
+            SingleFlightCache<Intent> created = new SingleFlightCache<>(mTtlMs, mStaleMs);
+            intent = mIntents.putIfAbsent(key, created);
+            if (intent == null) {
+                intent = created;
+            }
+        }
+
+        return intent.get(new SingleFlightCache.Loader<Intent>() {
+            @Override
+            public Task<Intent> load() {
+                Task<Intent> loaded = mLoader.load(key);
+                // The player signed out in the meantime.
+                return loaded != null ? loaded : Tasks.<Intent>forException(new Exception("Not signed in."));
+            }
+        });
+    }
+
+    /**
+     * Fetches the intent of the key in the background, unless a fresh one is cached.
+     * @return a Task completing with the intent, or with null if the user is not signed in.
+     */
+    public Task<Intent> prefetch(final String key) {
+        Task<Intent> task = get(key);
+        return task == null ? Tasks.<Intent>forResult(null) : task;
+    }
+
+    /**
+     * Fetches again every expired intent.
+     * @return a Task completing once every fetch has completed.
+     */
+    public Task<List<Task<?>>> refreshAll() {
+        List<Task<?>> fetches = new ArrayList<>();
+        for (String key : mIntents.keySet()) {
+            fetches.add(prefetch(key));
+        }
+        return Tasks.whenAllComplete(fetches);
+    }
+
+    /**
+     * Drops every intent, e.g. when the player changes. Fetches still in flight are not cached.
+     */
+    public void clear() {
+        for (SingleFlightCache<Intent> intent : mIntents.values()) {
+            intent.invalidate();
+        }
+        mIntents.clear();
+    }
+}
@@ -0,0 +1,143 @@
+package com.sagargulati.rnplaygames.util;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Promise that records the latency and outcome of a bridge method in MethodMetrics when it is first settled,
+ * then forwards to the promise received from JS.
+ * While MethodTracing is enabled, the call is traced, and its correlation id is sent to JS as the traceId of the
+ * result (an object with only a traceId if the result is null) or of the userInfo of the rejection.
+ * Results that are neither objects nor null are sent as is.
+ */
+class MeteredPromise implements Promise {
+    private final MethodMetrics mMetrics;
+    private final String mMethod;
+    private final Promise mPromise;
+    private final long mStartNanos = MethodMetrics.start();
+    private final AtomicBoolean mSettled = new AtomicBoolean(false);
+    private final int mTraceId;
+
+    MeteredPromise(final MethodMetrics metrics, final String method, final Promise promise) {
+        mMetrics = metrics;
+        mMethod = method;
+        mPromise = promise;
+        mTraceId = MethodTracing.beginCall(method);
+    }
+
+    private void onSettled(final int outcome) {
+        if (mSettled.compareAndSet(false, true)) {
+            mMetrics.record(mMethod, mStartNanos, outcome);
+            MethodTracing.endSlice(mMethod, mTraceId);
+        }
+    }
+
+    private Object withTraceId(final Object value) {
+        if (mTraceId == 0) return value;
+        if (value == null) {
+            return withTraceId(Helpers.getReturnObject());
+        }
+        if (value instanceof WritableMap) {
+            ((WritableMap) value).putInt("traceId", mTraceId);
+        }
+        return value;
+    }
+
+    /**
+     * Rejects the promise with the traceId in its userInfo.
+     * @return false if the call is not traced, and the promise still has to be rejected.
+     */
+    private boolean rejectTraced(final String code, final String message, final Throwable throwable,
+                                 final WritableMap userInfo) {
+        if (mTraceId == 0) return false;
+        mPromise.reject(code, message, throwable,
+                (WritableMap) withTraceId(userInfo != null ? userInfo : Helpers.getReturnObject()));
+        return true;
+    }
+
+    private void onRejected(final String message, final Throwable throwable) {
+        boolean authenticationRequired = Helpers.isAuthenticationRequired(message)
+                || (throwable != null && Helpers.isAuthenticationRequired(throwable.getMessage()));
+        onSettled(authenticationRequired
+                ? MethodMetrics.OUTCOME_AUTHENTICATION_REQUIRED
+                : MethodMetrics.OUTCOME_FAILURE);
+    }
+
+    @Override
+    public void resolve(Object value) {
+        onSettled(MethodMetrics.OUTCOME_SUCCESS);
+        mPromise.resolve(withTraceId(value));
+    }
+
+    @Override
+    public void reject(String code, String message) {
+        onRejected(message, null);
+        if (rejectTraced(code, message, null, null)) return;
+        mPromise.reject(code, message);
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable) {
+        onRejected(null, throwable);
+        if (rejectTraced(code, null, throwable, null)) return;
+        mPromise.reject(code, throwable);
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable) {
+        onRejected(message, throwable);
+        if (rejectTraced(code, message, throwable, null)) return;
+        mPromise.reject(code, message, throwable);
+    }
+
+    @Override
+    public void reject(Throwable throwable) {
+        onRejected(null, throwable);
+        if (rejectTraced(null, null, throwable, null)) return;
+        mPromise.reject(throwable);
+    }
+
+    @Override
+    public void reject(Throwable throwable, WritableMap userInfo) {
+        onRejected(null, throwable);
+        if (rejectTraced(null, null, throwable, userInfo)) return;
+        mPromise.reject(throwable, userInfo);
+    }
+
+    @Override
+    public void reject(String code, WritableMap userInfo) {
+        onRejected(null, null);
+        if (rejectTraced(code, null, null, userInfo)) return;
+        mPromise.reject(code, userInfo);
+    }
+
+    @Override
+    public void reject(String code, Throwable throwable, WritableMap userInfo) {
+        onRejected(null, throwable);
+        if (rejectTraced(code, null, throwable, userInfo)) return;
+        mPromise.reject(code, throwable, userInfo);
+    }
+
+    @Override
+    public void reject(String code, String message, WritableMap userInfo) {
+        onRejected(message, null);
+        if (rejectTraced(code, message, null, userInfo)) return;
+        mPromise.reject(code, message, userInfo);
+    }
+
+    @Override
+    public void reject(String code, String message, Throwable throwable, WritableMap userInfo) {
+        onRejected(message, throwable);
+        if (rejectTraced(code, message, throwable, userInfo)) return;
+        mPromise.reject(code, message, throwable, userInfo);
+    }
+
+    @Deprecated
+    public void reject(String message) {
+        onRejected(message, null);
+        if (rejectTraced(null, message, null, null)) return;
+        mPromise.reject(message);
+    }
+}
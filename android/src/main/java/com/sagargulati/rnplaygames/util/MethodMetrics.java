@@ -0,0 +1,167 @@
+package com.sagargulati.rnplaygames.util;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and outcome counters for every instrumented bridge method.
+ * Latencies are kept in a histogram of power of two microsecond buckets, so recording a call is a few
+ * atomic increments and never allocates once the method has been seen.
+ */
+public class MethodMetrics {
+    public final static int OUTCOME_SUCCESS = 0;
+    public final static int OUTCOME_FAILURE = 1;
+    public final static int OUTCOME_AUTHENTICATION_REQUIRED = 2;
+
+    // Bucket i holds latencies in [2^i, 2^(i+1)) microseconds, the last one everything above.
+    private final static int BUCKET_COUNT = 32;
+
+    private static final MethodMetrics sInstance = new MethodMetrics();
+
+    private final ConcurrentHashMap<String, Stats> mStats = new ConcurrentHashMap<>();
+
+    public static MethodMetrics getInstance() {
+        return sInstance;
+    }
+
+    private MethodMetrics() {
+    }
+
+    /**
+     * Wraps a promise so that the time until it is settled, and how it is settled, is recorded for the method.
+     * @param method name the metrics are reported under, e.g. "leaderboard.submitScore".
+     * @param promise
+     * @return the promise to hand to the implementation, null if promise is null.
+     */
+    public static Promise track(final String method, final Promise promise) {
+        if (promise == null) return null;
+        return new MeteredPromise(sInstance, method, promise);
+    }
+
+    /**
+     * @return the start time to pass to record.
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a call of the method that started at startNanos and just completed.
+     * @param method
+     * @param startNanos the value returned by start.
+     * @param outcome one of the OUTCOME_ constants.
+     */
+    public void record(final String method, final long startNanos, final int outcome) {
+        long latencyMicros = Math.max(0, (System.nanoTime() - startNanos) / 1000);
+        getStats(method).record(latencyMicros, outcome);
+    }
+
+    /**
+     * @return the metrics of every method called so far, keyed by method name.
+     */
+    public WritableMap snapshot() {
+        WritableMap snapshot = Helpers.getReturnObject();
+        for (Map.Entry<String, Stats> entry : mStats.entrySet()) {
+            snapshot.putMap(entry.getKey(), entry.getValue().toWritableMap());
+        }
+        return snapshot;
+    }
+
+    public void reset() {
+        mStats.clear();
+    }
+
+    private Stats getStats(final String method) {
+        Stats stats = mStats.get(method);
+        if (stats == null) {
+            Stats created = new Stats();
+            stats = mStats.putIfAbsent(method, created);
+            if (stats == null) {
+                stats = created;
+            }
+        }
+        return stats;
+    }
+
+    private static int bucketOf(final long latencyMicros) {
+        if (latencyMicros <= 1) return 0;
+        return Math.min(BUCKET_COUNT - 1, 63 - Long.numberOfLeadingZeros(latencyMicros));
+    }
+
+    private static class Stats {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong successCount = new AtomicLong();
+        final AtomicLong failureCount = new AtomicLong();
+        final AtomicLong authenticationRequiredCount = new AtomicLong();
+        final AtomicLong totalMicros = new AtomicLong();
+        final AtomicLong maxMicros = new AtomicLong();
+
+        void record(final long latencyMicros, final int outcome) {
+            buckets.incrementAndGet(bucketOf(latencyMicros));
+            totalMicros.addAndGet(latencyMicros);
+
+            long max = maxMicros.get();
+            while (latencyMicros > max && !maxMicros.compareAndSet(max, latencyMicros)) {
+                max = maxMicros.get();
+            }
+
+            switch (outcome) {
+                case OUTCOME_SUCCESS:
+                    successCount.incrementAndGet();
+                    break;
+                case OUTCOME_AUTHENTICATION_REQUIRED:
+                    authenticationRequiredCount.incrementAndGet();
+                    break;
+                default:
+                    failureCount.incrementAndGet();
+                    break;
+            }
+        }
+
+        WritableMap toWritableMap() {
+            long[] counts = new long[BUCKET_COUNT];
+            long count = 0;
+            WritableArray histogram = Helpers.getReturnArray();
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                count += counts[i];
+                histogram.pushDouble(counts[i]);
+            }
+
+            WritableMap map = Helpers.getReturnObject();
+            map.putDouble("count", count);
+            map.putDouble("successCount", successCount.get());
+            map.putDouble("failureCount", failureCount.get());
+            map.putDouble("authenticationRequiredCount", authenticationRequiredCount.get());
+            map.putDouble("meanMs", count == 0 ? 0 : totalMicros.get() / (double) count / 1000);
+            map.putDouble("maxMs", maxMicros.get() / 1000.0);
+            map.putDouble("p50Ms", percentileMs(counts, count, 0.5));
+            map.putDouble("p90Ms", percentileMs(counts, count, 0.9));
+            map.putDouble("p99Ms", percentileMs(counts, count, 0.99));
+            map.putArray("histogram", histogram);
+            return map;
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the percentile, in milliseconds.
+         */
+        private double percentileMs(final long[] counts, final long count, final double percentile) {
+            if (count == 0) return 0;
+            long rank = (long) Math.ceil(count * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i == BUCKET_COUNT - 1 ? maxMicros.get() / 1000.0 : (1L << (i + 1)) / 1000.0;
+                }
+            }
+            return maxMicros.get() / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+
+/**
+ * Opt-in android.os.Trace sections, so that the work done for a bridge call can be followed in Perfetto.
+ * Every method tracked by MethodMetrics gets a correlation id, which is current on the bridge thread while the
+ * method runs. The listener executors and the dispatcher capture the current id when a listener or a call is
+ * registered, and make it current again on the thread running it, so every section carries the id of the bridge
+ * call it was started for:
+ * - "RNPlayGames method#id", an async slice from the bridge call until its promise is settled.
+ * - "RNPlayGames task:name#id", an async slice from the start of a games services Task until it completes.
+ * - "RNPlayGames callback#id", a section around every listener run on CallbackExecutors.
+ * - "RNPlayGames startActivityForResult#id", a section around the start of an activity, then an async slice
+ * "RNPlayGames activity#id" until its result is received.
+ * Sections need API 18 and async slices API 29. Nothing is recorded while tracing is disabled.
+ */
+public class MethodTracing {
+    private static final String PREFIX = "RNPlayGames ";
+    // Longer section names are rejected by Trace.
+    private static final int MAX_NAME_LENGTH = 127;
+
+    private static final AtomicInteger sNextId = new AtomicInteger(1);
+    private static volatile boolean sEnabled = false;
+    private static final ThreadLocal<int[]> sCurrentId = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    private static final Executor IMMEDIATE = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private static final CallDispatcher.CallContext CALL_CONTEXT = new CallDispatcher.CallContext() {
+        @Override
+        public Object capture() {
+            int id = currentId();
+            return id == 0 ? null : id;
+        }
+
+        @Override
+        public void run(Object context, Runnable runnable) {
+            runWithId((Integer) context, null, runnable);
+        }
+    };
+
+    private MethodTracing() {
+    }
+
+    public static void setEnabled(final boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @return the context the dispatcher captures its calls with, see CallDispatcher.setCallContext.
+     */
+    public static CallDispatcher.CallContext getCallContext() {
+        return CALL_CONTEXT;
+    }
+
+    /**
+     * Starts the async slice of a bridge call, and makes its id the current one on this thread until the next
+     * call starts here.
+     * @param method name of the method, e.g. "leaderboard.submitScore".
+     * @return the correlation id of the call, or 0 if tracing is disabled.
+     */
+    public static int beginCall(final String method) {
+        if (!sEnabled) return 0;
+        int id = sNextId.getAndIncrement();
+        if (id == 0) {
+            id = sNextId.getAndIncrement();
+        }
+        sCurrentId.get()[0] = id;
+        beginAsyncSection(method, id);
+        return id;
+    }
+
+    /**
+     * Begins an async slice, to be ended by endSlice on any thread.
+     * @param id correlation id, 0 to record nothing.
+     */
+    public static void beginSlice(final String name, final int id) {
+        if (id != 0) {
+            beginAsyncSection(name, id);
+        }
+    }
+
+    /**
+     * Ends an async slice started by beginCall or beginSlice.
+     * @param id correlation id, 0 to record nothing.
+     */
+    public static void endSlice(final String name, final int id) {
+        if (id != 0) {
+            endAsyncSection(name, id);
+        }
+    }
+
+    /**
+     * @return the correlation id current on this thread, or 0 if there is none.
+     */
+    public static int currentId() {
+        return sEnabled ? sCurrentId.get()[0] : 0;
+    }
+
+    /**
+     * Records an async slice from now until the task completes, with the current correlation id.
+     * @param name name of the task, e.g. "leaderboards.submitScoreImmediate".
+     * @return task, for chaining.
+     */
+    public static <T> Task<T> traceTask(final String name, final Task<T> task) {
+        final int id = currentId();
+        if (id == 0) return task;
+        final String sectionName = "task:" + name;
+        // A call may start several tasks of the same name, e.g. a bulk update.
+        final int cookie = sNextId.getAndIncrement();
+        beginAsyncSection(sectionName, id, cookie);
+        task.addOnCompleteListener(IMMEDIATE, new OnCompleteListener<T>() {
+            @Override
+            public void onComplete(@NonNull Task<T> completed) {
+                endAsyncSection(sectionName, id, cookie);
+            }
+        });
+        return task;
+    }
+
+    /**
+     * @return an executor running its commands in a section named after the section, with the correlation id
+     * current when bind is called, or the executor itself if there is no current id.
+     */
+    public static Executor bind(final Executor executor, final String section) {
+        final int id = currentId();
+        if (id == 0) return executor;
+        return new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runWithId(id, section, command);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Runs the runnable with the correlation id current, in a section if one is given.
+     * @param id correlation id, 0 to run the runnable as is.
+     * @param section nullable name of the section.
+     */
+    public static void runWithId(final int id, final String section, final Runnable runnable) {
+        if (id == 0) {
+            runnable.run();
+            return;
+        }
+        int[] current = sCurrentId.get();
+        int previous = current[0];
+        current[0] = id;
+        if (section != null) {
+            beginSection(section, id);
+        }
+        try {
+            runnable.run();
+        } finally {
+            if (section != null) {
+                endSection();
+            }
+            current[0] = previous;
+        }
+    }
+
+    /**
+     * Begins a section with the current correlation id, to be ended by endSection on the same thread.
+     * @return whether or not a section was begun.
+     */
+    public static boolean beginSection(final String section) {
+        int id = currentId();
+        if (id == 0) return false;
+        beginSection(section, id);
+        return true;
+    }
+
+    public static void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.endSection();
+        }
+    }
+
+    private static void beginSection(final String section, final int id) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(getName(section, id));
+        }
+    }
+
+    private static void beginAsyncSection(final String section, final int id) {
+        beginAsyncSection(section, id, id);
+    }
+
+    private static void endAsyncSection(final String section, final int id) {
+        endAsyncSection(section, id, id);
+    }
+
+    /**
+     * @param cookie tells apart the slices of the same name running at the same time.
+     */
+    private static void beginAsyncSection(final String section, final int id, final int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(getName(section, id), cookie);
+        }
+    }
+
+    private static void endAsyncSection(final String section, final int id, final int cookie) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(getName(section, id), cookie);
+        }
+    }
+
+    private static String getName(final String section, final int id) {
+        String name = PREFIX + section + "#" + id;
+        return name.length() > MAX_NAME_LENGTH ? name.substring(name.length() - MAX_NAME_LENGTH) : name;
+    }
+}
@@ -0,0 +1,160 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.net.Uri;
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.games.AchievementsClient;
+import com.google.android.gms.games.AnnotatedData;
+import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.games.Player;
+import com.google.android.gms.games.PlayersClient;
+import com.google.android.gms.games.leaderboard.LeaderboardVariant;
+import com.google.android.gms.games.leaderboard.ScoreSubmissionData;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+
+import com.sagargulati.rnplaygames.core.AchievementsBackend;
+import com.sagargulati.rnplaygames.core.Callback;
+import com.sagargulati.rnplaygames.core.LeaderboardsBackend;
+import com.sagargulati.rnplaygames.core.NewBests;
+import com.sagargulati.rnplaygames.core.PlayerInfo;
+import com.sagargulati.rnplaygames.core.PlayersBackend;
+
+/**
+ * Backends of the core module implemented on top of the Play Games clients.
+ */
+public class PlayGamesBackends {
+    private PlayGamesBackends() {
+    }
+
+    public static class Leaderboards implements LeaderboardsBackend {
+        private final LeaderboardsClient mClient;
+
+        public Leaderboards(final LeaderboardsClient client) {
+            mClient = client;
+        }
+
+        @Override
+        public void submitScoreImmediate(final String boardId, final long score, final String scoreTag,
+                                         final Callback<NewBests> callback) {
+            Task<ScoreSubmissionData> task = MethodTracing.traceTask("leaderboards.submitScoreImmediate",
+                    scoreTag == null
+                            ? mClient.submitScoreImmediate(boardId, score)
+                            : mClient.submitScoreImmediate(boardId, score, scoreTag));
+            task.addOnCompleteListener(CallbackExecutors.background(), new OnCompleteListener<ScoreSubmissionData>() {
+                @Override
+                public void onComplete(@NonNull Task<ScoreSubmissionData> completed) {
+                    if (!completed.isSuccessful()) {
+                        callback.onFailure(completed.getException());
+                        return;
+                    }
+                    ScoreSubmissionData data = completed.getResult();
+                    callback.onSuccess(new NewBests(isNewBest(data, LeaderboardVariant.TIME_SPAN_DAILY),
+                            isNewBest(data, LeaderboardVariant.TIME_SPAN_WEEKLY),
+                            isNewBest(data, LeaderboardVariant.TIME_SPAN_ALL_TIME)));
+                }
+            });
+        }
+
+        private static boolean isNewBest(final ScoreSubmissionData data, final int timeSpan) {
+            ScoreSubmissionData.Result result = data.getScoreResult(timeSpan);
+            return result != null && result.newBest;
+        }
+    }
+
+    public static class Achievements implements AchievementsBackend {
+        private final AchievementsClient mClient;
+
+        public Achievements(final AchievementsClient client) {
+            mClient = client;
+        }
+
+        @Override
+        public void incrementImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            forward("achievements.incrementImmediate", mClient.incrementImmediate(id, numSteps), callback);
+        }
+
+        @Override
+        public void setStepsImmediate(final String id, final int numSteps, final Callback<Boolean> callback) {
+            forward("achievements.setStepsImmediate", mClient.setStepsImmediate(id, numSteps), callback);
+        }
+
+        @Override
+        public void unlockImmediate(final String id, final Callback<Void> callback) {
+            forward("achievements.unlockImmediate", mClient.unlockImmediate(id), callback);
+        }
+
+        @Override
+        public void revealImmediate(final String id, final Callback<Void> callback) {
+            forward("achievements.revealImmediate", mClient.revealImmediate(id), callback);
+        }
+    }
+
+    public static class Players implements PlayersBackend {
+        private final PlayersClient mClient;
+
+        public Players(final PlayersClient client) {
+            mClient = client;
+        }
+
+        @Override
+        public void getCurrentPlayer(final Callback<PlayerInfo> callback) {
+            MethodTracing.traceTask("players.getCurrentPlayer", mClient.getCurrentPlayer()).addOnCompleteListener(
+                    CallbackExecutors.background(), new OnCompleteListener<Player>() {
+                @Override
+                public void onComplete(@NonNull Task<Player> completed) {
+                    if (!completed.isSuccessful()) {
+                        callback.onFailure(completed.getException());
+                        return;
+                    }
+                    callback.onSuccess(toPlayerInfo(completed.getResult()));
+                }
+            });
+        }
+
+        @Override
+        public void loadPlayer(final String playerId, final boolean forceReload, final Callback<PlayerInfo> callback) {
+            MethodTracing.traceTask("players.loadPlayer", mClient.loadPlayer(playerId, forceReload))
+                    .addOnCompleteListener(CallbackExecutors.background(),
+                            new OnCompleteListener<AnnotatedData<Player>>() {
+                @Override
+                public void onComplete(@NonNull Task<AnnotatedData<Player>> completed) {
+                    if (!completed.isSuccessful()) {
+                        callback.onFailure(completed.getException());
+                        return;
+                    }
+                    Player player = completed.getResult().get();
+                    if (player == null) {
+                        callback.onFailure(new Exception("Player not found: " + playerId));
+                        return;
+                    }
+                    callback.onSuccess(toPlayerInfo(player));
+                }
+            });
+        }
+
+        private static PlayerInfo toPlayerInfo(final Player player) {
+            return new PlayerInfo(player.getPlayerId(), player.getDisplayName(), player.getTitle(),
+                    player.getLastPlayedWithTimestamp(), uriToString(player.getIconImageUri()),
+                    uriToString(player.getHiResImageUri()));
+        }
+
+        private static String uriToString(final Uri uri) {
+            return uri == null ? null : uri.toString();
+        }
+    }
+
+    private static <T> void forward(final String name, final Task<T> task, final Callback<T> callback) {
+        MethodTracing.traceTask(name, task).addOnCompleteListener(CallbackExecutors.background(),
+                new OnCompleteListener<T>() {
+            @Override
+            public void onComplete(@NonNull Task<T> completed) {
+                if (completed.isSuccessful()) {
+                    callback.onSuccess(completed.getResult());
+                } else {
+                    callback.onFailure(completed.getException());
+                }
+            }
+        });
+    }
+}
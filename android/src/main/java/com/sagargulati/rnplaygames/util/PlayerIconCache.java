@@ -0,0 +1,229 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.net.Uri;
+import android.util.LruCache;
+
+import com.google.android.gms.common.images.ImageManager;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns the image URIs of the games services, which only ImageManager can read, into file URIs JS can display.
+ * Icons are written once to the cache directory and served from there. Decoded bitmaps are kept in a cache
+ * bounded in bytes, so that icons whose file was removed with the cache directory are written again without
+ * being loaded again. ImageManager decodes the images on its own threads, and only hands them over on the main
+ * thread: the encoding and writing of the files happen on the background executor.
+ * At most MAX_CONCURRENT_LOADS images are loaded at once, and concurrent requests for the same image share one load.
+ */
+public class PlayerIconCache {
+    private static final String ICON_DIRECTORY = "rnplaygames-icons";
+    private static final int MAX_CONCURRENT_LOADS = 4;
+
+    private final Context mContext;
+    private final File mDirectory;
+    private LruCache<String, Bitmap> mBitmaps;
+    private ImageManager mImageManager;
+
+    private final Map<String, TaskCompletionSource<String>> mInFlight = new HashMap<>();
+    private final ArrayDeque<String> mQueuedLoads = new ArrayDeque<>();
+    private int mActiveLoads = 0;
+
+    /**
+     * @param context used to find the cache directory and to create the ImageManager.
+     * @param maxBitmapBytes size of the decoded bitmaps kept in memory, in bytes.
+     */
+    public PlayerIconCache(final Context context, final int maxBitmapBytes) {
+        mContext = context.getApplicationContext();
+        mDirectory = new File(mContext.getCacheDir(), ICON_DIRECTORY);
+        mBitmaps = createBitmapCache(maxBitmapBytes);
+    }
+
+    /**
+     * @param maxBitmapBytes size of the decoded bitmaps kept in memory, in bytes. Drops the bitmaps kept so far.
+     */
+    public synchronized void setMaxBitmapBytes(final int maxBitmapBytes) {
+        mBitmaps.evictAll();
+        mBitmaps = createBitmapCache(maxBitmapBytes);
+    }
+
+    /**
+     * Retrieves the file URI of an image, loading and writing the image if needed.
+     * @param imageUri image URI returned by the games services, may be null.
+     * @return a Task completing with the file URI, or with null if imageUri is null.
+     */
+    public Task<String> getFileUri(final String imageUri) {
+        if (imageUri == null) return Tasks.forResult(null);
+
+        final File file = getFile(imageUri);
+        if (file.exists()) return Tasks.forResult(Uri.fromFile(file).toString());
+
+        final TaskCompletionSource<String> source;
+        synchronized (this) {
+            TaskCompletionSource<String> inFlight = mInFlight.get(imageUri);
+            if (inFlight != null) return inFlight.getTask();
+            source = new TaskCompletionSource<>();
+            mInFlight.put(imageUri, source);
+        }
+
+        final Bitmap bitmap = getBitmap(imageUri);
+        if (bitmap != null) {
+            CallbackExecutors.background().execute(new Runnable() {
+                @Override
+                public void run() {
+                    write(imageUri, bitmap);
+                }
+            });
+        } else {
+            enqueueLoad(imageUri);
+        }
+        return source.getTask();
+    }
+
+    /**
+     * Drops the bitmaps kept in memory. The files are kept, as the images do not depend on the signed in player.
+     */
+    public synchronized void clearMemory() {
+        mBitmaps.evictAll();
+    }
+
+    private synchronized Bitmap getBitmap(final String imageUri) {
+        return mBitmaps.get(imageUri);
+    }
+
+    private void enqueueLoad(final String imageUri) {
+        synchronized (this) {
+            mQueuedLoads.add(imageUri);
+        }
+        startQueuedLoads();
+    }
+
+    private void startQueuedLoads() {
+        while (true) {
+            final String imageUri;
+            synchronized (this) {
+                if (mActiveLoads >= MAX_CONCURRENT_LOADS || mQueuedLoads.isEmpty()) return;
+                imageUri = mQueuedLoads.poll();
+                mActiveLoads++;
+            }
+            CallbackExecutors.mainThread().execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(imageUri);
+                }
+            });
+        }
+    }
+
+    /**
+     * Has ImageManager load the image. Must be called on the main thread.
+     */
+    private void load(final String imageUri) {
+        if (mImageManager == null) {
+            mImageManager = ImageManager.create(mContext);
+        }
+        mImageManager.loadImage(new ImageManager.OnImageLoadedListener() {
+            @Override
+            public void onImageLoaded(Uri uri, final Drawable drawable, boolean isRequestedDrawable) {
+                synchronized (PlayerIconCache.this) {
+                    mActiveLoads--;
+                }
+                startQueuedLoads();
+
+                if (!isRequestedDrawable || !(drawable instanceof BitmapDrawable)) {
+                    fail(imageUri, new Exception("Could not load image: " + imageUri));
+                    return;
+                }
+                final Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+                CallbackExecutors.background().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (PlayerIconCache.this) {
+                            mBitmaps.put(imageUri, bitmap);
+                        }
+                        write(imageUri, bitmap);
+                    }
+                });
+            }
+        }, Uri.parse(imageUri));
+    }
+
+    /**
+     * Writes the bitmap to a temporary file first, so that a partly written icon is never served.
+     */
+    private void write(final String imageUri, final Bitmap bitmap) {
+        File file = getFile(imageUri);
+        File temporary = new File(mDirectory, file.getName() + ".tmp");
+        OutputStream output = null;
+        try {
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                throw new IOException("Could not create " + mDirectory);
+            }
+            output = new FileOutputStream(temporary);
+            if (!bitmap.compress(Bitmap.CompressFormat.PNG, 100, output)) {
+                throw new IOException("Could not encode image: " + imageUri);
+            }
+            output.close();
+            output = null;
+            if (!temporary.renameTo(file)) {
+                throw new IOException("Could not write " + file);
+            }
+            complete(imageUri).setResult(Uri.fromFile(file).toString());
+        } catch (IOException e) {
+            temporary.delete();
+            fail(imageUri, e);
+        } finally {
+            if (output != null) {
+                try {
+                    output.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private void fail(final String imageUri, final Exception e) {
+        complete(imageUri).setException(e);
+    }
+
+    private synchronized TaskCompletionSource<String> complete(final String imageUri) {
+        return mInFlight.remove(imageUri);
+    }
+
+    private File getFile(final String imageUri) {
+        return new File(mDirectory, hash(imageUri) + ".png");
+    }
+
+    private static String hash(final String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes("UTF-8"));
+            return String.format("%032x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException | IOException e) {
+            return Integer.toHexString(value.hashCode());
+        }
+    }
+
+    private static LruCache<String, Bitmap> createBitmapCache(final int maxBitmapBytes) {
+        return new LruCache<String, Bitmap>(Math.max(1, maxBitmapBytes)) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getRowBytes() * bitmap.getHeight();
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.os.SystemClock;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * LRU cache of loaded leaderboard score pages, keyed by board, time span, collection,
+ * page size and whether the scores are the top or the player centered ones.
+ * Pages hold plain copies of the scores, so the score buffers can be released right after loading.
+ */
+public class ScorePageCache {
+    private final LruCache<String, Pages> mCache;
+    private final long mTtlMs;
+
+    public ScorePageCache(final int maxBoards, final long ttlMs) {
+        mCache = new LruCache<>(maxBoards);
+        mTtlMs = ttlMs;
+    }
+
+    public static String getKey(final boolean playerCentered, final String boardId, final int timeSpan,
+                                final int collection, final int pageSize) {
+        return (playerCentered ? "centered" : "top") + '|' + timeSpan + '|' + collection + '|' + pageSize
+                + '|' + boardId;
+    }
+
+    /**
+     * @return the cached page or null if it has not been loaded or has expired.
+     */
+    public synchronized List<ScoreEntry> getPage(final String key, final int pageIndex) {
+        Pages pages = mCache.get(key);
+        if (pages == null) return null;
+        if (SystemClock.elapsedRealtime() - pages.loadedAt > mTtlMs) {
+            mCache.remove(key);
+            return null;
+        }
+        return pageIndex < pages.pages.size() ? pages.pages.get(pageIndex) : null;
+    }
+
+    /**
+     * Whether or not there may be scores after the specified page.
+     */
+    public synchronized boolean hasMore(final String key, final int pageIndex) {
+        Pages pages = mCache.get(key);
+        return pages == null || !pages.isComplete || pageIndex + 1 < pages.pages.size();
+    }
+
+    /**
+     * Stores a page. Pages must be stored in order; storing the first page again starts over.
+     * @param isLast whether or not this is the last page of the board.
+     */
+    public synchronized void putPage(final String key, final int pageIndex, final List<ScoreEntry> page,
+                                     final boolean isLast) {
+        Pages pages = mCache.get(key);
+        if (pages == null || pageIndex == 0) {
+            pages = new Pages();
+            mCache.put(key, pages);
+        }
+        if (pageIndex != pages.pages.size()) return;
+
+        pages.pages.add(page);
+        pages.isComplete = isLast;
+    }
+
+    /**
+     * Drops every cached page of a board, e.g. after a score was submitted to it.
+     */
+    public synchronized void invalidateBoard(final String boardId) {
+        for (Map.Entry<String, Pages> entry : mCache.snapshot().entrySet()) {
+            if (entry.getKey().endsWith('|' + boardId)) {
+                mCache.remove(entry.getKey());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        mCache.evictAll();
+    }
+
+    private static class Pages {
+        final List<List<ScoreEntry>> pages = new ArrayList<>();
+        final long loadedAt = SystemClock.elapsedRealtime();
+        boolean isComplete = false;
+    }
+
+    /**
+     * Plain copy of a LeaderboardScore.
+     */
+    public static class ScoreEntry {
+        public final long rank;
+        public final String displayRank;
+        public final long rawScore;
+        public final String displayScore;
+        public final String scoreTag;
+        public final long timestamp;
+        public final String playerId;
+        public final String displayName;
+
+        public ScoreEntry(final long rank, final String displayRank, final long rawScore, final String displayScore,
+                          final String scoreTag, final long timestamp, final String playerId,
+                          final String displayName) {
+            this.rank = rank;
+            this.displayRank = displayRank;
+            this.rawScore = rawScore;
+            this.displayScore = displayScore;
+            this.scoreTag = scoreTag;
+            this.timestamp = timestamp;
+            this.playerId = playerId;
+            this.displayName = displayName;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+/**
+ * Caches a single value for a configurable time to live.
+ * Callers that arrive while the value is being loaded share the same Task, and a stale value is
+ * still served for a while after it expires while a refresh runs in the background.
+ */
+public class SingleFlightCache<T> {
+    private long mTtlMs;
+    private long mStaleMs;
+
+    private T mValue;
+    private long mLoadedAt;
+    private Task<T> mInFlight;
+    private int mGeneration = 0;
+
+    public interface Loader<T> {
+        Task<T> load();
+    }
+
+    /**
+     * @param ttlMs how long a loaded value is served without being refreshed.
+     * @param staleMs how long an expired value is still served while it is refreshed.
+     */
+    public SingleFlightCache(final long ttlMs, final long staleMs) {
+        mTtlMs = ttlMs;
+        mStaleMs = staleMs;
+    }
+
+    public synchronized void setTtl(final long ttlMs, final long staleMs) {
+        mTtlMs = ttlMs;
+        mStaleMs = staleMs;
+    }
+
+    /**
+     * Retrieves the cached value, loading it if it is missing or expired.
+     * @param loader used to load the value if no load is in flight.
+     * @return a Task that completes with the value.
+     */
+    public synchronized Task<T> get(final Loader<T> loader) {
+        if (mValue != null) {
+            long age = SystemClock.elapsedRealtime() - mLoadedAt;
+            if (age < mTtlMs) {
+                return Tasks.forResult(mValue);
+            }
+            if (age < mTtlMs + mStaleMs) {
+                refresh(loader);
+                return Tasks.forResult(mValue);
+            }
+        }
+        return refresh(loader);
+    }
+
+    /**
+     * @return the cached value, even if it is expired, or null if nothing is cached.
+     */
+    public synchronized T peek() {
+        return mValue;
+    }
+
+    /**
+     * Drops the cached value. A load that is still in flight will not populate the cache.
+     */
+    public synchronized void invalidate() {
+        mValue = null;
+        mInFlight = null;
+        mGeneration++;
+    }
+
+    private Task<T> refresh(final Loader<T> loader) {
+        if (mInFlight != null) {
+            return mInFlight;
+        }
+
+        final int generation = mGeneration;
+        final Task<T> task = loader.load();
+        mInFlight = task;
+        task.addOnCompleteListener(CallbackExecutors.background(), new OnCompleteListener<T>() {
+            @Override
+            public void onComplete(@NonNull Task<T> completed) {
+                synchronized (SingleFlightCache.this) {
+                    if (generation != mGeneration) return;
+                    if (completed.isSuccessful() && completed.getResult() != null) {
+                        mValue = completed.getResult();
+                        mLoadedAt = SystemClock.elapsedRealtime();
+                    }
+                    mInFlight = null;
+                }
+            }
+        });
+        return task;
+    }
+}
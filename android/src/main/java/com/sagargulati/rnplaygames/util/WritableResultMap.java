@@ -0,0 +1,39 @@
+package com.sagargulati.rnplaygames.util;
+
+import com.facebook.react.bridge.WritableMap;
+
+import com.sagargulati.rnplaygames.core.ResultMap;
+
+/**
+ * ResultMap writing to a WritableMap, so that the core result builders can fill the objects sent to JS.
+ */
+public class WritableResultMap implements ResultMap {
+    private final WritableMap mMap;
+
+    public WritableResultMap() {
+        this(Helpers.getReturnObject());
+    }
+
+    public WritableResultMap(final WritableMap map) {
+        mMap = map;
+    }
+
+    public WritableMap getMap() {
+        return mMap;
+    }
+
+    @Override
+    public void putBoolean(final String key, final boolean value) {
+        mMap.putBoolean(key, value);
+    }
+
+    @Override
+    public void putDouble(final String key, final double value) {
+        mMap.putDouble(key, value);
+    }
+
+    @Override
+    public void putString(final String key, final String value) {
+        mMap.putString(key, value);
+    }
+}
@@ -0,0 +1,541 @@
+package com.sagargulati.rnplaygames.util;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.games.AchievementsClient;
+import com.google.android.gms.games.AnnotatedData;
+import com.google.android.gms.games.LeaderboardsClient;
+import com.google.android.gms.games.achievement.Achievement;
+import com.google.android.gms.games.achievement.AchievementBuffer;
+import com.google.android.gms.games.leaderboard.ScoreSubmissionData;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.sagargulati.rnplaygames.core.CallDispatcher;
+import com.sagargulati.rnplaygames.core.JournalRecords;
+import com.sagargulati.rnplaygames.core.JournalRecords.Entry;
+
+/**
+ * Append-only on-disk journal of leaderboard and achievement writes that could not be sent,
+ * either because the player was signed out or because the network was unavailable.
+ * Journaled writes are replayed in order once the player is signed in or connectivity returns.
+ * Every write is stored with the id of the account it was made for: the signed in account, or the last account
+ * signed in on this device if the player is signed out. Only the writes of the signed in account are replayed,
+ * the others are kept until their account signs in again, up to MAX_OTHER_ACCOUNT_RECORDS of them: the oldest
+ * are dropped when the journal is compacted.
+ *
+ * The records are encoded by JournalRecords, and the file is rewritten without the acknowledged writes once
+ * enough of them have piled up. All file I/O happens on a single background thread.
+ *
+ * Writes are replayed one at a time through the dispatcher, without blocking that thread. A failed write may
+ * still have been applied, so every write is made idempotent before it is replayed: increments are converted
+ * to the absolute step count they lead to, from the steps loaded from the games services, and the conversion
+ * is journaled so that the increment is never sent again. This only holds for increments that never reached the
+ * games services, so an increment that failed while it may have been sent must be recorded as set steps instead.
+ */
+public class WriteJournal {
+    private static final String TAG = "RNPlayGames";
+    private static final String JOURNAL_DIRECTORY = "rnplaygames";
+    private static final String JOURNAL_FILE = "journal.bin";
+    private static final String ACCOUNT_PREFERENCES = "rnplaygames.journal";
+    private static final String LAST_ACCOUNT_ID_KEY = "lastAccountId";
+
+    private static final long SYNC_DELAY_MS = 250;
+    private static final int SYNC_BATCH_SIZE = 32;
+    private static final int MAX_OTHER_ACCOUNT_RECORDS = 256;
+
+    private static WriteJournal sInstance;
+
+    private final Context mContext;
+    private final File mFile;
+    private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+
+    // Only touched from mExecutor.
+    private final JournalRecords mRecords = new JournalRecords();
+    private FileOutputStream mFileOut;
+    private DataOutputStream mOut;
+    private ScheduledFuture<?> mSyncFuture;
+    private int mUnsyncedRecords = 0;
+    private boolean mReplaying = false;
+    // The signed in account, or the last one signed in on this device. Loaded with the journal.
+    private String mAccountId;
+
+    private volatile boolean mEnabled = false;
+    private BroadcastReceiver mConnectivityReceiver;
+
+    public static synchronized WriteJournal getInstance(final Context context) {
+        if (sInstance == null) {
+            sInstance = new WriteJournal(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private WriteJournal(final Context context) {
+        mContext = context;
+        mFile = new File(new File(context.getFilesDir(), JOURNAL_DIRECTORY), JOURNAL_FILE);
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                mAccountId = context.getSharedPreferences(ACCOUNT_PREFERENCES, Context.MODE_PRIVATE)
+                        .getString(LAST_ACCOUNT_ID_KEY, null);
+                load();
+                updateAccountId();
+            }
+        });
+        GamesClientRegistry.getInstance(context).addAuthStateListener(new GamesClientRegistry.AuthStateListener() {
+            @Override
+            public void onAuthStateChanged(boolean isSignedIn) {
+                if (!isSignedIn) return;
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateAccountId();
+                    }
+                });
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Enables or disables journaling of failed writes. Writes already in the journal are kept
+     * and will be replayed the next time journaling is enabled.
+     * @param enabled
+     */
+    public void setEnabled(final boolean enabled) {
+        mEnabled = enabled;
+        if (enabled) {
+            replay();
+        } else {
+            unregisterConnectivityReceiver();
+        }
+    }
+
+    public void recordScore(final String boardId, final long score, final String scoreTag) {
+        append(JournalRecords.OP_SUBMIT_SCORE, boardId, score, scoreTag);
+    }
+
+    public void recordUnlock(final String id) {
+        append(JournalRecords.OP_UNLOCK, id, 0, null);
+    }
+
+    /**
+     * Records an increment that never reached the games services, e.g. made while signed out or offline.
+     * @see #isConnected
+     */
+    public void recordIncrement(final String id, final int numSteps) {
+        append(JournalRecords.OP_INCREMENT, id, numSteps, null);
+    }
+
+    public void recordSetSteps(final String id, final int numSteps) {
+        append(JournalRecords.OP_SET_STEPS, id, numSteps, null);
+    }
+
+    /**
+     * Replays the journaled writes of the signed in account in order, stopping at the first write that fails
+     * because the player is signed out or the network is unavailable.
+     */
+    public void replay() {
+        if (!mEnabled) return;
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mReplaying) return;
+                mReplaying = true;
+                replayPending();
+            }
+        });
+    }
+
+    private void append(final byte op, final String id, final long value, final String scoreTag) {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Entry entry = new Entry(mRecords.getNextSequence(), op, mAccountId, id, value, scoreTag);
+                if (writeRecord(entry)) {
+                    mRecords.apply(entry);
+                    registerConnectivityReceiver();
+                }
+            }
+        });
+    }
+
+    private void replayPending() {
+        GoogleSignInAccount account = GamesClientRegistry.getInstance(mContext).getAccount();
+        if (account == null || account.getId() == null) {
+            // Signed out, replayed after the next sign in.
+            finishReplay();
+            return;
+        }
+
+        final List<Entry> entries = new ArrayList<>();
+        boolean hasIncrements = false;
+        for (Entry entry : mRecords.getPending()) {
+            if (!entry.isFor(account.getId())) continue;
+            entries.add(entry);
+            hasIncrements |= entry.getOp() == JournalRecords.OP_INCREMENT;
+        }
+        if (!hasIncrements) {
+            replayNext(entries, 0);
+            return;
+        }
+
+        final AchievementsClient achievementsClient = GamesClientRegistry.getInstance(mContext).getAchievementsClient();
+        if (achievementsClient == null) {
+            finishReplay();
+            return;
+        }
+        GamesClientRegistry.getInstance(mContext).dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS,
+                CallDispatcher.LANE_BACKGROUND, new GamesClientRegistry.TaskCall<AnnotatedData<AchievementBuffer>>() {
+            @Override
+            public Task<AnnotatedData<AchievementBuffer>> start() {
+                return achievementsClient.load(true);
+            }
+        }).addOnCompleteListener(mExecutor, new OnCompleteListener<AnnotatedData<AchievementBuffer>>() {
+            @Override
+            public void onComplete(@NonNull Task<AnnotatedData<AchievementBuffer>> task) {
+                if (!task.isSuccessful()) {
+                    // Increments are never replayed as is, try again later.
+                    Log.w(TAG, "Failed to load the achievement steps of the write journal", task.getException());
+                    finishReplay();
+                    return;
+                }
+                AchievementBuffer buffer = task.getResult().get();
+                try {
+                    convertIncrements(entries, buffer);
+                } finally {
+                    buffer.release();
+                }
+                replayNext(entries, 0);
+            }
+        });
+    }
+
+    /**
+     * Converts the increments to the absolute step count they lead to, following the writes before them.
+     * Increments of achievements missing from the buffer are left as is, they will fail and be dropped.
+     */
+    private void convertIncrements(final List<Entry> entries, final AchievementBuffer buffer) {
+        Map<String, Integer> steps = new HashMap<>();
+        for (Achievement achievement : buffer) {
+            if (achievement.getType() == Achievement.TYPE_INCREMENTAL) {
+                steps.put(achievement.getAchievementId(), achievement.getCurrentSteps());
+            }
+        }
+
+        for (Entry entry : entries) {
+            Integer current = steps.get(entry.id);
+            if (current == null) continue;
+            if (entry.getOp() == JournalRecords.OP_SET_STEPS) {
+                steps.put(entry.id, (int) Math.max(current, entry.getValue()));
+            } else if (entry.getOp() == JournalRecords.OP_INCREMENT) {
+                int absoluteSteps = current + (int) entry.getValue();
+                Entry conversion = JournalRecords.conversion(entry, absoluteSteps);
+                if (!writeRecord(conversion)) continue;
+                mRecords.apply(conversion);
+                steps.put(entry.id, absoluteSteps);
+            }
+        }
+        sync();
+    }
+
+    /**
+     * Replays the entries one after the other, from the given index. Runs on mExecutor.
+     */
+    private void replayNext(final List<Entry> entries, final int index) {
+        if (index >= entries.size()) {
+            finishReplay();
+            return;
+        }
+
+        final Entry entry = entries.get(index);
+        if (!mRecords.isPending(entry.sequence)) {
+            replayNext(entries, index + 1);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Task<Object> task = (Task<Object>) start(entry);
+        if (task == null) {
+            // Signed out, replayed after the next sign in.
+            finishReplay();
+            return;
+        }
+
+        task.addOnCompleteListener(mExecutor, new OnCompleteListener<Object>() {
+            @Override
+            public void onComplete(@NonNull Task<Object> completed) {
+                if (!completed.isSuccessful()) {
+                    Exception e = completed.getException();
+                    if (Helpers.isTransientFailure(e)) {
+                        finishReplay();
+                        return;
+                    }
+                    // The write can never succeed, do not let it block the rest of the journal.
+                    Log.e(TAG, "Dropping journaled write " + entry.id + ": " + (e == null ? null : e.getMessage()));
+                }
+                acknowledge(entry);
+                replayNext(entries, index + 1);
+            }
+        });
+    }
+
+    private void finishReplay() {
+        mReplaying = false;
+        sync();
+        if (mRecords.isEmpty()) {
+            unregisterConnectivityReceiver();
+        } else {
+            registerConnectivityReceiver();
+        }
+        if (mRecords.shouldCompact(mAccountId, MAX_OTHER_ACCOUNT_RECORDS)) {
+            compact();
+        }
+    }
+
+    /**
+     * Replays a write through the background lane of the dispatcher.
+     * @return the write Task, or null if the user is not signed in.
+     */
+    private Task<?> start(final Entry entry) {
+        GamesClientRegistry registry = GamesClientRegistry.getInstance(mContext);
+        switch (entry.getOp()) {
+            case JournalRecords.OP_SUBMIT_SCORE:
+                final LeaderboardsClient leaderboardsClient = registry.getLeaderboardsClient();
+                if (leaderboardsClient == null) return null;
+                return registry.dispatch(CallDispatcher.FAMILY_LEADERBOARDS, CallDispatcher.LANE_BACKGROUND,
+                        new GamesClientRegistry.TaskCall<ScoreSubmissionData>() {
+                    @Override
+                    public Task<ScoreSubmissionData> start() {
+                        if (entry.scoreTag == null) {
+                            return leaderboardsClient.submitScoreImmediate(entry.id, entry.getValue());
+                        }
+                        return leaderboardsClient.submitScoreImmediate(entry.id, entry.getValue(), entry.scoreTag);
+                    }
+                });
+            case JournalRecords.OP_UNLOCK:
+            case JournalRecords.OP_INCREMENT:
+            case JournalRecords.OP_SET_STEPS:
+                final AchievementsClient achievementsClient = registry.getAchievementsClient();
+                if (achievementsClient == null) return null;
+                if (entry.getOp() == JournalRecords.OP_UNLOCK) {
+                    return registry.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                            new GamesClientRegistry.TaskCall<Void>() {
+                        @Override
+                        public Task<Void> start() {
+                            return achievementsClient.unlockImmediate(entry.id);
+                        }
+                    });
+                }
+                return registry.dispatch(CallDispatcher.FAMILY_ACHIEVEMENTS, CallDispatcher.LANE_BACKGROUND,
+                        new GamesClientRegistry.TaskCall<Boolean>() {
+                    @Override
+                    public Task<Boolean> start() {
+                        if (entry.getOp() == JournalRecords.OP_INCREMENT) {
+                            return achievementsClient.incrementImmediate(entry.id, (int) entry.getValue());
+                        }
+                        return achievementsClient.setStepsImmediate(entry.id, (int) entry.getValue());
+                    }
+                }, entry.getOp() != JournalRecords.OP_INCREMENT);
+        }
+        return Tasks.forResult(null);
+    }
+
+    /**
+     * Makes the signed in account the one new writes are recorded for, and remembers it for the next launch.
+     * Signing out keeps the last account. Runs on mExecutor.
+     */
+    private void updateAccountId() {
+        GoogleSignInAccount account = GamesClientRegistry.getInstance(mContext).getAccount();
+        String accountId = account == null ? null : account.getId();
+        if (accountId == null || accountId.equals(mAccountId)) return;
+        mAccountId = accountId;
+        mContext.getSharedPreferences(ACCOUNT_PREFERENCES, Context.MODE_PRIVATE).edit()
+                .putString(LAST_ACCOUNT_ID_KEY, accountId).apply();
+        if (mRecords.shouldCompact(mAccountId, MAX_OTHER_ACCOUNT_RECORDS)) {
+            compact();
+        }
+    }
+
+    private void acknowledge(final Entry entry) {
+        Entry ack = JournalRecords.ack(entry);
+        mRecords.apply(ack);
+        writeRecord(ack);
+    }
+
+    private void load() {
+        if (!mFile.exists()) return;
+
+        long validLength = mFile.length();
+        BufferedInputStream in = null;
+        try {
+            in = new BufferedInputStream(new FileInputStream(mFile));
+            validLength = mRecords.read(in);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read the write journal", e);
+        } finally {
+            closeQuietly(in);
+        }
+
+        // Drop a torn tail so that new records are not appended after it.
+        if (validLength < mFile.length()) {
+            try {
+                RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+                file.setLength(validLength);
+                file.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to truncate the write journal", e);
+            }
+        }
+
+        if (!mRecords.isEmpty()) {
+            registerConnectivityReceiver();
+        }
+    }
+
+    private boolean writeRecord(final Entry record) {
+        try {
+            if (mOut == null) {
+                mFile.getParentFile().mkdirs();
+                mFileOut = new FileOutputStream(mFile, true);
+                mOut = new DataOutputStream(new BufferedOutputStream(mFileOut));
+            }
+            JournalRecords.write(mOut, record);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append to the write journal", e);
+            return false;
+        }
+
+        if (++mUnsyncedRecords >= SYNC_BATCH_SIZE) {
+            sync();
+        } else if (mSyncFuture == null) {
+            mSyncFuture = mExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    sync();
+                }
+            }, SYNC_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private void sync() {
+        if (mSyncFuture != null) {
+            mSyncFuture.cancel(false);
+            mSyncFuture = null;
+        }
+        if (mOut == null || mUnsyncedRecords == 0) return;
+
+        try {
+            mOut.flush();
+            mFileOut.getFD().sync();
+            mUnsyncedRecords = 0;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to sync the write journal", e);
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the writes that have not been acknowledged yet, dropping the oldest writes of
+     * other accounts beyond MAX_OTHER_ACCOUNT_RECORDS.
+     */
+    private void compact() {
+        int dropped = mRecords.dropOldOtherAccountEntries(mAccountId, MAX_OTHER_ACCOUNT_RECORDS);
+        if (dropped > 0) {
+            Log.w(TAG, "Dropping " + dropped + " journaled writes of other accounts");
+        }
+        sync();
+        closeQuietly(mOut);
+        mOut = null;
+        mFileOut = null;
+
+        File compacted = new File(mFile.getParentFile(), JOURNAL_FILE + ".tmp");
+        DataOutputStream out = null;
+        try {
+            FileOutputStream fileOut = new FileOutputStream(compacted, false);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+            mRecords.writePending(out);
+            out.flush();
+            fileOut.getFD().sync();
+            out.close();
+            out = null;
+
+            if (compacted.renameTo(mFile)) {
+                mRecords.onCompacted();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to compact the write journal", e);
+        } finally {
+            closeQuietly(out);
+            compacted.delete();
+        }
+    }
+
+    /**
+     * @return whether or not the device has a network connection, i.e. whether or not a call that just failed
+     * may have reached the games services.
+     */
+    public boolean isConnected() {
+        ConnectivityManager connectivityManager =
+                (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connectivityManager == null ? null : connectivityManager.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    private synchronized void registerConnectivityReceiver() {
+        if (!mEnabled || mConnectivityReceiver != null) return;
+
+        mConnectivityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                if (isConnected()) {
+                    replay();
+                }
+            }
+        };
+        mContext.registerReceiver(mConnectivityReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    private synchronized void unregisterConnectivityReceiver() {
+        if (mConnectivityReceiver == null) return;
+        mContext.unregisterReceiver(mConnectivityReceiver);
+        mConnectivityReceiver = null;
+    }
+
+    private static void closeQuietly(final Closeable closeable) {
+        if (closeable == null) return;
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -1,11 +1,115 @@
 import { NativeModules, DeviceEventEmitter } from 'react-native';
 
-const { RNPlayGamesAuth, RNPlayGamesPlayer, RNPlayGamesAchievement, RNPlayGamesLeaderboard } = NativeModules;
-
-RNPlayGamesAuth.onAuthStateChanged = (callback) => {
-    return DeviceEventEmitter.addListener(RNPlayGamesAuth.AUTH_STATE_CHANGE_EVENT, isSignedIn => {
-        callback(isSignedIn)
+// Native modules are created the first time they are looked up, so a module is only looked up
+// when one of its properties is read. Helpers only look the native module up when called.
+// Without Proxy, the names of the native methods are not known before the module is created,
+// so every module is created at import time: laziness requires an engine with Proxy.
+const lazyModule = (name, createHelpers) => {
+    const getNativeModule = () => NativeModules[name];
+    const helpers = createHelpers(getNativeModule);
+    if (typeof Proxy === 'undefined') {
+        return Object.assign(Object.create(getNativeModule()), helpers);
+    }
+    return new Proxy({}, {
+        get: (target, property) => {
+            if (Object.prototype.hasOwnProperty.call(helpers, property)) return helpers[property];
+            return getNativeModule()[property];
+        },
+        has: (target, property) => {
+            return Object.prototype.hasOwnProperty.call(helpers, property) || property in getNativeModule();
+        }
     });
-} 
+}
+
+// Tells the native side how many listeners each event has, so events nobody listens to are never built.
+const addListener = (eventName, callback) => {
+    const subscription = DeviceEventEmitter.addListener(eventName, callback);
+    NativeModules.RNPlayGamesAuth.startObserving(eventName);
+    let removed = false;
+    return {
+        remove: () => {
+            if (removed) return;
+            removed = true;
+            subscription.remove();
+            NativeModules.RNPlayGamesAuth.stopObserving(eventName);
+        }
+    };
+}
+
+const RNPlayGamesAuth = lazyModule('RNPlayGamesAuth', getNativeModule => ({
+    onAuthStateChanged: (callback) => {
+        return addListener(getNativeModule().AUTH_STATE_CHANGE_EVENT, isSignedIn => {
+            callback(isSignedIn)
+        });
+    },
+    onMetrics: (callback) => {
+        return addListener(getNativeModule().METRICS_EVENT, metrics => {
+            callback(metrics)
+        });
+    }
+}));
+
+// Lookups made in the same tick, e.g. by the rows of a list, are sent to the native side as one call.
+const batchLookups = (load) => {
+    let pending = null;
+    return (playerId) => {
+        if (!pending) {
+            const batch = { ids: [] };
+            batch.promise = new Promise(resolve => setTimeout(resolve, 0)).then(() => {
+                pending = null;
+                return load(batch.ids);
+            });
+            pending = batch;
+        }
+        if (pending.ids.indexOf(playerId) < 0) pending.ids.push(playerId);
+        return pending.promise.then(results => results[playerId]);
+    };
+}
+
+const RNPlayGamesPlayer = lazyModule('RNPlayGamesPlayer', getNativeModule => {
+    const getProfile = batchLookups(playerIds => getNativeModule().loadPlayerProfiles(playerIds, false));
+    const getIcon = batchLookups(playerIds => getNativeModule().loadPlayerIcons(playerIds, false));
+    const getHiResIcon = batchLookups(playerIds => getNativeModule().loadPlayerIcons(playerIds, true));
+    return {
+        getPlayerProfile: (playerId) => getProfile(playerId),
+        getPlayerIcon: (playerId, hiRes = false) => hiRes ? getHiResIcon(playerId) : getIcon(playerId)
+    };
+});
+
+const RNPlayGamesLeaderboard = lazyModule('RNPlayGamesLeaderboard', getNativeModule => ({
+    onScoresSubmitted: (callback) => {
+        return addListener(getNativeModule().SCORE_SUBMITTED_EVENT, scores => {
+            callback(scores)
+        });
+    }
+}));
+
+const RNPlayGamesAchievement = lazyModule('RNPlayGamesAchievement', getNativeModule => ({
+    onAchievementsUnlocked: (callback) => {
+        return addListener(getNativeModule().ACHIEVEMENT_UNLOCKED_EVENT, achievements => {
+            callback(achievements)
+        });
+    }
+}));
+
+const RNPlayGamesSnapshots = lazyModule('RNPlayGamesSnapshots', () => ({}));
+
+// Slots of the registered events, so that increments only send a number over the bridge.
+const eventSlots = {};
+
+const RNPlayGamesEvents = lazyModule('RNPlayGamesEvents', getNativeModule => ({
+    registerEvents: (eventIds) => {
+        return getNativeModule().registerEvents(eventIds).then(slots => {
+            Object.assign(eventSlots, slots);
+            return slots;
+        });
+    },
+    increment: (eventId, amount = 1) => {
+        const slot = eventSlots[eventId];
+        if (slot === undefined) return false;
+        getNativeModule().incrementEvent(slot, amount);
+        return true;
+    }
+}));
 
-export { RNPlayGamesAuth, RNPlayGamesPlayer, RNPlayGamesAchievement, RNPlayGamesLeaderboard };
\ No newline at end of file
+export { RNPlayGamesAuth, RNPlayGamesPlayer, RNPlayGamesAchievement, RNPlayGamesLeaderboard, RNPlayGamesSnapshots, RNPlayGamesEvents };